@@ -1,17 +1,55 @@
 package org.jenkinsci.plugins.sshsteps
 
+import com.jcraft.jsch.Channel
+import com.jcraft.jsch.ChannelExec
+import com.jcraft.jsch.ChannelSftp
+import com.jcraft.jsch.JSch
+import com.jcraft.jsch.JSchException
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings
+import groovy.io.FileType
 import groovy.util.logging.Slf4j
 import org.hidetake.groovy.ssh.Ssh
-import org.hidetake.groovy.ssh.connection.AllowAnyHosts
 import org.hidetake.groovy.ssh.core.Service
-import org.hidetake.groovy.ssh.core.settings.LoggingMethod
+import org.hidetake.groovy.ssh.operation.SftpException
+import org.hidetake.groovy.ssh.session.BadExitStatusException
+import org.jenkinsci.plugins.sshsteps.util.ArchiveWriter
+import org.jenkinsci.plugins.sshsteps.util.BoundedPipe
+import org.jenkinsci.plugins.sshsteps.util.CappedOutputStream
+import org.jenkinsci.plugins.sshsteps.util.ChannelCommand
+import org.jenkinsci.plugins.sshsteps.util.CipherCalibration
+import org.jenkinsci.plugins.sshsteps.util.CircuitBreaker
 import org.jenkinsci.plugins.sshsteps.util.Common
 import org.jenkinsci.plugins.sshsteps.util.CustomLogHandler
+import org.jenkinsci.plugins.sshsteps.util.FanOutOutputStream
+import org.jenkinsci.plugins.sshsteps.util.FileTail
+import org.jenkinsci.plugins.sshsteps.util.MappedFile
+import org.jenkinsci.plugins.sshsteps.util.OutputMatcher
+import org.jenkinsci.plugins.sshsteps.util.OutputStore
+import org.jenkinsci.plugins.sshsteps.util.PerformanceProfile
+import org.jenkinsci.plugins.sshsteps.util.RemoteSettings
+import org.jenkinsci.plugins.sshsteps.util.SSHConnection
+import org.jenkinsci.plugins.sshsteps.util.SSHEvents
+import org.jenkinsci.plugins.sshsteps.util.SSHConnectionPool
+import org.jenkinsci.plugins.sshsteps.util.SSHMetrics
+import org.jenkinsci.plugins.sshsteps.util.Throttle
+import org.jenkinsci.plugins.sshsteps.util.TransferProgress
 import org.slf4j.MDC
 
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.Callable
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import java.util.function.Consumer
 import java.util.logging.Level
+import java.util.logging.LogRecord
 import java.util.logging.Logger
+import java.util.regex.Pattern
 
 /**
  * SSH Service, wrapper on top of hidetake's ssh service.
@@ -22,11 +60,69 @@ import java.util.logging.Logger
 @SuppressFBWarnings
 class SSHService implements Serializable {
 
+    /**
+     * Number of SFTP channels used in parallel when removing multiple paths.
+     */
+    private static final int REMOVE_PARALLELISM = 4
+
+    /**
+     * Tools computing checksums on the remote node, by algorithm, see stat.
+     */
+    private static final Map<String, String> CHECKSUM_COMMANDS = [sha256: 'sha256sum', sha1: 'sha1sum',
+                                                                  md5   : 'md5sum', xxh64: 'xxhsum -H1']
+
+    /**
+     * Most files per checksum command, to stay well below the command line limit.
+     */
+    private static final int CHECKSUM_MAX_FILES = 500
+
+    /**
+     * Chunks (up to 32 KB each) buffered per destination when copying between remotes.
+     */
+    private static final int COPY_BUFFER_CHUNKS = 64
+
+    /**
+     * Longest wait for a destination to finish writing once the source was read, when its remote
+     * has no timeoutSec.
+     */
+    private static final int DEFAULT_COPY_FINISH_SEC = 60
+
+    /**
+     * Defaults for shared connections, OpenSSH's default MaxSessions is 10.
+     */
+    private static final int DEFAULT_MAX_SESSIONS = 10
+    private static final int DEFAULT_MAX_CONNECTIONS = 4
+    private static final int DEFAULT_SHARE_IDLE_SEC = 60
+
+    /**
+     * Defaults for exponential retry backoff and the per host circuit breaker.
+     */
+    private static final int DEFAULT_BACKOFF_INITIAL_SEC = 1
+    private static final int DEFAULT_RETRY_MAX_WAIT_SEC = 60
+    private static final int DEFAULT_CIRCUIT_BREAKER_RESET_SEC = 30
+
+    /**
+     * Time between checks of a command waiting for output (see executeCommandUntil), and between
+     * polls of a file followed by sshTail while it grows.
+     */
+    private static final long POLL_MILLIS = 200
+
+    /**
+     * Longest wait between polls of a file followed by sshTail, while it does not grow.
+     */
+    private static final long TAIL_MAX_POLL_MILLIS = 2000
+
+    /**
+     * Default time between transfer progress lines.
+     */
+    private static final int DEFAULT_PROGRESS_INTERVAL_SEC = 10
+
     private final Map remote
     private final boolean failOnError
     private final boolean dryRunFlag
     private final transient PrintStream logger
     private final transient Service ssh
+    private final transient RemoteSettings settings
 
     /**
      * Constructor.
@@ -41,7 +137,7 @@ class SSHService implements Serializable {
         this.logger = logger
         this.failOnError = failOnError
         this.dryRunFlag = dryRun
-        validateRemote()
+        settings = RemoteSettings.of(remote, logger)
         ssh = Ssh.newService()
     }
 
@@ -50,6 +146,11 @@ class SSHService implements Serializable {
     }
 
     private transient CustomLogHandler currentHandler
+    private transient SSHConnection preConnected
+    /**
+     * Channels opened by this service, to stop them on cancel.
+     */
+    private final transient Set<Channel> channels = ConcurrentHashMap.newKeySet()
     
     /**
      * Register Log handler for all hidetake's classes.
@@ -64,12 +165,14 @@ class SSHService implements Serializable {
         
         currentHandler = new CustomLogHandler(logger, MDC.get("execution.id"), 
                                                bufferSize, flushIntervalMs, rateLimitLinesPerSec)
+        currentHandler.host = hostAndPort()
         rootLogger.addHandler(currentHandler)
         
         if (remote.logLevel) {
             rootLogger.setLevel(Level.parse(remote.logLevel))
         } else {
-            logger.println(message)
+            if (message)
+                logger.println(message)
             rootLogger.setLevel(Level.SEVERE)
         }
     }
@@ -93,124 +196,294 @@ class SSHService implements Serializable {
         }
     }
 
-    private void validateRemote() {
-        new Common(logger).validateRemote(this.remote)
+    /**
+     * Defines the remote, with its gateways and proxy, on the service from the settings validated
+     * once per remote, see {@link RemoteSettings}.
+     *
+     * @param enableInteraction pipe the output of commands to the step log.
+     * @return hidetake's remote.
+     */
+    private def defineRemote(boolean enableInteraction = true) {
+        // Pipe logs to TaskListener's print stream for commands/scripts only
+        // Do NOT enable interaction for file transfers to prevent file contents from being printed
+        def target = settings.toRemote(dryRunFlag, !failOnError,
+                enableInteraction ? interaction(remote.appendName ? "$remote.name|" : '') : null)
+        ssh.remotes.add(target)
+        target
     }
 
-    private void defineRemote(remote, boolean enableInteraction = true) {
-        ssh.remotes {
-            "$remote.name" {
-                host = remote.host
-                if (remote.port)
-                    port = remote.port
-                user = remote.user
-                if (remote.password)
-                    password = remote.password
+    /**
+     * Interaction piping the output of commands to the step log.
+     *
+     * @param logPrefix prefix of every line.
+     */
+    private Closure interaction(String logPrefix) {
+        return {
+            when(line: _, from: standardOutput) {
+                logger.println("$logPrefix$it")
+            }
+            when(line: _, from: standardError) {
+                logger.println("$logPrefix$it")
+            }
 
-                // Gateway.
-                if (remote.gateway) {
-                    defineRemote(remote.gateway, enableInteraction)
-                    gateway = ssh.remotes."$remote.gateway.name"
+            // Reusable closure for logging output with prefix
+            def logOutput = { output ->
+                if (output) {
+                    logger.println("$logPrefix$output")
                 }
+            }
 
-                // Connection Settings applicable for Command, Script, FTP/SCP Operations.
-                timeoutSec = remote.timeoutSec
-                retryCount = remote.retryCount
-                agent = remote.agent
-                dryRun = dryRunFlag
-                retryWaitSec = remote.retryWaitSec
-                if (remote.keepAliveSec)
-                    keepAliveSec = remote.keepAliveSec
-                jschLog = true
-
-                // Agent forwarding for command, need to find the difference between this and agent.
-                if (remote.agentForwarding)
-                    agentForwarding = remote.agentForwarding
-
-                // Ignore error don't fail the pipeline build
-                ignoreError = !failOnError
-
-                if (remote.fileTransfer)
-                    fileTransfer = remote.fileTransfer
-
-                // Avoid excessive logging in Jenkins master.
-                logging = LoggingMethod.none
-
-                def logPrefix = remote.appendName ? "$remote.name|" : ''
-                
-                // Pipe logs to TaskListener's print stream for commands/scripts only
-                // Do NOT enable interaction for file transfers to prevent file contents from being printed
-                if (enableInteraction) {
-                    interaction = {
-                        when(line: _, from: standardOutput) {
-                            logger.println("$logPrefix$it")
-                        }
-                        when(line: _, from: standardError) {
-                            logger.println("$logPrefix$it")
-                        }
+            // Capture partial output at stream end to prevent truncation
+            // when commands exit without trailing newlines
+            when(partial: _, from: standardOutput) {
+                logOutput(it)
+            }
+            when(partial: _, from: standardError) {
+                logOutput(it)
+            }
+        }
+    }
 
-                        // Reusable closure for logging output with prefix
-                        def logOutput = { output ->
-                            if (output) {
-                                logger.println("$logPrefix$output")
-                            }
-                        }
+    /**
+     * Opens a connection to the remote ahead of time, see {@link #attach(SSHConnection)}.
+     *
+     * @return established connection.
+     */
+    SSHConnection connect() {
+        openConnection(defineRemote())
+    }
 
-                        // Capture partial output at stream end to prevent truncation
-                        // when commands exit without trailing newlines
-                        when(partial: _, from: standardOutput) {
-                            logOutput(it)
-                        }
-                        when(partial: _, from: standardError) {
-                            logOutput(it)
-                        }
-                    }
+    /**
+     * Opens a connection to the target, retrying up to retryCount times. The wait between attempts
+     * is retryWaitSec, or grows exponentially with jitter when retryBackoff is exponential. When
+     * circuitBreakerThreshold is set, attempts go through the agent wide breaker of the host and
+     * fail fast while it is open.
+     *
+     * @param target hidetake's remote.
+     * @return established connection.
+     */
+    private SSHConnection openConnection(target) {
+        def hostKey = hostAndPort()
+        int hops = 0
+        for (def r = remote; r; r = r.gateway)
+            hops++
+        int threshold = (remote.circuitBreakerThreshold ?: 0) as int
+        long resetMillis = ((remote.circuitBreakerResetSec != null ? remote.circuitBreakerResetSec :
+                DEFAULT_CIRCUIT_BREAKER_RESET_SEC) as long) * 1000L
+        def breaker = threshold > 0 ? CircuitBreaker.forHost(hostKey) : null
+        int retries = (remote.retryCount ?: 0) as int
+        for (int attempt = 0; ; attempt++) {
+            if (breaker && !breaker.tryAcquire(resetMillis, System.currentTimeMillis())) {
+                SSHMetrics.connectFailed(attempt)
+                throw new IllegalStateException(Common.prefix + "circuit breaker for $hostKey is " +
+                        "${breaker.state} after ${breaker.failures} consecutive connect failures, failing fast " +
+                        "(retrying in ${breaker.remainingOpenMillis(resetMillis, System.currentTimeMillis())} ms) ($remote.name)")
+            }
+            def event = new SSHEvents.Connect(attempt + 1, hops)
+            long started = System.nanoTime()
+            try {
+                def connection = SSHConnection.open(ssh, target, performanceConfig(remote))
+                event.success = true
+                event.finish(hostKey)
+                SSHMetrics.connected(((System.nanoTime() - started) / 1000000L) as long, attempt)
+                if (breaker?.onSuccess())
+                    logger.println(Common.prefix + "circuit breaker for $hostKey is CLOSED again")
+                return connection
+            } catch (Throwable e) {
+                event.finish(hostKey)
+                // Any failure ends a half open probe, only connect errors are retried.
+                def opened = breaker?.onFailure(threshold, System.currentTimeMillis())
+                if (opened)
+                    logger.println(Common.prefix + "circuit breaker for $hostKey is OPEN after " +
+                            "${breaker.failures} consecutive connect failures, failing fast for ${resetMillis} ms")
+                if (!(e instanceof JSchException) || attempt >= retries || opened) {
+                    SSHMetrics.connectFailed(attempt)
+                    throw e
                 }
+                long wait = retryWaitMillis(attempt)
+                logger.println(Common.prefix + "connecting to $remote.name[$hostKey] failed (${e.message}), " +
+                        "retry ${attempt + 1}/$retries in $wait ms")
+                Thread.sleep(wait)
+            }
+        }
+    }
 
-                if (remote.pty) {
-                    pty = remote.pty
-                }
+    /**
+     * Host and port of the remote, e.g. for circuit breakers and events.
+     */
+    private String hostAndPort() {
+        "$remote.host:${remote.port ?: 22}" as String
+    }
 
-                // Encoding
-                if (remote.encoding)
-                    encoding = remote.encoding
-
-                // Host authentication
-                if (remote.allowAnyHosts)
-                    knownHosts = AllowAnyHosts.instance
-                else if (remote.knownHosts)
-                    knownHosts = remote.knownHosts
-
-                // Public and private key authentication
-                if (remote.identity)
-                    identity = remote.identity
-                passphrase = remote.passphrase
-
-                // Proxy.
-                if (remote.proxy) {
-                    defineProxy(remote.proxy)
-                    proxy = ssh.proxies."$remote.proxy.name"
-                }
+    /**
+     * Runs the given command session closure, recorded as a command event.
+     *
+     * @param operation kind of command for the event, e.g. sshCommand.
+     * @param closure session closure.
+     */
+    private def runCommand(String operation, Closure closure) {
+        def event = new SSHEvents.Command(operation)
+        try {
+            def result = runSession(closure)
+            event.exitStatus = 0
+            result
+        } catch (BadExitStatusException e) {
+            event.exitStatus = e.exitStatus
+            throw e
+        } finally {
+            event.finish(hostAndPort())
+        }
+    }
 
+    /**
+     * JSch config of the performanceProfile of the remote and each gateway, by remote name.
+     */
+    private static Map<String, Map<String, String>> performanceConfig(remote) {
+        def config = [:]
+        for (def r = remote; r; r = r.gateway) {
+            if (r.performanceProfile) {
+                def calibrated = CipherCalibration.get("$r.host:${r.port ?: 22}" as String)
+                config[r.name] = PerformanceProfile.of(r.performanceProfile).jschConfig(calibrated)
             }
         }
+        config
+    }
+
+    private long retryWaitMillis(int attempt) {
+        if (remote.retryBackoff == 'exponential') {
+            long initial = ((remote.retryWaitSec ?: DEFAULT_BACKOFF_INITIAL_SEC) as long) * 1000L
+            long max = ((remote.retryMaxWaitSec != null ? remote.retryMaxWaitSec :
+                    DEFAULT_RETRY_MAX_WAIT_SEC) as long) * 1000L
+            return Common.backoffMillis(initial, max, attempt, ThreadLocalRandom.current())
+        }
+        ((remote.retryWaitSec ?: 0) as long) * 1000L
     }
 
-    private void defineProxy(proxy) {
-        ssh.proxies {
-            "$proxy.name" {
-                host = proxy.host
-                type = proxy.type
-                if (proxy.port)
-                    port = proxy.port
-                if (proxy.socksVersion)
-                    socksVersion = proxy.socksVersion
-                if (proxy.user)
-                    user = proxy.user
-                if (proxy.password)
-                    password = proxy.password
+    /**
+     * Use an already established connection for the next operation instead of connecting again.
+     * The connection is closed once that operation completes.
+     *
+     * @param connection connection opened by {@link #connect()}, ignored when null or dropped.
+     */
+    void attach(SSHConnection connection) {
+        if (connection?.connected && !dryRunFlag) {
+            preConnected = connection
+        } else {
+            connection?.close()
+        }
+    }
+
+    /**
+     * Runs the given session closure against the remote, on the attached connection if any,
+     * otherwise on a shared connection when shareConnection (or the multiplexed transport) is
+     * enabled, otherwise on a new one.
+     */
+    private def runSession(Closure closure) {
+        runSession(null, 1, closure)
+    }
+
+    /**
+     * Runs the given transfer closure, throttled by the given bandwidth limits. Transfers count
+     * their bytes on the SFTP streams with a {@link TransferProgress}.
+     *
+     * @param throttle limits of the transfer, null for none.
+     * @param closure session closure.
+     */
+    private def runSession(Throttle throttle, Closure closure) {
+        runSession(throttle, 1, closure)
+    }
+
+    /**
+     * Runs the given session closure, which opens up to the given number of channels at once
+     * (see {@link #channelBudget}).
+     *
+     * @param throttle limits of a transfer, null for none.
+     * @param channelCount most channels open at once.
+     * @param closure session closure.
+     */
+    private def runSession(Throttle throttle, int channelCount, Closure closure) {
+        def target = ssh.remotes[settings.name]
+        if (dryRunFlag) {
+            return ssh.run {
+                session(target, closure)
             }
         }
+        withConnection(channelCount) { SSHConnection connection ->
+            connection.run(ssh, target, throttle, closure, channels)
+        }
+    }
+
+    /**
+     * Channels a session may open at once for the given parallelism: at most maxSessions, so that
+     * its lease fits on one shared connection and the server accepts them on a dedicated one.
+     */
+    private int channelBudget(int parallelism) {
+        Math.max(1, Math.min(parallelism, (remote.maxSessions ?: DEFAULT_MAX_SESSIONS) as int))
+    }
+
+    private def withConnection(Closure closure) {
+        withConnection(1, closure)
+    }
+
+    /**
+     * Calls the given closure with a connection to the remote: the attached one if any, otherwise
+     * a shared one when shareConnection (or the multiplexed transport) is enabled, leased for the
+     * given number of channels, otherwise a new one. Not for dry runs.
+     */
+    private def withConnection(int channelCount, Closure closure) {
+        def target = ssh.remotes[settings.name]
+        if (preConnected) {
+            def connection = preConnected
+            preConnected = null
+            try {
+                return closure(connection)
+            } finally {
+                connection.close()
+            }
+        }
+        if (remote.shareConnection || multiplexed) {
+            def lease = SSHConnectionPool.lease(settings.connectionKey, channelCount,
+                    (remote.maxSessions ?: DEFAULT_MAX_SESSIONS) as int,
+                    (remote.maxConnections ?: DEFAULT_MAX_CONNECTIONS) as int,
+                    ((remote.shareIdleSec ?: DEFAULT_SHARE_IDLE_SEC) as long) * 1000L,
+                    { openConnection(target) } as Callable)
+            try {
+                return closure(lease.connection)
+            } finally {
+                lease.close()
+            }
+        }
+        def connection = openConnection(target)
+        try {
+            closure(connection)
+        } finally {
+            connection.close()
+        }
+    }
+
+    private long progressIntervalMillis() {
+        ((remote.progressIntervalSec != null ? remote.progressIntervalSec :
+                DEFAULT_PROGRESS_INTERVAL_SEC) as long) * 1000L
+    }
+
+    /**
+     * Prints the final statistics of a transfer which printed progress.
+     */
+    private void logTransferStats(String label, Map stats) {
+        long interval = progressIntervalMillis()
+        if (interval > 0 && stats.durationMillis >= interval) {
+            logger.println(Common.prefix + "$label: done, ${stats.bytes} bytes in ${stats.durationMillis} ms " +
+                    "(${stats.mbPerSec} MB/s)")
+        }
+    }
+
+    /**
+     * Bandwidth limits for a put or get, from bandwidthLimit and transferPriority of the remote
+     * and the agent wide limit.
+     */
+    private Throttle transferThrottle() {
+        Throttle.forTransfer("$remote.host:${remote.port ?: 22}" as String,
+                (remote.bandwidthLimit ?: 0) as long, remote.transferPriority as String)
     }
 
     /**
@@ -223,15 +496,422 @@ class SSHService implements Serializable {
     def executeCommand(String command, boolean sudo) {
         try {
             registerLogHandler("Executing command on $remote.name[$remote.host]: $command sudo: $sudo")
-            defineRemote(remote)
-            ssh.run {
-                session(ssh.remotes."$remote.name") {
+            defineRemote()
+            if (multiplexed && !sudo)
+                return executeOnChannel('sshCommand', command)
+            runCommand('sshCommand') {
+                if (sudo)
+                    executeSudo command
+                else
+                    execute command
+            }
+        } finally {
+            cleanupLogHandler()
+        }
+    }
+
+    /**
+     * Whether commands run on the multiplexed transport (transport: 'multiplexed'): on an exec
+     * channel of a shared connection with the output pushed by the connection's session thread,
+     * see {@link ChannelCommand}, rather than hidetake's operations with reader threads per command.
+     * Sudo and dry runs always go through hidetake.
+     */
+    private boolean isMultiplexed() {
+        remote.transport == 'multiplexed' && !dryRunFlag
+    }
+
+    /**
+     * Executes the given command on the multiplexed transport, same as hidetake's execute.
+     *
+     * @param operation name of the operation, for events.
+     * @param command shell command.
+     * @return standard output.
+     */
+    private String executeOnChannel(String operation, String command) {
+        def out = logger
+        def prefix = remote.appendName ? "$remote.name|" : ''
+        def hostKey = hostAndPort()
+        def event = new SSHEvents.Command(operation)
+        try {
+            def output = new ChannelCommand(remote.encoding ?: 'UTF-8',
+                    { String line -> out.println("$prefix$line") } as Consumer<String>)
+            int exitStatus = withConnection { SSHConnection connection ->
+                def channel = connection.openChannel('exec', channels) as ChannelExec
+                try {
+                    channel.command = command
+                    if (remote.pty)
+                        channel.pty = true
+                    if (remote.agentForwarding)
+                        channel.agentForwarding = true
+                    channel.outputStream = output.stdout
+                    channel.errStream = output.stderr
+                    channel.connect(((remote.timeoutSec ?: 0) as int) * 1000)
+                    output.await(channel)
+                } finally {
+                    channel.disconnect()
+                }
+            } as int
+            event.exitStatus = exitStatus
+            if (exitStatus != 0 && failOnError)
+                throw new BadExitStatusException("Command returned exit status $exitStatus: $command", exitStatus)
+            output.output
+        } finally {
+            event.finish(hostKey)
+        }
+    }
+
+    /**
+     * Executes a given command and returns a structured result instead of the output. A non-zero
+     * exit status is part of the result and does not fail.
+     *
+     * @param command shell command.
+     * @param sudo execute it as sudo when true.
+     * @param inlineOutputLimit stdout/stderr up to this many bytes are returned in the result,
+     *        larger ones are kept on the agent and referenced by outputRef. Either is cut at
+     *        {@link OutputStore#MAX_OUTPUT_BYTES} with a marker.
+     * @return exitStatus, durationMillis, stdoutBytes, stderrBytes, stdout, stderr and outputRef.
+     */
+    def executeCommandResult(String command, boolean sudo, int inlineOutputLimit) {
+        try {
+            registerLogHandler("Executing command on $remote.name[$remote.host]: $command sudo: $sudo")
+            defineRemote()
+            def charset = remote.encoding ?: 'UTF-8'
+            def stdout = new CappedOutputStream(OutputStore.MAX_OUTPUT_BYTES)
+            def stderr = new CappedOutputStream(OutputStore.MAX_OUTPUT_BYTES)
+            def exitStatus = 0
+            def started = System.currentTimeMillis()
+            def event = new SSHEvents.Command('sshCommand returnResult')
+            runSession {
+                try {
                     if (sudo)
-                        executeSudo command
+                        executeSudo command, ignoreError: false, outputStream: stdout, errorStream: stderr
                     else
-                        execute command
+                        execute command, ignoreError: false, outputStream: stdout, errorStream: stderr
+                } catch (BadExitStatusException e) {
+                    exitStatus = e.exitStatus
                 }
             }
+            event.exitStatus = exitStatus
+            event.finish(hostAndPort())
+            def result = [exitStatus    : exitStatus,
+                          durationMillis: System.currentTimeMillis() - started,
+                          stdoutBytes   : stdout.size(),
+                          stderrBytes   : stderr.size(),
+                          stdout        : stdout.size() <= inlineOutputLimit ? stdout.toString(charset) : null,
+                          stderr        : stderr.size() <= inlineOutputLimit ? stderr.toString(charset) : null,
+                          outputRef     : null]
+            if (result.stdout == null || result.stderr == null)
+                result.outputRef = OutputStore.put(stdout.toByteArray(charset), stderr.toByteArray(charset), charset)
+            result
+        } finally {
+            cleanupLogHandler()
+        }
+    }
+
+    /**
+     * Executes a given command until a line of its output matches the given pattern, instead of
+     * until it exits. Unless terminate is set, the command is started detached from the session
+     * (setsid/nohup) with its output in a file under TMPDIR, which is followed until the match,
+     * so it keeps running once the channel is closed.
+     *
+     * @param command shell command.
+     * @param waitFor regex to find in a line of stdout or stderr.
+     * @param timeoutSec time to wait for the match.
+     * @param terminate send TERM to the command on match or timeout.
+     * @return matched, line (the matching one), exitStatus (when it exited) and durationMillis.
+     */
+    def executeCommandUntil(String command, String waitFor, int timeoutSec, boolean terminate) {
+        try {
+            registerLogHandler("Executing command on $remote.name[$remote.host]: $command waitFor: $waitFor")
+            defineRemote()
+            if (dryRunFlag)
+                return [matched: true, line: null, exitStatus: null, durationMillis: 0L]
+            def out = logger
+            def prefix = remote.appendName ? "$remote.name|" : ''
+            def charset = remote.encoding ?: 'UTF-8'
+            def pattern = Pattern.compile(waitFor)
+            def matched = new CompletableFuture<String>()
+            def print = { String line -> out.println("$prefix$line") } as Consumer<String>
+            def stdout = new OutputMatcher(pattern, charset, print, matched)
+            def stderr = new OutputMatcher(pattern, charset, print, matched)
+            def started = System.currentTimeMillis()
+            def deadline = started + timeoutSec * 1000L
+            def hostKey = hostAndPort()
+            def event = new SSHEvents.Command('sshCommand waitFor')
+            Map result = withConnection { SSHConnection connection ->
+                def channel = connection.openChannel('exec', channels) as ChannelExec
+                channel.command = terminate ? command : leaveRunning(command)
+                if (remote.pty)
+                    channel.pty = true
+                channel.setOutputStream(stdout, true)
+                channel.setErrStream(stderr, true)
+                try {
+                    channel.connect(((remote.timeoutSec ?: 0) as int) * 1000)
+                    while (true) {
+                        try {
+                            def line = matched.get(POLL_MILLIS, TimeUnit.MILLISECONDS)
+                            if (terminate)
+                                channel.sendSignal('TERM')
+                            return [matched: true, line: line, exitStatus: null]
+                        } catch (TimeoutException ignored) {
+                            // Not yet.
+                        }
+                        if (channel.closed) {
+                            stdout.finish()
+                            stderr.finish()
+                            def line = matched.getNow(null)
+                            return [matched: line != null, line: line, exitStatus: channel.exitStatus]
+                        }
+                        if (System.currentTimeMillis() > deadline) {
+                            if (terminate)
+                                channel.sendSignal('TERM')
+                            return [matched: false, line: null, exitStatus: null]
+                        }
+                    }
+                } finally {
+                    channel.disconnect()
+                }
+            }
+            result.durationMillis = System.currentTimeMillis() - started
+            if (result.exitStatus != null)
+                event.exitStatus = result.exitStatus as int
+            event.finish(hostKey)
+            if (!result.matched && failOnError) {
+                throw new IllegalStateException(Common.prefix + (result.exitStatus == null ?
+                        "Timed out after ${timeoutSec}s waiting for output matching $waitFor" :
+                        "Command exited with status $result.exitStatus before output matched $waitFor"))
+            }
+            result
+        } finally {
+            cleanupLogHandler()
+        }
+    }
+
+    /**
+     * Wraps a command so that it runs detached from the session, with stdout and stderr in
+     * ssh-steps.XXXXXX/output under TMPDIR, while the wrapper follows that file and exits with
+     * the command's status once it is done. Closing the channel only ends the wrapper. The
+     * directory outlives the channel while the command runs; the wrapper and the detached runner
+     * both finish with mkdir of finished in it, and whichever of them comes second removes it.
+     *
+     * @param command shell command.
+     * @return wrapper script.
+     */
+    private static String leaveRunning(String command) {
+        """\
+            D=\$(mktemp -d "\${TMPDIR:-/tmp}/ssh-steps.XXXXXX") || exit 1
+            finish() { mkdir "\$D/finished" 2> /dev/null || rm -rf "\$D"; }
+            printf '%s\\n' ${quote(command)} > "\$D/command.sh"
+            cat > "\$D/run.sh" <<'SSH_STEPS_RUN'
+            D=\$(dirname "\$0")
+            sh "\$D/command.sh" >> "\$D/output" 2>&1 < /dev/null
+            echo \$? > "\$D/exit.tmp"
+            mv "\$D/exit.tmp" "\$D/exit"
+            mkdir "\$D/finished" 2> /dev/null || rm -rf "\$D"
+            SSH_STEPS_RUN
+            : > "\$D/output"
+            if command -v setsid > /dev/null 2>&1; then
+              setsid nohup sh "\$D/run.sh" > /dev/null 2>&1 < /dev/null &
+            else
+              nohup sh "\$D/run.sh" > /dev/null 2>&1 < /dev/null &
+            fi
+            tail -n +1 -f "\$D/output" &
+            T=\$!
+            trap 'kill \$T 2> /dev/null; finish; exit 143' HUP INT TERM PIPE
+            while [ ! -e "\$D/exit" ]; do sleep 1; done
+            # Let tail catch up with the last lines.
+            sleep 1
+            kill \$T
+            S=\$(cat "\$D/exit")
+            trap - HUP INT TERM PIPE
+            finish
+            exit \$S
+            """.stripIndent()
+    }
+
+    /**
+     * Starts a command detached from the session under a supervisor, which records its pid,
+     * output and exit status in the given job directory on the remote node. Nothing is started
+     * when the job directory already has a job (e.g. started again after a controller restart).
+     *
+     * @param command shell command.
+     * @param dir job directory, relative to the home directory unless absolute.
+     * @return true once started, false on a dry run.
+     */
+    def startJob(String command, String dir) {
+        try {
+            registerLogHandler("Starting detached command on $remote.name[$remote.host]: $command job: $dir")
+            defineRemote(false)
+            if (dryRunFlag)
+                return false
+            def script = """\
+                D=${quote(dir)}
+                mkdir -p "\$D" || exit 1
+                [ -e "\$D/pid" ] || [ -e "\$D/exit" ] && exit 0
+                # Atomic, only one launch per job directory.
+                mkdir "\$D/launched" 2> /dev/null || exit 0
+                printf '%s\\n' ${quote(command)} > "\$D/command.sh"
+                cat > "\$D/run.sh" <<'SSH_STEPS_RUN'
+                D=\$(dirname "\$0")
+                sh "\$D/command.sh" > "\$D/output" 2>&1 < /dev/null
+                echo \$? > "\$D/exit.tmp"
+                mv "\$D/exit.tmp" "\$D/exit"
+                SSH_STEPS_RUN
+                if command -v setsid > /dev/null 2>&1; then
+                  setsid nohup sh "\$D/run.sh" > /dev/null 2>&1 < /dev/null &
+                else
+                  nohup sh "\$D/run.sh" > /dev/null 2>&1 < /dev/null &
+                fi
+                echo \$! > "\$D/pid"
+                """.stripIndent()
+            runSession {
+                execute script, ignoreError: false
+            }
+            true
+        } finally {
+            cleanupLogHandler()
+        }
+    }
+
+    /**
+     * Checks a detached command and prints the output it wrote since the given offset.
+     *
+     * @param dir job directory given to {@link #startJob}.
+     * @param offset bytes of output printed so far.
+     * @param maxBytes most bytes of output to fetch at once.
+     * @return exitStatus (null while running), offset (after the fetched output) and more (true
+     *         when there is more output to fetch).
+     */
+    def pollJob(String dir, long offset, int maxBytes) {
+        try {
+            registerLogHandler(null)
+            defineRemote(false)
+            def status = new ByteArrayOutputStream()
+            def output = new ByteArrayOutputStream()
+            runSession {
+                // Exit status first, the output is complete once it exists.
+                execute "cat ${quote(dir + '/exit')} 2> /dev/null || true", outputStream: status
+                execute "tail -c +${offset + 1} ${quote(dir + '/output')} 2> /dev/null | head -c $maxBytes",
+                        outputStream: output
+            }
+            if (output.size() > 0)
+                logger.print(output.toString(remote.encoding ?: 'UTF-8'))
+            def exit = status.toString('UTF-8').trim()
+            [exitStatus: exit ? exit as Integer : null, offset: offset + output.size(), more: output.size() >= maxBytes]
+        } finally {
+            cleanupLogHandler()
+        }
+    }
+
+    /**
+     * Stops a detached command (TERM to its process group) and removes its job directory.
+     *
+     * @param dir job directory given to {@link #startJob}.
+     * @param kill send TERM first, false to only remove the directory of a finished job.
+     */
+    def removeJob(String dir, boolean kill) {
+        try {
+            registerLogHandler(null)
+            defineRemote(false)
+            def d = quote(dir)
+            runSession {
+                if (kill)
+                    execute "P=\$(cat $d/pid 2> /dev/null) && { kill -TERM -\"\$P\" 2> /dev/null || kill -TERM \"\$P\"; } || true"
+                execute "rm -rf $d"
+            }
+        } finally {
+            cleanupLogHandler()
+        }
+    }
+
+    /**
+     * First step of a cancel: sends TERM to the commands this service runs and closes its file
+     * transfers. Commands ignoring TERM (or servers not supporting signals, before OpenSSH 7.9)
+     * are left to {@link #abort()}.
+     *
+     * @return number of commands signalled.
+     */
+    int terminate() {
+        def signalled = 0
+        channels.each { Channel channel ->
+            if (channel.closed)
+                return
+            if (channel instanceof ChannelSftp) {
+                channel.disconnect()
+                return
+            }
+            try {
+                channel.sendSignal('TERM')
+                signalled++
+            } catch (Exception e) {
+                log.debug("Failed to signal channel", e)
+            }
+        }
+        signalled
+    }
+
+    /**
+     * Closes all channels of this service, operations waiting on them fail right away.
+     */
+    void abort() {
+        channels.each { Channel channel -> channel.disconnect() }
+    }
+
+    /**
+     * Quotes the given value for a POSIX shell.
+     */
+    private static String quote(String value) {
+        "'" + value.replace("'", "'\\''") + "'"
+    }
+
+    /**
+     * Executes given commands in order, in one session.
+     *
+     * @param commands shell commands.
+     * @param sudo execute them as sudo when true.
+     * @param stopOnError skip the remaining commands after the first failure when true.
+     * @return list of results (command, exitStatus, durationMillis and output) for the commands run.
+     */
+    def executeCommands(List<String> commands, boolean sudo, boolean stopOnError) {
+        try {
+            registerLogHandler("Executing ${commands.size()} command(s) on $remote.name[$remote.host] sudo: $sudo")
+            defineRemote()
+            // Resolved here, within the session closure remote refers to hidetake's remote.
+            def out = logger
+            def target = "$remote.name[$remote.host]"
+            def charset = remote.encoding ?: 'UTF-8'
+            def hostKey = hostAndPort()
+            def results = []
+            BadExitStatusException failure = null
+            runSession {
+                for (String command : commands) {
+                    out.println("Executing command on $target: $command")
+                    def output = new ByteArrayOutputStream()
+                    def exitStatus = 0
+                    def started = System.currentTimeMillis()
+                    def event = new SSHEvents.Command('sshCommands')
+                    try {
+                        if (sudo)
+                            executeSudo command, ignoreError: false, outputStream: output
+                        else
+                            execute command, ignoreError: false, outputStream: output
+                    } catch (BadExitStatusException e) {
+                        exitStatus = e.exitStatus
+                        failure = failure ?: e
+                    }
+                    event.exitStatus = exitStatus
+                    event.finish(hostKey)
+                    results << [command       : command,
+                                exitStatus    : exitStatus,
+                                durationMillis: System.currentTimeMillis() - started,
+                                output        : output.toString(charset).trim()]
+                    if (exitStatus != 0 && stopOnError)
+                        break
+                }
+            }
+            if (failure && failOnError)
+                throw failure
+            results
         } finally {
             cleanupLogHandler()
         }
@@ -246,11 +926,9 @@ class SSHService implements Serializable {
     def executeScriptFromFile(String pathname) {
         try {
             registerLogHandler("Executing script on $remote.name[$remote.host]: $pathname")
-            defineRemote(remote)
-            ssh.run {
-                session(ssh.remotes."$remote.name") {
-                    executeScript new File(pathname)
-                }
+            defineRemote()
+            runCommand('sshScript') {
+                executeScript new File(pathname)
             }
         } finally {
             cleanupLogHandler()
@@ -264,26 +942,233 @@ class SSHService implements Serializable {
      * @param into location to put file from.
      * @param filterBy put files by a file filter.
      * @param filterRegex filter regex.
-     * @return response from ssh run.
+     * @return transfer statistics: bytes, files, durationMillis and mbPerSec.
      */
     def put(String from, String into, String filterBy, String filterRegex) {
         try {
             registerLogHandler("Sending a file/directory to $remote.name[$remote.host]: from: $from into: $into")
             // Disable interaction for file transfers to prevent file contents from being printed
-            defineRemote(remote, false)
-            ssh.run {
-                session(ssh.remotes."$remote.name") {
-                    if (filterBy && filterRegex)
-                        put from: from, into: into, filter: { it."$filterBy" =~ filterRegex }
-                    else
-                        put from: from, into: into
+            defineRemote(false)
+            def filter = filterBy && filterRegex ? { it."$filterBy" =~ filterRegex } : null
+            def label = "sshPut $remote.name[$remote.host]" as String
+            def progress = new TransferProgress(label, hostAndPort(), true)
+            def source = new File(from)
+            def sources = []
+            if (source.isDirectory()) {
+                source.eachFileRecurse {
+                    def relative = source.toPath().relativize(it.toPath()).toString().replace(File.separator, '/')
+                    if (it.isDirectory())
+                        sources << [file: it, relative: relative, directory: true]
+                    else if (!filter || filter(it))
+                        sources << [file: it, relative: relative]
+                }
+            } else {
+                sources << [file: source, relative: null]
+            }
+            def files = sources.findAll { !it.directory }
+            progress.setTotals(files.sum(0L) { it.file.length() } as long, files.size())
+            Map stats
+            progress.start(logger, progressIntervalMillis())
+            try {
+                putSources(source, sources, into, filter, { new FileInputStream(it.file) }, progress)
+            } finally {
+                stats = progress.finish()
+            }
+            logTransferStats(label, stats)
+            stats
+        } finally {
+            cleanupLogHandler()
+        }
+    }
+
+    /**
+     * Puts the given content into a file on the remote node, without a local file.
+     *
+     * @param content bytes of the file.
+     * @param into remote file path.
+     * @return transfer statistics: bytes, files, durationMillis and mbPerSec.
+     */
+    def put(byte[] content, String into) {
+        try {
+            registerLogHandler("Sending ${content.length} bytes to $remote.name[$remote.host]: into: $into")
+            defineRemote(false)
+            def label = "sshPut $remote.name[$remote.host]" as String
+            def progress = new TransferProgress(label, hostAndPort(), true)
+            progress.setTotals(content.length, 1)
+            def out = logger
+            Map stats = null
+            runSession(transferThrottle()) {
+                progress.start(out, 0)
+                try {
+                    put from: progress.count(new ByteArrayInputStream(content)), into: into
+                } finally {
+                    stats = progress.finish()
                 }
             }
+            stats
         } finally {
             cleanupLogHandler()
         }
     }
 
+    /**
+     * Puts a file/directory on this and the given remote nodes at the same time. Each local file
+     * is mapped into memory once and every destination uploads from its own view of it, so the
+     * file is read once and a slow destination does not hold back the others.
+     *
+     * @param from location to put file from.
+     * @param into location to put file into.
+     * @param filterBy put files by a file filter.
+     * @param filterRegex filter regex.
+     * @param others remote nodes to put the file on besides this one.
+     * @return transfer statistics over all destinations: bytes, files, durationMillis, mbPerSec
+     *         and destinations (name to true if successful).
+     */
+    def put(String from, String into, String filterBy, String filterRegex, List<SSHService> others) {
+        def destinations = [this] + others
+        try {
+            registerLogHandler("Sending a file/directory to " +
+                    "${destinations.collect { "$it.remote.name[$it.remote.host]" }.join(', ')}: from: $from into: $into")
+            defineRemote(false)
+            def source = new File(from)
+            def sources = []
+            def filter = filterBy && filterRegex ? { it."$filterBy" =~ filterRegex } : null
+            if (source.isDirectory()) {
+                source.eachFileRecurse(FileType.FILES) {
+                    if (!filter || filter(it))
+                        sources << [file: it, relative: source.toPath().relativize(it.toPath()).toString().replace(File.separator, '/')]
+                }
+            } else {
+                sources << [file: source, relative: null]
+            }
+            if (dryRunFlag) {
+                return [files: sources.size(), bytes: 0L, destinations: destinations.collectEntries { [(it.remote.name): true] }]
+            }
+            def mapped = new ConcurrentHashMap<File, MappedFile>()
+            def label = "sshPut ${destinations.size()} remotes" as String
+            def progress = new TransferProgress(label, true)
+            progress.setTotals((sources.sum(0L) { it.file.length() } as long) * destinations.size(), sources.size())
+            def errors = new ConcurrentHashMap<Integer, String>()
+            def context = MDC.copyOfContextMap
+            def executor = Executors.newFixedThreadPool(destinations.size())
+            Map stats
+            progress.start(logger, progressIntervalMillis())
+            try {
+                def futures = (0..<destinations.size()).collect { i ->
+                    executor.submit({
+                        if (context)
+                            MDC.setContextMap(context)
+                        try {
+                            destinations[i].putSources(source, sources, into, filter,
+                                    { mapped.computeIfAbsent(it.file) { MappedFile.map(it) }.newInputStream() }, progress)
+                        } catch (Exception e) {
+                            errors[i] = e.message ?: e.class.name
+                        } finally {
+                            MDC.clear()
+                        }
+                    } as Callable)
+                }
+                futures.each { it.get() }
+            } finally {
+                executor.shutdownNow()
+                stats = progress.finish()
+            }
+            def results = new LinkedHashMap<String, Boolean>()
+            destinations.eachWithIndex { destination, i -> results[destination.remote.name] = !errors.containsKey(i) }
+            stats.destinations = results
+            logTransferStats(label, stats)
+            if (errors && failOnError) {
+                throw new IllegalStateException(Common.prefix + "Failed to put on " +
+                        errors.collect { i, message -> "${destinations[i].remote.name}: $message" }.join(', '))
+            }
+            stats
+        } finally {
+            cleanupLogHandler()
+        }
+    }
+
+    /**
+     * Whether puts and gets go through hidetake's scp (fileTransfer: 'scp') instead of the SFTP
+     * streams counted by {@link TransferProgress}. Scp has no stream to count, so its bytes are
+     * counted per file once sent or received.
+     */
+    private boolean isScp() {
+        (remote.fileTransfer as String) == 'scp'
+    }
+
+    /**
+     * Uploads the listed files (and directories) of a put over one SFTP channel, each file from
+     * the stream the given closure opens for it, counted by the given progress. With scp, the
+     * source is put by hidetake with the filter instead. Also the destination side of the
+     * multicast put.
+     */
+    private void putSources(File source, List<Map> sources, String into, Closure filter,
+                            Closure<InputStream> opener, TransferProgress progress) {
+        defineRemote(false)
+        if (scp) {
+            runSession(transferThrottle()) {
+                if (filter)
+                    put from: source, into: into, filter: filter
+                else
+                    put from: source, into: into
+            }
+            progress.add(sources.findAll { !it.directory }.sum(0L) { it.file.length() } as long)
+            return
+        }
+        def name = source.name
+        def directory = source.isDirectory()
+        runSession(transferThrottle()) {
+            sftp {
+                def base = into.replaceAll('/+$', '')
+                if (!directory) {
+                    def isDirectory = false
+                    try {
+                        isDirectory = stat(into).dir
+                    } catch (SftpException e) {
+                        log.debug("No directory $into", e)
+                    }
+                    base = isDirectory || into.endsWith('/') ? base + '/' + name : into
+                } else {
+                    base += '/' + name
+                }
+                def created = [] as Set
+                def createDirectory = { String path ->
+                    if (created.add(path)) {
+                        try {
+                            mkdir path
+                        } catch (SftpException e) {
+                            // Already exists.
+                            log.debug("Unable to create $path", e)
+                        }
+                    }
+                }
+                if (directory)
+                    createDirectory(base)
+                for (def entry : sources) {
+                    def target = entry.relative == null ? base : base + '/' + entry.relative
+                    if (entry.relative) {
+                        def segments = entry.relative.split('/')
+                        def path = base
+                        for (int i = 0; i < segments.length - 1; i++) {
+                            path += '/' + segments[i]
+                            createDirectory(path)
+                        }
+                    }
+                    if (entry.directory) {
+                        createDirectory(target)
+                        continue
+                    }
+                    def stream = opener(entry)
+                    try {
+                        putContent(progress.count(stream), target)
+                    } finally {
+                        stream.close()
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Gets a file from remote node.
      *
@@ -291,26 +1176,223 @@ class SSHService implements Serializable {
      * @param into location to get file into.
      * @param filterBy get files by a file filter.
      * @param filterRegex filter regex.
-     * @return response from ssh run.
+     * @return transfer statistics: bytes, files, durationMillis and mbPerSec.
      */
     def get(String from, String into, String filterBy, String filterRegex) {
         try {
             registerLogHandler("Receiving a file/directory from $remote.name[$remote.host]: from: $from into: $into")
             // Disable interaction for file transfers to prevent file contents from being printed
-            defineRemote(remote, false)
-            ssh.run {
-                session(ssh.remotes."$remote.name") {
-                    if (filterBy && filterRegex)
-                        get from: from, into: into, filter: { it."$filterBy" =~ filterRegex }
-                    else
-                        get from: from, into: into
+            defineRemote(false)
+            def filter = filterBy && filterRegex ? { it."$filterBy" =~ filterRegex } : null
+            def label = "sshGet $remote.name[$remote.host]" as String
+            def progress = new TransferProgress(label, hostAndPort(), false)
+            def out = logger
+            def interval = progressIntervalMillis()
+            Map stats = null
+            if (scp) {
+                runSession(transferThrottle()) {
+                    progress.start(out, interval)
+                    try {
+                        // hidetake's receivers call the filter for every file they are about to
+                        // write, so the previous one is complete by then.
+                        File previous = null
+                        long files = 0
+                        def counting = { File file ->
+                            boolean accepted = !filter || filter(file)
+                            if (accepted) {
+                                if (previous)
+                                    progress.add(previous.length())
+                                previous = file
+                                files++
+                            }
+                            accepted
+                        }
+                        get from: from, into: into, filter: counting
+                        if (previous)
+                            progress.add(previous.length())
+                        progress.setTotals(-1, files)
+                    } finally {
+                        stats = progress.finish()
+                    }
+                }
+                logTransferStats(label, stats)
+                return stats
+            }
+            runSession(transferThrottle()) {
+                // Same layout as hidetake's get, the filter applies to the local files.
+                def directories = []
+                def files = []
+                sftp {
+                    def local = new File(into)
+                    def scan
+                    scan = { String path, File target, attrs ->
+                        if (attrs.dir) {
+                            directories << target
+                            ls(path).findAll { !(it.filename in ['.', '..']) }.sort { it.filename }.each {
+                                scan("$path/$it.filename" as String, new File(target, it.filename as String), it.attrs)
+                            }
+                        } else if (!filter || filter(target)) {
+                            files << [path: path, target: target, size: attrs.size]
+                        }
+                    }
+                    def attrs = stat(from)
+                    def name = from.replaceAll('/+$', '')
+                    name = name.substring(name.lastIndexOf('/') + 1)
+                    if (attrs.dir) {
+                        if (!local.directory)
+                            throw new IllegalArgumentException(Common.prefix + "into must be an existing directory to get $from: $into")
+                        scan(from, new File(local, name), attrs)
+                    } else {
+                        files << [path: from, target: local.directory ? new File(local, name) : local, size: attrs.size]
+                    }
+                }
+                progress.setTotals(files.sum(0L) { it.size } as long, files.size())
+                progress.start(out, interval)
+                try {
+                    directories.each { it.mkdirs() }
+                    if (files) {
+                        sftp {
+                            for (def entry : files) {
+                                entry.target.withOutputStream { getContent(entry.path, progress.count(it)) }
+                            }
+                        }
+                    }
+                } finally {
+                    stats = progress.finish()
                 }
             }
+            logTransferStats(label, stats)
+            stats
         } finally {
             cleanupLogHandler()
         }
     }
 
+    /**
+     * Gets a file/directory from this and the given remote nodes straight into an archive on the
+     * agent, written in one sequential pass without staging the files on disk. Entries are
+     * prefixed with the name of the remote they came from.
+     *
+     * @param from location to get file from.
+     * @param archive archive file on the agent (.zip, .tar, .tar.gz or .tgz).
+     * @param filterBy get files by name or path.
+     * @param filterRegex filter regex.
+     * @param others remote nodes to get the file from besides this one.
+     * @return transfer statistics: bytes, files, durationMillis, mbPerSec and remotes (name to
+     *         true if successful).
+     */
+    def getArchive(String from, String archive, String filterBy, String filterRegex, List<SSHService> others) {
+        def sources = [this] + others
+        try {
+            registerLogHandler("Receiving a file/directory from " +
+                    "${sources.collect { "$it.remote.name[$it.remote.host]" }.join(', ')}: from: $from into archive: $archive")
+            defineRemote(false)
+            if (dryRunFlag) {
+                return [bytes: 0L, files: 0L, durationMillis: 0L, mbPerSec: 0d, remotes: sources.collectEntries { [(it.remote.name): true] }]
+            }
+            def filter = filterBy && filterRegex ? { it."$filterBy" =~ filterRegex } : null
+            def results = new LinkedHashMap<String, Boolean>()
+            def errors = [:]
+            long bytes = 0
+            long files = 0
+            long started = System.nanoTime()
+            def writer = ArchiveWriter.create(new File(archive))
+            try {
+                sources.each { source ->
+                    try {
+                        def stats = source.archiveInto(writer, from, filter, progressIntervalMillis())
+                        bytes += stats.bytes as long
+                        files += stats.files as long
+                        results[source.remote.name] = true
+                    } catch (Exception e) {
+                        if (sources.size() == 1)
+                            throw e
+                        errors[source.remote.name] = e.message ?: e.class.name
+                        results[source.remote.name] = false
+                    }
+                }
+            } finally {
+                writer.close()
+            }
+            if (errors && failOnError) {
+                throw new IllegalStateException(Common.prefix + "Failed to get from " +
+                        errors.collect { name, message -> "$name: $message" }.join(', '))
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)
+            def stats = [bytes: bytes, files: files, durationMillis: millis,
+                         mbPerSec: millis > 0 ? Math.round(bytes / 1048576d / (millis / 1000d) * 10) / 10d : 0d,
+                         remotes: results]
+            if (sources.size() > 1)
+                logTransferStats("sshGet ${sources.size()} remotes" as String, stats)
+            stats
+        } finally {
+            cleanupLogHandler()
+        }
+    }
+
+    /**
+     * Source side of {@link #getArchive}, lists the tree over SFTP and streams each file into its
+     * archive entry.
+     */
+    private Map archiveInto(ArchiveWriter writer, String from, Closure filter, long interval) {
+        defineRemote(false)
+        def label = "sshGet $remote.name[$remote.host]" as String
+        def progress = new TransferProgress(label, hostAndPort(), false)
+        def prefix = remote.name as String
+        def out = logger
+        Map stats = null
+        runSession(transferThrottle()) {
+            def entries = []
+            sftp {
+                // Whether anything was added, directories left empty by the filter are dropped.
+                def scan
+                scan = { String path, String name, attrs ->
+                    if (attrs.dir) {
+                        entries << [path: path, name: name, directory: true, modified: attrs.getMTime() * 1000L]
+                        def kept = !filter
+                        ls(path).findAll { !(it.filename in ['.', '..']) }.sort { it.filename }.each {
+                            if (scan("$path/$it.filename" as String, "$name/$it.filename" as String, it.attrs))
+                                kept = true
+                        }
+                        if (!kept)
+                            entries.remove(entries.size() - 1)
+                        return kept
+                    }
+                    // The filter sees the remote file, not the entry name with its prefix.
+                    if (filter && !filter([name: path.substring(path.lastIndexOf('/') + 1), path: path]))
+                        return false
+                    entries << [path: path, name: name, directory: false, size: attrs.size, modified: attrs.getMTime() * 1000L]
+                    true
+                }
+                def base = from.replaceAll('/+$', '')
+                scan(from, prefix + '/' + base.substring(base.lastIndexOf('/') + 1), stat(from))
+            }
+            def files = entries.findAll { !it.directory }
+            progress.setTotals(files.sum(0L) { it.size } as long, files.size())
+            progress.start(out, interval)
+            try {
+                sftp {
+                    for (def entry : entries) {
+                        if (entry.directory) {
+                            writer.addDirectory(entry.name, entry.modified)
+                            continue
+                        }
+                        def content = writer.addFile(entry.name, entry.size, entry.modified)
+                        try {
+                            getContent(entry.path, progress.count(content))
+                        } finally {
+                            content.close()
+                        }
+                    }
+                }
+            } finally {
+                stats = progress.finish()
+            }
+        }
+        logTransferStats(label, stats)
+        stats
+    }
+
     /**
      * Removes a file from remote node.
      *
@@ -320,14 +1402,507 @@ class SSHService implements Serializable {
     def remove(String path) {
         try {
             registerLogHandler("Removing a file/directory on $remote.name[$remote.host]: $path")
-            defineRemote(remote)
-            ssh.run {
-                session(ssh.remotes."$remote.name") {
-                    remove path
+            defineRemote()
+            runSession {
+                remove path
+            }
+        } finally {
+            cleanupLogHandler()
+        }
+    }
+
+    /**
+     * Removes files/directories from remote node in one session. Glob patterns (*, ? and [...]
+     * in the last path segment) are expanded on the remote node.
+     *
+     * @param paths files/directories or glob patterns.
+     * @param allowEmpty when true a pattern matching nothing is only reported as not removed,
+     *        otherwise it is an error as well.
+     * @return map of each path to true when it was removed.
+     */
+    def remove(List<String> paths, boolean allowEmpty) {
+        try {
+            registerLogHandler("Removing files/directories on $remote.name[$remote.host]: ${paths.join(', ')}")
+            defineRemote()
+            int parallelism = channelBudget(REMOVE_PARALLELISM)
+            runSession(null, parallelism) {
+                def targets = new LinkedHashSet<String>()
+                def unmatched = []
+                paths.each { path ->
+                    if (!Common.isGlob(path)) {
+                        targets << path
+                        return
+                    }
+                    def parent = path.contains('/') ? path.substring(0, path.lastIndexOf('/') + 1) : ''
+                    def matches = []
+                    try {
+                        matches = (sftp { ls(path) } ?: [])
+                                .findAll { !(it.filename in ['.', '..']) }
+                                .collect { parent + it.filename }
+                    } catch (SftpException e) {
+                        log.debug("No match for $path", e)
+                    }
+                    if (matches)
+                        targets.addAll(matches)
+                    else
+                        unmatched << path
+                }
+
+                // Each removal runs on its own SFTP channel of this session.
+                def context = MDC.copyOfContextMap
+                def executor = Executors.newFixedThreadPool(Math.max(1, Math.min(targets.size(), parallelism)))
+                try {
+                    def futures = targets.collectEntries { target ->
+                        [(target): executor.submit({
+                            if (context)
+                                MDC.setContextMap(context)
+                            try {
+                                remove(target)
+                            } finally {
+                                MDC.clear()
+                            }
+                        } as Callable)]
+                    }
+                    def results = new LinkedHashMap<String, Boolean>()
+                    unmatched.each { results[it] = false }
+                    def errors = allowEmpty ? [] : unmatched.collect { "$it: no match" }
+                    futures.each { target, future ->
+                        try {
+                            results[target] = future.get() as boolean
+                        } catch (ExecutionException e) {
+                            results[target] = false
+                            errors << "$target: ${e.cause?.message}"
+                        }
+                    }
+                    if (errors && failOnError) {
+                        throw new IllegalStateException(Common.prefix + "Failed to remove ${errors.join(', ')}")
+                    }
+                    results
+                } finally {
+                    executor.shutdownNow()
+                }
+            }
+        } finally {
+            cleanupLogHandler()
+        }
+    }
+
+    /**
+     * Size, modification time and optionally a checksum of files on the remote node, computed
+     * there so no content is transferred. Everything runs in one session: glob patterns (*, ? and
+     * [...] in the last path segment) are expanded and files stat'ed over SFTP, checksums are
+     * computed by the checksum tool of the remote node on parallel channels, each for a share of
+     * the files.
+     *
+     * @param paths files/directories or glob patterns.
+     * @param algorithm sha256, sha1, md5 or xxh64, null for no checksum.
+     * @param parallelism most checksum commands running at once.
+     * @return map of each file to its size, mtime (epoch millis), directory and checksum (keyed by
+     *         algorithm, not for directories); null for paths that do not exist.
+     */
+    def stat(List<String> paths, String algorithm, int parallelism) {
+        try {
+            registerLogHandler("Checking ${paths.size()} path(s) on $remote.name[$remote.host]" +
+                    (algorithm ? " algorithm: $algorithm" : ''))
+            defineRemote(false)
+            if (dryRunFlag)
+                return [:]
+            int channelCount = algorithm ? channelBudget(parallelism) : 1
+            runSession(null, channelCount) {
+                def results = new LinkedHashMap<String, Map>()
+                paths.each { path ->
+                    if (!Common.isGlob(path)) {
+                        try {
+                            def attrs = sftp { stat(path) }
+                            results[path] = [size: attrs.size, mtime: attrs.MTime * 1000L, directory: attrs.dir]
+                        } catch (SftpException e) {
+                            log.debug("Failed to stat $path", e)
+                            results[path] = null
+                        }
+                        return
+                    }
+                    def parent = path.contains('/') ? path.substring(0, path.lastIndexOf('/') + 1) : ''
+                    def matches = []
+                    try {
+                        matches = (sftp { ls(path) } ?: []).findAll { !(it.filename in ['.', '..']) }
+                    } catch (SftpException e) {
+                        log.debug("No match for $path", e)
+                    }
+                    if (!matches)
+                        results[path] = null
+                    matches.each { ChannelSftp.LsEntry entry ->
+                        results[parent + entry.filename] = [size     : entry.attrs.size,
+                                                            mtime    : entry.attrs.MTime * 1000L,
+                                                            directory: entry.attrs.dir]
+                    }
+                }
+                def missing = results.findAll { it.value == null }.keySet()
+                if (missing && failOnError)
+                    throw new IllegalStateException(Common.prefix + "No such file(s) on $remote.name: ${missing.join(', ')}")
+
+                def files = results.findAll { it.value != null && !it.value.directory }.keySet().toList()
+                if (algorithm && files) {
+                    def command = CHECKSUM_COMMANDS[algorithm]
+                    int threads = Math.max(1, Math.min(channelCount, files.size()))
+                    def shares = files.collate(Math.min((int) Math.ceil(files.size() / (double) threads), CHECKSUM_MAX_FILES))
+                    def context = MDC.copyOfContextMap
+                    def executor = Executors.newFixedThreadPool(threads)
+                    try {
+                        def futures = shares.collect { share ->
+                            executor.submit({
+                                if (context)
+                                    MDC.setContextMap(context)
+                                try {
+                                    execute("$command -- ${share.collect { quote(it) }.join(' ')}", ignoreError: false)
+                                } finally {
+                                    MDC.clear()
+                                }
+                            } as Callable)
+                        }
+                        futures.each { future ->
+                            def output
+                            try {
+                                output = future.get() as String
+                            } catch (ExecutionException e) {
+                                throw new IllegalStateException(Common.prefix +
+                                        "Failed to compute $algorithm checksums with $command: ${e.cause?.message}", e.cause)
+                            }
+                            Common.parseChecksums(output).each { file, checksum ->
+                                results[file]?.put(algorithm, checksum)
+                            }
+                        }
+                    } finally {
+                        executor.shutdownNow()
+                    }
+                }
+                results
+            }
+        } finally {
+            cleanupLogHandler()
+        }
+    }
+
+    /**
+     * Prints what was appended to a remote file since the given offset, over one SFTP channel.
+     * When following, the file is polled until a line matches until, the timeout elapses or the
+     * step is cancelled; a truncated or rotated file is read again from the start. Lines go
+     * through the log handler of the step, so logRateLimitLinesPerSec applies.
+     *
+     * @param path file on the remote node.
+     * @param offset bytes already read (e.g. offset of a previous tail), 0 for the whole file.
+     * @param follow keep polling for appended lines.
+     * @param until regex to find in a line, stops following on match, null for none.
+     * @param timeoutSec time to follow, 0 for no limit.
+     * @return offset (to continue from), matched, line (the matching one) and truncations.
+     */
+    def tail(String path, long offset, boolean follow, String until, int timeoutSec) {
+        try {
+            registerLogHandler("Tailing $path on $remote.name[$remote.host] from offset $offset" +
+                    (follow ? " follow: true" : '') + (until ? " until: $until" : ''))
+            defineRemote(false)
+            if (dryRunFlag)
+                return [offset: offset, matched: false, line: null, truncations: 0]
+            def handler = currentHandler
+            def prefix = remote.appendName ? "$remote.name|" : ''
+            def print = { String line -> handler.publish(new LogRecord(Level.INFO, "$prefix$line")) } as Consumer<String>
+            def deadline = timeoutSec > 0 ? System.currentTimeMillis() + timeoutSec * 1000L : Long.MAX_VALUE
+            FileTail tail = withConnection { SSHConnection connection ->
+                def sftp = connection.openChannel('sftp', channels) as ChannelSftp
+                sftp.connect(((remote.timeoutSec ?: 0) as int) * 1000)
+                try {
+                    def source = new FileTail.Source() {
+                        @Override
+                        FileTail.Stat stat() throws IOException {
+                            try {
+                                def attrs = sftp.stat(path)
+                                new FileTail.Stat(attrs.size, attrs.getMTime())
+                            } catch (com.jcraft.jsch.SftpException e) {
+                                if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE)
+                                    return null
+                                throw new IOException(e.message, e)
+                            }
+                        }
+
+                        @Override
+                        InputStream open(long from) throws IOException {
+                            try {
+                                sftp.get(path, null, from)
+                            } catch (com.jcraft.jsch.SftpException e) {
+                                throw new IOException(e.message, e)
+                            }
+                        }
+                    }
+                    def result = new FileTail(source, offset, until ? Pattern.compile(until) : null,
+                            remote.encoding ?: 'UTF-8', print)
+                    long wait = POLL_MILLIS
+                    while (true) {
+                        int truncations = result.truncations
+                        boolean more = result.poll()
+                        if (result.truncations > truncations)
+                            logger.println(Common.prefix + "$path was truncated or rotated, reading from the start")
+                        handler.flush()
+                        if (!follow && result.missing)
+                            throw new FileNotFoundException(Common.prefix + "$path does not exist on $remote.name")
+                        if (result.matched || (!follow && !more) || System.currentTimeMillis() > deadline)
+                            break
+                        if (sftp.closed)
+                            throw new InterruptedIOException(Common.prefix + "Tailing $path was cancelled")
+                        if (more) {
+                            wait = POLL_MILLIS
+                            continue
+                        }
+                        Thread.sleep(wait)
+                        // Back off while the file is idle.
+                        wait = Math.min(wait * 2, TAIL_MAX_POLL_MILLIS)
+                    }
+                    result.finish()
+                    result
+                } finally {
+                    sftp.disconnect()
+                }
+            } as FileTail
+            if (until && !tail.matched && failOnError)
+                throw new IllegalStateException(Common.prefix + (follow ?
+                        "Timed out after ${timeoutSec}s waiting for a line of $path matching $until" :
+                        "No line of $path matches $until"))
+            [offset: tail.offset, matched: tail.matched, line: tail.matchedLine, truncations: tail.truncations]
+        } finally {
+            cleanupLogHandler()
+        }
+    }
+
+    /**
+     * Opens a dedicated connection to the remote (through its gateways and proxy) forwarding a
+     * local port on this node to the given host and port reachable from the remote, like ssh -L.
+     * The connection is not shared, it stays open until closed by the caller.
+     *
+     * @param bindAddress local address to listen on.
+     * @param localPort local port, 0 for any free port.
+     * @param remoteHost host to forward to, as seen from the remote.
+     * @param remotePort port to forward to.
+     * @return map with connection (null on a dry run) and the localPort listened on.
+     */
+    def openTunnel(String bindAddress, int localPort, String remoteHost, int remotePort) {
+        try {
+            registerLogHandler("Opening tunnel $bindAddress:$localPort -> $remoteHost:$remotePort " +
+                    "via $remote.name[$remote.host]")
+            def target = defineRemote(false)
+            if (dryRunFlag)
+                return [connection: null, localPort: localPort]
+            def connection = openConnection(target)
+            try {
+                int port = connection.session.setPortForwardingL(bindAddress, localPort, remoteHost, remotePort)
+                [connection: connection, localPort: port]
+            } catch (Throwable e) {
+                connection.close()
+                throw e
+            }
+        } finally {
+            cleanupLogHandler()
+        }
+    }
+
+    /**
+     * Measures upload throughput of each cipher against the remote (over SFTP into /dev/null) and
+     * caches the fastest one for the host on this agent, it is then preferred by the throughput
+     * performanceProfile.
+     *
+     * @param sizeMb megabytes uploaded per cipher.
+     * @param ciphers ciphers to measure, defaults to all ciphers JSch offers.
+     * @return map with host, the fastest cipher and the MB/s per cipher (null when not supported).
+     */
+    def calibrate(int sizeMb, List<String> ciphers) {
+        try {
+            registerLogHandler("Calibrating ciphers for $remote.name[$remote.host] with $sizeMb MB")
+            defineRemote(false)
+            def hostKey = hostAndPort()
+            def candidates = ciphers ?: JSch.getConfig('cipher.c2s').split(',').toList()
+            def results = new LinkedHashMap<String, Double>()
+            if (dryRunFlag) {
+                return [host: hostKey, cipher: null, results: results]
+            }
+            def target = ssh.remotes[settings.name]
+            def payload = new byte[sizeMb * 1024 * 1024]
+            new Random().nextBytes(payload)
+            candidates.each { cipher ->
+                def config = performanceConfig(remote)
+                config[remote.name] = PerformanceProfile.singleCipherConfig(cipher)
+                SSHConnection connection = null
+                try {
+                    connection = SSHConnection.open(ssh, target, config)
+                    def started = System.nanoTime()
+                    connection.run(ssh, target) {
+                        put bytes: payload, into: '/dev/null'
+                    }
+                    def seconds = (System.nanoTime() - started) / 1e9d
+                    results[cipher] = Math.round(sizeMb / Math.max(seconds, 1e-3d) * 10) / 10d
+                    logger.println(Common.prefix + "$cipher: ${results[cipher]} MB/s")
+                } catch (JSchException e) {
+                    results[cipher] = null
+                    logger.println(Common.prefix + "$cipher: not supported (${e.message})")
+                } finally {
+                    connection?.close()
                 }
             }
+            def fastest = results.findAll { it.value != null }.max { it.value }?.key
+            if (fastest) {
+                CipherCalibration.put(hostKey, fastest)
+                logger.println(Common.prefix + "fastest cipher for $hostKey is $fastest")
+            } else if (failOnError) {
+                throw new IllegalStateException(Common.prefix + "none of the ciphers ${candidates.join(', ')} could be used with $hostKey")
+            }
+            [host: hostKey, cipher: fastest, results: results]
         } finally {
             cleanupLogHandler()
         }
     }
+
+    /**
+     * Copies a file or directory from this remote to the given destinations without touching the
+     * local disk. Each file is read once and streamed to all destinations through bounded buffers,
+     * so the slowest destination sets the pace. Destinations that fail are dropped, the others
+     * carry on.
+     *
+     * @param from file or directory on this remote.
+     * @param destinations services of the destination remotes.
+     * @param into destination path; the directory to copy into when it ends with / or from is a
+     *        directory.
+     * @return map with files, bytes and for each destination name whether the copy succeeded.
+     */
+    def copy(String from, List<SSHService> destinations, String into) {
+        try {
+            registerLogHandler("Copying a file/directory from $remote.name[$remote.host] to " +
+                    "${destinations.collect { it.remote.name }.join(', ')}: from: $from into: $into")
+            defineRemote(false)
+            if (dryRunFlag) {
+                return [files: 0, bytes: 0L, destinations: destinations.collectEntries { [(it.remote.name): true] }]
+            }
+            def queues = destinations.collect { new LinkedBlockingQueue<Map>() }
+            def errors = new ConcurrentHashMap<Integer, String>()
+            def context = MDC.copyOfContextMap
+            def executor = Executors.newFixedThreadPool(destinations.size())
+            def files = 0
+            def bytes = 0L
+            try {
+                def futures = (0..<destinations.size()).collect { i ->
+                    executor.submit({
+                        if (context)
+                            MDC.setContextMap(context)
+                        try {
+                            destinations[i].receive(queues[i])
+                        } catch (Exception e) {
+                            errors[i] = e.message ?: e.class.name
+                        } finally {
+                            MDC.clear()
+                        }
+                    } as Callable)
+                }
+                try {
+                    def name = from.replaceAll('/+$', '')
+                    name = name.substring(name.lastIndexOf('/') + 1)
+                    runSession {
+                        def sources = []
+                        sftp {
+                            def scan
+                            scan = { String path, String relative, attrs ->
+                                if (attrs.dir) {
+                                    sources << [path: path, relative: relative, directory: true]
+                                    ls(path).findAll { !(it.filename in ['.', '..']) }.sort { it.filename }.each {
+                                        scan("$path/$it.filename" as String, "$relative/$it.filename" as String, it.attrs)
+                                    }
+                                } else {
+                                    sources << [path: path, relative: relative, directory: false, size: attrs.size]
+                                }
+                            }
+                            scan(from, '', stat(from))
+                        }
+                        def base = sources[0].directory ? into.replaceAll('/+$', '') + '/' + name :
+                                (into.endsWith('/') ? into + name : into)
+                        for (def source : sources) {
+                            def active = (0..<destinations.size()).findAll { !errors.containsKey(it) }
+                            if (!active)
+                                break
+                            def target = base + source.relative
+                            if (source.directory) {
+                                active.each { queues[it].put([path: target, directory: true]) }
+                                continue
+                            }
+                            def pipes = active.collect { new BoundedPipe(COPY_BUFFER_CHUNKS) }
+                            active.eachWithIndex { destination, i -> queues[destination].put([path: target, pipe: pipes[i]]) }
+                            def fanOut = new FanOutOutputStream(pipes)
+                            try {
+                                get from: source.path, into: fanOut
+                            } catch (Exception e) {
+                                pipes.each { it.abort(e) }
+                                if (!fanOut.allFailed)
+                                    throw e
+                                // Every destination failed, reported per destination below.
+                                active.each { errors.putIfAbsent(it, e.message) }
+                                break
+                            }
+                            fanOut.close()
+                            files++
+                            bytes += source.size
+                        }
+                    }
+                } finally {
+                    queues.each { it.put([end: true]) }
+                    futures.eachWithIndex { future, i ->
+                        def timeoutSec = (destinations[i].remote.timeoutSec ?: DEFAULT_COPY_FINISH_SEC) as int
+                        try {
+                            future.get(timeoutSec, TimeUnit.SECONDS)
+                        } catch (TimeoutException ignored) {
+                            future.cancel(true)
+                            errors.putIfAbsent(i, "Timed out after ${timeoutSec}s finishing the copy")
+                        }
+                    }
+                }
+            } finally {
+                executor.shutdownNow()
+            }
+            def results = new LinkedHashMap<String, Boolean>()
+            destinations.eachWithIndex { destination, i -> results[destination.remote.name] = !errors.containsKey(i) }
+            if (errors && failOnError) {
+                throw new IllegalStateException(Common.prefix + "Failed to copy to " +
+                        errors.collect { i, message -> "${destinations[i].remote.name}: $message" }.join(', '))
+            }
+            [files: files, bytes: bytes, destinations: results]
+        } finally {
+            cleanupLogHandler()
+        }
+    }
+
+    /**
+     * Destination side of {@link #copy}, writes the directories and streamed files taken from
+     * the queue until the end marker. On failure the pipes still queued are aborted so the source
+     * never blocks on this destination.
+     */
+    private void receive(BlockingQueue<Map> entries) {
+        Map entry = null
+        try {
+            defineRemote(false)
+            runSession {
+                while (!(entry = entries.take()).end) {
+                    def current = entry
+                    if (current.directory) {
+                        try {
+                            sftp { mkdir current.path }
+                        } catch (SftpException e) {
+                            // Already exists.
+                            log.debug("Unable to create ${current.path}", e)
+                        }
+                    } else {
+                        put from: current.pipe.inputStream, into: current.path
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            entry?.pipe?.abort(e)
+            while (!entry?.end) {
+                entry = entries.take()
+                entry.pipe?.abort(e)
+            }
+            throw e
+        }
+    }
 }
@@ -3,6 +3,7 @@ package org.jenkinsci.plugins.sshsteps.util
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings
 import org.hidetake.groovy.ssh.core.ProxyType
 
+import java.security.MessageDigest
 import java.util.logging.Level
 
 /**
@@ -24,6 +25,85 @@ class Common {
         "SSH Steps: " as String
     }
 
+    /**
+     * Whether the last segment of the given remote path is a glob pattern.
+     *
+     * @param path remote path.
+     * @return true when it contains *, ? or [.
+     */
+    static boolean isGlob(String path) {
+        def name = path.substring(path.lastIndexOf('/') + 1)
+        name.contains('*') || name.contains('?') || name.contains('[')
+    }
+
+    /**
+     * Parses the output of sha256sum and alike, i.e. lines of checksum and file name.
+     *
+     * @param output output of the checksum tool.
+     * @return map of file name to checksum.
+     */
+    static Map<String, String> parseChecksums(String output) {
+        def checksums = new LinkedHashMap<String, String>()
+        output?.eachLine { String line ->
+            // Names with a line break or backslash are escaped, marked by a leading backslash.
+            def escaped = line.startsWith('\\')
+            def text = escaped ? line.substring(1) : line
+            def separator = text.indexOf(' ')
+            if (separator <= 0 || text.length() < separator + 2)
+                return
+            def name = text.substring(separator + 2)
+            if (escaped)
+                name = name.replaceAll(/\\(.)/) { String all, String c -> c == 'n' ? '\n' : c }
+            checksums[name] = text.substring(0, separator)
+        }
+        checksums
+    }
+
+    /**
+     * Key identifying connections to the given remote, i.e. everything that is used to establish
+     * the connection (including gateways and proxy). Hashed so secrets are not kept around as keys.
+     *
+     * @param remote map of settings.
+     * @return hex encoded SHA-256 of the connection settings.
+     */
+    static String connectionKey(remote) {
+        def digest = MessageDigest.getInstance('SHA-256')
+        def append
+        append = { r ->
+            ['name', 'host', 'port', 'user', 'password', 'identity', 'passphrase', 'agent',
+             'allowAnyHosts', 'knownHosts', 'timeoutSec', 'keepAliveSec', 'performanceProfile'].each {
+                digest.update("$it=${r[it]}\n".getBytes('UTF-8'))
+            }
+            if (r.proxy) {
+                r.proxy.sort().each { k, v -> digest.update("proxy.$k=$v\n".getBytes('UTF-8')) }
+            }
+            if (r.gateway) {
+                digest.update('gateway\n'.getBytes('UTF-8'))
+                append(r.gateway)
+            }
+        }
+        append(remote)
+        digest.digest().encodeHex().toString()
+    }
+
+    /**
+     * Wait before the next connection attempt with exponential backoff and (equal) jitter, i.e. a
+     * random time between half and all of {@code min(maxMillis, initialMillis * 2^attempt)}.
+     *
+     * @param initialMillis wait before the first retry.
+     * @param maxMillis upper bound of the wait.
+     * @param attempt number of the failed attempt, starting at 0.
+     * @param random source of jitter.
+     * @return wait in milliseconds.
+     */
+    static long backoffMillis(long initialMillis, long maxMillis, int attempt, Random random) {
+        long base = Math.min(maxMillis, initialMillis << Math.min(attempt, 30))
+        if (base <= 0)
+            return 0
+        long half = base.intdiv(2) as long
+        half + (long) (random.nextDouble() * (base - half + 1))
+    }
+
     /**
      * Validate remote.
      *
@@ -38,6 +118,28 @@ class Common {
             assert remote.retryWaitSec >= 0, getPrefix() + "retryWaitSec must be zero or positive ($remote.name)"
         if (remote.keepAliveSec)
             assert remote.keepAliveSec >= 0, getPrefix() + "keepAliveSec must be zero or positive ($remote.name)"
+        if (remote.retryBackoff)
+            assert remote.retryBackoff in ['fixed', 'exponential'], getPrefix() + "retryBackoff must be one of fixed, exponential ($remote.name)"
+        if (remote.retryMaxWaitSec != null)
+            assert remote.retryMaxWaitSec >= 0, getPrefix() + "retryMaxWaitSec must be zero or positive ($remote.name)"
+        if (remote.circuitBreakerThreshold != null)
+            assert remote.circuitBreakerThreshold >= 0, getPrefix() + "circuitBreakerThreshold must be zero or positive ($remote.name)"
+        if (remote.circuitBreakerResetSec != null)
+            assert remote.circuitBreakerResetSec >= 0, getPrefix() + "circuitBreakerResetSec must be zero or positive ($remote.name)"
+        if (remote.performanceProfile)
+            assert remote.performanceProfile in PerformanceProfile.names(), getPrefix() + "performanceProfile must be one of ${PerformanceProfile.names().join(', ')} ($remote.name)"
+        if (remote.bandwidthLimit != null)
+            assert remote.bandwidthLimit > 0, getPrefix() + "bandwidthLimit must be positive ($remote.name)"
+        if (remote.transferPriority)
+            assert remote.transferPriority in ['high', 'normal', 'low'], getPrefix() + "transferPriority must be one of high, normal, low ($remote.name)"
+        if (remote.progressIntervalSec != null)
+            assert remote.progressIntervalSec >= 0, getPrefix() + "progressIntervalSec must be zero or positive ($remote.name)"
+        if (remote.maxSessions != null)
+            assert remote.maxSessions > 0, getPrefix() + "maxSessions must be positive ($remote.name)"
+        if (remote.maxConnections != null)
+            assert remote.maxConnections > 0, getPrefix() + "maxConnections must be positive ($remote.name)"
+        if (remote.transport)
+            assert remote.transport in ['default', 'multiplexed'], getPrefix() + "transport must be one of default, multiplexed ($remote.name)"
         validateUserAuthentication(remote)
         validateHostAuthentication(remote)
         validateProxyConnection(remote)
@@ -0,0 +1,240 @@
+package org.jenkinsci.plugins.sshsteps.util
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings
+import groovy.transform.CompileStatic
+import groovy.transform.PackageScope
+import org.hidetake.groovy.ssh.connection.AllowAnyHosts
+import org.hidetake.groovy.ssh.core.Proxy
+import org.hidetake.groovy.ssh.core.ProxyType
+import org.hidetake.groovy.ssh.core.Remote
+import org.hidetake.groovy.ssh.core.settings.LoggingMethod
+import org.hidetake.groovy.ssh.session.transfer.FileTransferMethod
+
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.TimeUnit
+
+/**
+ * Typed settings of a remote (map of settings), validated once and cached by fingerprint of the
+ * map, so that repeated steps against the same remote skip validation and build hidetake's remote
+ * with plain setters rather than its DSL. The map of the step is left as is, validation runs on a
+ * copy.
+ *
+ * @author Naresh Rayapati
+ */
+@CompileStatic
+@SuppressFBWarnings
+final class RemoteSettings {
+
+    /**
+     * Settings cached, the least recently used ones are dropped beyond this.
+     */
+    static final int MAX_CACHED = 256
+
+    /**
+     * Settings not used for this long are dropped, not to keep credentials around.
+     */
+    static final long IDLE_EXPIRY_MS = TimeUnit.MINUTES.toMillis(30)
+
+    private static final Map<String, Cached> CACHE = new LinkedHashMap<>(16, 0.75f, true)
+
+    final String name
+    final String connectionKey
+    private final String host
+    private final Integer port
+    private final String user
+    private final String password
+    private final Object identity
+    private final String passphrase
+    private final Boolean agent
+    private final boolean allowAnyHosts
+    private final Object knownHosts
+    private final Integer timeoutSec
+    private final Integer retryWaitSec
+    private final Integer keepAliveSec
+    private final Boolean agentForwarding
+    private final FileTransferMethod fileTransfer
+    private final Boolean pty
+    private final String encoding
+    private final RemoteSettings gateway
+    private final Map proxy
+    /**
+     * Warnings of the validation, printed for every step.
+     */
+    private final List<String> warnings
+
+    private RemoteSettings(Map remote, String connectionKey, List<String> warnings) {
+        this.name = remote.name as String
+        this.connectionKey = connectionKey
+        this.host = remote.host as String
+        this.port = remote.port as Integer
+        this.user = remote.user as String
+        this.password = remote.password as String
+        this.identity = remote.identity
+        this.passphrase = remote.passphrase as String
+        this.agent = remote.agent as Boolean
+        this.allowAnyHosts = remote.allowAnyHosts as boolean
+        this.knownHosts = remote.knownHosts
+        this.timeoutSec = remote.timeoutSec as Integer
+        this.retryWaitSec = remote.retryWaitSec as Integer
+        this.keepAliveSec = remote.keepAliveSec as Integer
+        this.agentForwarding = remote.agentForwarding as Boolean
+        this.fileTransfer = remote.fileTransfer ? FileTransferMethod.valueOf(remote.fileTransfer as String) : null
+        this.pty = remote.pty as Boolean
+        this.encoding = remote.encoding as String
+        this.gateway = remote.gateway ? new RemoteSettings(remote.gateway as Map, null, []) : null
+        this.proxy = remote.proxy ? Collections.unmodifiableMap(new HashMap(remote.proxy as Map)) : null
+        this.warnings = warnings
+    }
+
+    /**
+     * Settings of the given remote, validated on first use.
+     *
+     * @param remote map of settings, left as is.
+     * @param logger validation warnings are printed here, may be null.
+     * @return validated settings.
+     */
+    static RemoteSettings of(Map remote, PrintStream logger) {
+        String id = remote ? RemoteDescriptor.fingerprint(remote) : null
+        RemoteSettings settings = id ? cached(id) : null
+        if (settings == null) {
+            def output = new ByteArrayOutputStream()
+            def validated = copy(remote)
+            new Common(new PrintStream(output, true, StandardCharsets.UTF_8.name())).validateRemote(validated)
+            def warnings = output.toString(StandardCharsets.UTF_8.name()).readLines()
+            settings = new RemoteSettings(validated, Common.connectionKey(validated), warnings)
+            if (id)
+                cache(id, settings)
+        }
+        if (logger != null) {
+            for (String warning : settings.warnings) {
+                logger.println(warning)
+            }
+        }
+        settings
+    }
+
+    private static RemoteSettings cached(String id) {
+        long now = System.currentTimeMillis()
+        synchronized (CACHE) {
+            CACHE.values().removeIf { Cached cached -> now - cached.used > IDLE_EXPIRY_MS }
+            Cached cached = CACHE.get(id)
+            if (cached == null)
+                return null
+            cached.used = now
+            cached.settings
+        }
+    }
+
+    private static void cache(String id, RemoteSettings settings) {
+        synchronized (CACHE) {
+            CACHE.put(id, new Cached(settings, System.currentTimeMillis()))
+            while (CACHE.size() > MAX_CACHED) {
+                CACHE.remove(CACHE.keySet().iterator().next())
+            }
+        }
+    }
+
+    @PackageScope
+    static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear()
+        }
+    }
+
+    /**
+     * Copy of the remote and its gateways, validation normalizes some of the entries.
+     */
+    private static Map copy(Map remote) {
+        if (remote == null)
+            return null
+        Map result = new LinkedHashMap(remote)
+        if (remote.gateway instanceof Map)
+            result.gateway = copy(remote.gateway as Map)
+        result
+    }
+
+    /**
+     * Hidetake's remote for these settings, with its gateways and proxy, for one service.
+     *
+     * @param dryRun dry run the session.
+     * @param ignoreError do not fail on errors.
+     * @param interaction interaction for commands, null for none (e.g. file transfers).
+     * @return remote.
+     */
+    Remote toRemote(boolean dryRun, boolean ignoreError, Closure interaction) {
+        Remote remote = new Remote(name)
+        remote.host = host
+        if (port)
+            remote.port = port
+        remote.user = user
+        if (password)
+            remote.password = password
+        if (gateway)
+            remote.gateway = gateway.toRemote(dryRun, ignoreError, interaction)
+
+        // Connection Settings applicable for Command, Script, FTP/SCP Operations.
+        remote.timeoutSec = timeoutSec
+        // Retries are done by SSHService, covering the whole gateway chain.
+        remote.retryCount = 0
+        remote.agent = agent
+        remote.dryRun = dryRun
+        remote.retryWaitSec = retryWaitSec
+        if (keepAliveSec)
+            remote.keepAliveSec = keepAliveSec
+        remote.jschLog = true
+        if (agentForwarding)
+            remote.agentForwarding = agentForwarding
+        remote.ignoreError = ignoreError
+        if (fileTransfer)
+            remote.fileTransfer = fileTransfer
+        // Avoid excessive logging in Jenkins master.
+        remote.logging = LoggingMethod.none
+        if (interaction)
+            remote.interaction = interaction
+        if (pty)
+            remote.pty = pty
+        if (encoding)
+            remote.encoding = encoding
+
+        // Host authentication
+        if (allowAnyHosts)
+            remote.knownHosts = AllowAnyHosts.instance
+        else if (knownHosts)
+            remote.knownHosts = knownHosts
+
+        // Public and private key authentication
+        if (identity)
+            remote.identity = identity
+        remote.passphrase = passphrase
+
+        if (proxy)
+            remote.proxy = toProxy()
+        remote
+    }
+
+    private Proxy toProxy() {
+        Proxy result = new Proxy(proxy.name as String)
+        result.host = proxy.host as String
+        result.type = ProxyType.valueOf(proxy.type as String)
+        if (proxy.port)
+            result.port = proxy.port as int
+        if (proxy.socksVersion)
+            result.socksVersion = proxy.socksVersion as int
+        if (proxy.user)
+            result.user = proxy.user as String
+        if (proxy.password)
+            result.password = proxy.password as String
+        result
+    }
+
+    private static final class Cached {
+
+        private final RemoteSettings settings
+        private long used
+
+        private Cached(RemoteSettings settings, long used) {
+            this.settings = settings
+            this.used = used
+        }
+    }
+}
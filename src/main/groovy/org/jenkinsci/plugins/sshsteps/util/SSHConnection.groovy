@@ -0,0 +1,238 @@
+package org.jenkinsci.plugins.sshsteps.util
+
+import com.jcraft.jsch.Channel
+import com.jcraft.jsch.ChannelExec
+import com.jcraft.jsch.ChannelSftp
+import com.jcraft.jsch.ChannelShell
+import com.jcraft.jsch.JSch
+import com.jcraft.jsch.Session
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings
+import groovy.transform.PackageScope
+import org.hidetake.groovy.ssh.connection.Connection
+import org.hidetake.groovy.ssh.connection.ConnectionManager
+import org.hidetake.groovy.ssh.connection.ConnectionSettings
+import org.hidetake.groovy.ssh.connection.JSchLogger
+import org.hidetake.groovy.ssh.connection.UserAuthenticationSettings
+import org.hidetake.groovy.ssh.core.Remote
+import org.hidetake.groovy.ssh.core.Service
+import org.hidetake.groovy.ssh.core.settings.GlobalSettings
+import org.hidetake.groovy.ssh.core.settings.PerServiceSettings
+import org.hidetake.groovy.ssh.operation.DefaultOperations
+import org.hidetake.groovy.ssh.session.SessionHandler
+import org.hidetake.groovy.ssh.util.Utility
+
+/**
+ * An established connection to a remote, opened outside of hidetake's run block so that it can
+ * be created ahead of time and handed over to a later session.
+ *
+ * @author Naresh Rayapati
+ */
+@SuppressFBWarnings
+class SSHConnection implements Closeable {
+
+    private final ConnectionManager manager
+    private final Connection connection
+    private final TransferSocketFactory socketFactory
+
+    private SSHConnection(ConnectionManager manager, Connection connection, TransferSocketFactory socketFactory) {
+        this.manager = manager
+        this.connection = connection
+        this.socketFactory = socketFactory
+    }
+
+    /**
+     * Opens a connection (including gateway hops) for the given remote.
+     *
+     * @param ssh service the remote is defined on.
+     * @param remote remote to connect to.
+     * @param jschConfig JSch session config (e.g. algorithm preferences) by remote name, applied to
+     *        the remote and its gateways.
+     * @return established connection.
+     */
+    static SSHConnection open(Service ssh, Remote remote, Map<String, Map<String, String>> jschConfig = [:]) {
+        // Same as hidetake's session task, so JSch logs reach the step log handler.
+        JSchLogger.enabledInCurrentThread = remote.jschLog as boolean
+        def socketFactory = new TransferSocketFactory((remote.timeoutSec ?: 0) * 1000)
+        def manager = tunedManager(ssh.settings, jschConfig, remote.name, socketFactory)
+        try {
+            new SSHConnection(manager, manager.connect(remote), socketFactory)
+        } catch (Throwable e) {
+            manager.close()
+            throw e
+        }
+    }
+
+    boolean isConnected() {
+        connection.session.connected
+    }
+
+    /**
+     * JSch session of the target, for channels hidetake has no operation for.
+     */
+    Session getSession() {
+        connection.session
+    }
+
+    /**
+     * Opens a channel of the given type on the target, for channels hidetake has no operation for.
+     *
+     * @param type channel type, e.g. exec.
+     * @param channels collects the channel (e.g. to cancel it), null for none.
+     * @return channel, not yet connected.
+     */
+    Channel openChannel(String type, Collection<Channel> channels = null) {
+        track(connection.session.openChannel(type), type, hostAndPort(connection.remote), channels)
+    }
+
+    /**
+     * Collects the given channel and records the time its connect takes as a
+     * {@link SSHEvents.ChannelOpen} event. Connect is intercepted on this channel only, as
+     * hidetake connects the channels of its operations itself.
+     */
+    private static <T extends Channel> T track(T channel, String type, String host,
+                                               Collection<Channel> channels) {
+        if (channels != null) {
+            channels.removeIf { it.closed }
+            channels.add(channel)
+        }
+        def connect = Channel.metaClass.getMetaMethod('connect', [] as Class[])
+        def connectTimeout = Channel.metaClass.getMetaMethod('connect', [int] as Class[])
+        def metaClass = new ExpandoMetaClass(channel.getClass(), false, true)
+        metaClass.connect = { ->
+            def event = new SSHEvents.ChannelOpen(type)
+            connect.invoke(delegate)
+            event.finish(host)
+        }
+        metaClass.connect = { int timeout ->
+            def event = new SSHEvents.ChannelOpen(type)
+            connectTimeout.invoke(delegate, timeout)
+            event.finish(host)
+        }
+        metaClass.initialize()
+        channel.metaClass = metaClass
+        channel
+    }
+
+    private static String hostAndPort(Remote remote) {
+        "$remote.host:${remote.port ?: 22}"
+    }
+
+    /**
+     * Runs a session closure on this connection, same as hidetake's session block would.
+     *
+     * @param ssh service the remote is defined on.
+     * @param remote remote whose settings (interaction, encoding, etc.) apply to the session.
+     * @param closure session closure.
+     * @param channels collects the channels the closure opens (e.g. to cancel them), null for none.
+     *        Every channel is timed either way, see {@link SSHEvents.ChannelOpen}.
+     * @return result of the closure.
+     */
+    def run(Service ssh, Remote remote, Closure closure, Collection<Channel> channels = null) {
+        JSchLogger.enabledInCurrentThread = remote.jschLog as boolean
+        def operations = new DefaultOperations(new TrackedConnection(remote, connection.session, channels))
+        def handler = SessionHandler.create(operations, ssh.settings, new PerServiceSettings())
+        Utility.callWithDelegate(closure, handler)
+    }
+
+    /**
+     * Runs a transfer on this connection, its traffic limited by the given throttle while the
+     * closure runs.
+     *
+     * @param ssh service the remote is defined on.
+     * @param remote remote whose settings apply to the session.
+     * @param throttle bandwidth limits, null for none.
+     * @param closure session closure.
+     * @param channels collects the channels the closure opens, null for none.
+     * @return result of the closure.
+     */
+    def run(Service ssh, Remote remote, Throttle throttle, Closure closure,
+            Collection<Channel> channels = null) {
+        socketFactory.enter(throttle)
+        try {
+            run(ssh, remote, closure, channels)
+        } finally {
+            socketFactory.exit(throttle)
+        }
+    }
+
+    @Override
+    void close() {
+        manager.close()
+    }
+
+    /**
+     * Connection timing the channels hidetake opens for operations, and handing them out to a
+     * collection as well.
+     */
+    private static class TrackedConnection extends Connection {
+
+        private final Collection<Channel> channels
+        private final String host
+
+        TrackedConnection(Remote remote, Session session, Collection<Channel> channels) {
+            super(remote, session)
+            this.channels = channels
+            this.host = hostAndPort(remote)
+        }
+
+        @Override
+        ChannelExec createExecutionChannel() {
+            track(super.createExecutionChannel(), 'exec', host, channels)
+        }
+
+        @Override
+        ChannelShell createShellChannel() {
+            track(super.createShellChannel(), 'shell', host, channels)
+        }
+
+        @Override
+        ChannelSftp createSftpChannel() {
+            track(super.createSftpChannel(), 'sftp', host, channels)
+        }
+    }
+
+    /**
+     * Connection manager applying JSch session config per remote and the socket factory to the
+     * target's session, hidetake has no settings for either. Hooked in through the instance's meta
+     * class as hidetake's closures rely on private methods of the manager, which a subclass would
+     * not see. Fails when the groovy-ssh version on the classpath does not have them.
+     */
+    @PackageScope
+    static ConnectionManager tunedManager(GlobalSettings settings, Map<String, Map<String, String>> jschConfig,
+                                                  String target, TransferSocketFactory socketFactory) {
+        def manager = new ConnectionManager(settings, new PerServiceSettings())
+        def configure = ConnectionManager.metaClass.getMetaMethod('configureUserAuthentication',
+                [JSch, Session, Remote, UserAuthenticationSettings] as Class[])
+        def connectInternal = ConnectionManager.metaClass.getMetaMethod('connectInternal',
+                [Remote, String, int, ConnectionSettings] as Class[])
+        if (configure == null || connectInternal == null) {
+            throw new IllegalStateException(Common.prefix + "Unsupported groovy-ssh version, ConnectionManager has no " +
+                    (configure == null ? 'configureUserAuthentication' : 'connectInternal') + " method to apply the connection settings")
+        }
+        def metaClass = new ExpandoMetaClass(ConnectionManager, false, true)
+        // One hop: gateway or target, through the forwarded port of the previous hop if any.
+        metaClass.connectInternal = { Remote remote, String host, int port, ConnectionSettings hopSettings ->
+            def event = new SSHEvents.Handshake(remote.name != target)
+            try {
+                def connection = connectInternal.invoke(delegate, remote, host, port, hopSettings)
+                event.success = true
+                connection
+            } finally {
+                event.finish("$remote.host:$remote.port" as String)
+            }
+        }
+        metaClass.configureUserAuthentication = { JSch jsch, Session session, Remote remote, UserAuthenticationSettings userSettings ->
+            configure.invoke(delegate, jsch, session, remote, userSettings)
+            def config = jschConfig[remote.name]
+            if (config) {
+                session.setConfig(new Hashtable<String, String>(config))
+            }
+            if (socketFactory && remote.name == target) {
+                session.socketFactory = socketFactory
+            }
+        }
+        metaClass.initialize()
+        manager.metaClass = metaClass
+        manager
+    }
+}
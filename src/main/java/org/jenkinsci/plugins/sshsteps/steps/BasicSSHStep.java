@@ -1,9 +1,13 @@
 package org.jenkinsci.plugins.sshsteps.steps;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
 import java.io.Serializable;
 import java.util.Map;
 import lombok.Getter;
 import lombok.Setter;
+import org.jenkinsci.plugins.sshsteps.util.RemoteDescriptor;
 import org.jenkinsci.plugins.workflow.steps.Step;
 import org.kohsuke.stapler.DataBoundSetter;
 
@@ -24,6 +28,19 @@ public abstract class BasicSSHStep extends Step implements Serializable {
   private boolean failOnError = true;
 
   @Getter
+  @Setter
   @DataBoundSetter
   private boolean dryRun = false;
+
+  /**
+   * The remote is left out while a callable carrying it in a {@link RemoteDescriptor} is sent.
+   */
+  @Serial
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("remote", RemoteDescriptor.isWritingLean() ? null : remote);
+    fields.put("failOnError", failOnError);
+    fields.put("dryRun", dryRun);
+    out.writeFields();
+  }
 }
@@ -0,0 +1,97 @@
+package org.jenkinsci.plugins.sshsteps.steps;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.TaskListener;
+import java.io.IOException;
+import java.io.Serial;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.jenkinsci.plugins.sshsteps.util.SSHMasterToSlaveCallable;
+import org.jenkinsci.plugins.sshsteps.util.SSHStepDescriptorImpl;
+import org.jenkinsci.plugins.sshsteps.util.SSHStepExecution;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * Step to measure the throughput of each cipher against a remote node and cache the fastest one
+ * on the agent.
+ *
+ * @author Naresh Rayapati
+ */
+@Getter
+public class CalibrateStep extends BasicSSHStep {
+
+  @Serial
+  private static final long serialVersionUID = 7790158224870311652L;
+
+  @Setter
+  @DataBoundSetter
+  private int sizeMb = 16;
+
+  @Setter
+  @DataBoundSetter
+  private List<String> ciphers;
+
+  @DataBoundConstructor
+  public CalibrateStep() {
+  }
+
+  @Override
+  public StepExecution start(StepContext context) throws Exception {
+    return new Execution(this, context);
+  }
+
+  @Extension
+  public static class DescriptorImpl extends SSHStepDescriptorImpl {
+
+    @Override
+    public String getFunctionName() {
+      return "sshCalibrate";
+    }
+
+    @NonNull
+    @Override
+    public String getDisplayName() {
+      return getPrefix() + getFunctionName() + " - Find the fastest cipher for a remote node.";
+    }
+  }
+
+  public static class Execution extends SSHStepExecution {
+
+    @Serial
+    private static final long serialVersionUID = -1808733620530944627L;
+
+    protected Execution(CalibrateStep step, StepContext context)
+        throws IOException, InterruptedException {
+      super(step, context);
+    }
+
+    @Override
+    protected Object run() throws Exception {
+      CalibrateStep step = (CalibrateStep) getStep();
+      if (step.getSizeMb() <= 0) {
+        throw new IllegalArgumentException("sizeMb must be positive");
+      }
+
+      return callOnAgent(new CalibrateCallable(step, getListener()));
+    }
+
+    private static class CalibrateCallable extends SSHMasterToSlaveCallable {
+
+      public CalibrateCallable(CalibrateStep step, TaskListener listener) {
+        super(step, listener);
+      }
+
+      @Override
+      public Object execute() {
+        CalibrateStep step = (CalibrateStep) getStep();
+        return getService().calibrate(step.getSizeMb(), step.getCiphers());
+      }
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package org.jenkinsci.plugins.sshsteps.steps;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import java.io.IOException;
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.jenkinsci.plugins.sshsteps.util.SSHStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * Step to get the checksum (along with size and modification time) of files on remote node,
+ * computed on the remote node.
+ *
+ * @author Naresh Rayapati
+ */
+@Getter
+public class ChecksumStep extends StatStep {
+
+  @Serial
+  private static final long serialVersionUID = -6911960367145024384L;
+
+  /**
+   * Supported algorithms, the remote node needs the matching tool (sha256sum, ..., xxhsum).
+   */
+  public static final List<String> ALGORITHMS = Arrays.asList("sha256", "sha1", "md5", "xxh64");
+
+  @Setter
+  @DataBoundSetter
+  private String algorithm = "sha256";
+
+  @Setter
+  @DataBoundSetter
+  private int parallelism = 4;
+
+  @DataBoundConstructor
+  public ChecksumStep(String path) {
+    super(path);
+  }
+
+  @Override
+  public StepExecution start(StepContext context) throws Exception {
+    return new Execution(this, context);
+  }
+
+  @Extension
+  public static class DescriptorImpl extends SSHStepDescriptorImpl {
+
+    @Override
+    public String getFunctionName() {
+      return "sshChecksum";
+    }
+
+    @NonNull
+    @Override
+    public String getDisplayName() {
+      return getPrefix() + getFunctionName() + " - Get checksums of files on remote node.";
+    }
+  }
+
+  public static class Execution extends StatStep.Execution {
+
+    @Serial
+    private static final long serialVersionUID = 1960183544128750262L;
+
+    protected Execution(ChecksumStep step, StepContext context)
+        throws IOException, InterruptedException {
+      super(step, context);
+    }
+
+    @Override
+    protected Object run() throws Exception {
+      ChecksumStep step = (ChecksumStep) getStep();
+      if (!ALGORITHMS.contains(step.getAlgorithm())) {
+        throw new IllegalArgumentException(
+            "algorithm must be one of " + String.join(", ", ALGORITHMS));
+      }
+
+      if (step.getParallelism() <= 0) {
+        throw new IllegalArgumentException("parallelism must be positive");
+      }
+
+      return super.run();
+    }
+  }
+}
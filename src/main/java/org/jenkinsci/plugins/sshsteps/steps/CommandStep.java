@@ -6,8 +6,12 @@ import hudson.Util;
 import hudson.model.TaskListener;
 import java.io.IOException;
 import java.io.Serial;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import lombok.Getter;
+import lombok.Setter;
+import org.jenkinsci.plugins.sshsteps.util.DetachedCommandExecution;
 import org.jenkinsci.plugins.sshsteps.util.SSHMasterToSlaveCallable;
 import org.jenkinsci.plugins.sshsteps.util.SSHStepDescriptorImpl;
 import org.jenkinsci.plugins.sshsteps.util.SSHStepExecution;
@@ -32,6 +36,30 @@ public class CommandStep extends BasicSSHStep {
   @DataBoundSetter
   private boolean sudo = false;
 
+  @Setter
+  @DataBoundSetter
+  private boolean returnResult = false;
+
+  @Setter
+  @DataBoundSetter
+  private int inlineOutputLimit = 4096;
+
+  @Setter
+  @DataBoundSetter
+  private String waitFor;
+
+  @Setter
+  @DataBoundSetter
+  private int waitTimeoutSec = 300;
+
+  @Setter
+  @DataBoundSetter
+  private String onMatch = "leave";
+
+  @Setter
+  @DataBoundSetter
+  private boolean detached = false;
+
   @DataBoundConstructor
   public CommandStep(String command) {
     this.command = command;
@@ -39,6 +67,16 @@ public class CommandStep extends BasicSSHStep {
 
   @Override
   public StepExecution start(StepContext context) throws Exception {
+    if (detached) {
+      if (Util.fixEmpty(command) == null) {
+        throw new IllegalArgumentException("command is null or empty");
+      }
+      if (sudo || returnResult || Util.fixEmpty(waitFor) != null) {
+        throw new IllegalArgumentException(
+            "detached can not be combined with sudo, returnResult or waitFor");
+      }
+      return new DetachedCommandExecution(this, command, context);
+    }
     return new Execution(this, context);
   }
 
@@ -74,7 +112,28 @@ public class CommandStep extends BasicSSHStep {
         throw new IllegalArgumentException("command is null or empty");
       }
 
-      return getChannel().call(new CommandCallable(step, getListener()));
+      if (step.getInlineOutputLimit() < 0) {
+        throw new IllegalArgumentException("inlineOutputLimit must not be negative");
+      }
+
+      if (Util.fixEmpty(step.getWaitFor()) != null) {
+        try {
+          Pattern.compile(step.getWaitFor());
+        } catch (PatternSyntaxException e) {
+          throw new IllegalArgumentException("waitFor is not a valid regex: " + e.getDescription());
+        }
+        if (step.getWaitTimeoutSec() <= 0) {
+          throw new IllegalArgumentException("waitTimeoutSec must be positive");
+        }
+        if (!"leave".equals(step.getOnMatch()) && !"terminate".equals(step.getOnMatch())) {
+          throw new IllegalArgumentException("onMatch must be leave or terminate");
+        }
+        if (step.isSudo() || step.isReturnResult()) {
+          throw new IllegalArgumentException("waitFor can not be combined with sudo or returnResult");
+        }
+      }
+
+      return callOnAgent(new CommandCallable(step, getListener()));
     }
 
     private static class CommandCallable extends SSHMasterToSlaveCallable {
@@ -86,6 +145,14 @@ public class CommandStep extends BasicSSHStep {
       @Override
       public Object execute() {
         CommandStep step = (CommandStep) getStep();
+        if (Util.fixEmpty(step.getWaitFor()) != null) {
+          return getService().executeCommandUntil(step.getCommand(), step.getWaitFor(),
+              step.getWaitTimeoutSec(), "terminate".equals(step.getOnMatch()));
+        }
+        if (step.isReturnResult()) {
+          return getService().executeCommandResult(step.getCommand(), step.isSudo(),
+              step.getInlineOutputLimit());
+        }
         return getService().executeCommand(step.getCommand(), step.isSudo());
       }
     }
@@ -0,0 +1,103 @@
+package org.jenkinsci.plugins.sshsteps.steps;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.TaskListener;
+import java.io.IOException;
+import java.io.Serial;
+import java.util.List;
+
+import lombok.Getter;
+import org.jenkinsci.plugins.sshsteps.util.SSHMasterToSlaveCallable;
+import org.jenkinsci.plugins.sshsteps.util.SSHStepDescriptorImpl;
+import org.jenkinsci.plugins.sshsteps.util.SSHStepExecution;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * Step to execute a list of commands in one session on remote node.
+ *
+ * @author Naresh Rayapati
+ */
+@Getter
+public class CommandsStep extends BasicSSHStep {
+
+  @Serial
+  private static final long serialVersionUID = -3021655207853911410L;
+
+  private final List<String> commands;
+
+  @DataBoundSetter
+  private boolean sudo = false;
+
+  @DataBoundSetter
+  private boolean stopOnError = true;
+
+  @DataBoundConstructor
+  public CommandsStep(List<String> commands) {
+    this.commands = commands;
+  }
+
+  @Override
+  public StepExecution start(StepContext context) throws Exception {
+    return new Execution(this, context);
+  }
+
+  @Extension
+  public static class DescriptorImpl extends SSHStepDescriptorImpl {
+
+    @Override
+    public String getFunctionName() {
+      return "sshCommands";
+    }
+
+    @NonNull
+    @Override
+    public String getDisplayName() {
+      return getPrefix() + getFunctionName() + " - Execute commands in one session on remote node.";
+    }
+  }
+
+  public static class Execution extends SSHStepExecution {
+
+    @Serial
+    private static final long serialVersionUID = 4619728036357004725L;
+
+    protected Execution(CommandsStep step, StepContext context)
+        throws IOException, InterruptedException {
+      super(step, context);
+    }
+
+    @Override
+    protected Object run() throws Exception {
+      CommandsStep step = (CommandsStep) getStep();
+      if (step.getCommands() == null || step.getCommands().isEmpty()) {
+        throw new IllegalArgumentException("commands is null or empty");
+      }
+      for (String command : step.getCommands()) {
+        if (Util.fixEmpty(command) == null) {
+          throw new IllegalArgumentException("commands must not contain an empty command");
+        }
+      }
+
+      return callOnAgent(new CommandsCallable(step, getListener()));
+    }
+
+    private static class CommandsCallable extends SSHMasterToSlaveCallable {
+
+      public CommandsCallable(CommandsStep step, TaskListener listener) {
+        super(step, listener);
+      }
+
+      @Override
+      public Object execute() {
+        CommandsStep step = (CommandsStep) getStep();
+        return getService()
+            .executeCommands(step.getCommands(), step.isSudo(), step.isStopOnError());
+      }
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package org.jenkinsci.plugins.sshsteps.steps;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.TaskListener;
+import java.io.IOException;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.jenkinsci.plugins.sshsteps.SSHService;
+import org.jenkinsci.plugins.sshsteps.util.SSHMasterToSlaveCallable;
+import org.jenkinsci.plugins.sshsteps.util.SSHStepDescriptorImpl;
+import org.jenkinsci.plugins.sshsteps.util.SSHStepExecution;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * Step to copy a file or directory from one remote node to one or more other remote nodes,
+ * streamed through the agent without writing it to disk.
+ *
+ * @author Naresh Rayapati
+ */
+@Getter
+public class CopyStep extends BasicSSHStep {
+
+  @Serial
+  private static final long serialVersionUID = 5210347715093317462L;
+
+  private final String from;
+
+  private final String into;
+
+  @Setter
+  @DataBoundSetter
+  private Map toRemote;
+
+  @Setter
+  @DataBoundSetter
+  private List<Map> toRemotes;
+
+  @DataBoundConstructor
+  public CopyStep(String from, String into) {
+    this.from = from;
+    this.into = into;
+  }
+
+  /**
+   * Destination remotes, toRemote followed by toRemotes.
+   */
+  List<Map> getDestinations() {
+    List<Map> destinations = new ArrayList<>();
+    if (toRemote != null) {
+      destinations.add(toRemote);
+    }
+    if (toRemotes != null) {
+      destinations.addAll(toRemotes);
+    }
+    return destinations;
+  }
+
+  @Override
+  public StepExecution start(StepContext context) throws Exception {
+    return new Execution(this, context);
+  }
+
+  @Extension
+  public static class DescriptorImpl extends SSHStepDescriptorImpl {
+
+    @Override
+    public String getFunctionName() {
+      return "sshCopy";
+    }
+
+    @NonNull
+    @Override
+    public String getDisplayName() {
+      return getPrefix() + getFunctionName() + " - Copy file/directory between remote nodes.";
+    }
+  }
+
+  public static class Execution extends SSHStepExecution {
+
+    @Serial
+    private static final long serialVersionUID = -6045293612810459315L;
+
+    protected Execution(CopyStep step, StepContext context)
+        throws IOException, InterruptedException {
+      super(step, context);
+    }
+
+    @Override
+    protected Object run() throws Exception {
+      CopyStep step = (CopyStep) getStep();
+      if (Util.fixEmpty(step.getFrom()) == null) {
+        throw new IllegalArgumentException("from is null or empty");
+      }
+
+      if (Util.fixEmpty(step.getInto()) == null) {
+        throw new IllegalArgumentException("into is null or empty");
+      }
+
+      if (step.getDestinations().isEmpty()) {
+        throw new IllegalArgumentException("toRemote or toRemotes must be given");
+      }
+
+      return callOnAgent(new CopyCallable(step, getListener()));
+    }
+
+    private static class CopyCallable extends SSHMasterToSlaveCallable {
+
+      public CopyCallable(CopyStep step, TaskListener listener) {
+        super(step, listener);
+      }
+
+      @Override
+      public Object execute() {
+        CopyStep step = (CopyStep) getStep();
+        List<SSHService> destinations = new ArrayList<>();
+        for (Map remote : step.getDestinations()) {
+          destinations.add(createService(remote));
+        }
+        return getService().copy(step.getFrom(), destinations, step.getInto());
+      }
+    }
+  }
+}
@@ -7,9 +7,14 @@ import hudson.Util;
 import hudson.model.TaskListener;
 import java.io.IOException;
 import java.io.Serial;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.jenkinsci.plugins.sshsteps.SSHService;
+import org.jenkinsci.plugins.sshsteps.util.ArchiveWriter;
 import org.jenkinsci.plugins.sshsteps.util.SSHMasterToSlaveCallable;
 import org.jenkinsci.plugins.sshsteps.util.SSHStepDescriptorImpl;
 import org.jenkinsci.plugins.sshsteps.util.SSHStepExecution;
@@ -45,6 +50,14 @@ public class GetStep extends BasicSSHStep {
   @DataBoundSetter
   private boolean override = false;
 
+  @Setter
+  @DataBoundSetter
+  private String intoArchive;
+
+  @Setter
+  @DataBoundSetter
+  private List<Map> fromRemotes;
+
   @DataBoundConstructor
   public GetStep(String from, String into) {
     this.from = from;
@@ -86,24 +99,39 @@ public class GetStep extends BasicSSHStep {
       GetStep step = (GetStep) getStep();
       FilePath ws = getContext().get(FilePath.class);
       assert ws != null;
-      FilePath intoPath;
 
       if (Util.fixEmpty(step.getFrom()) == null) {
         throw new IllegalArgumentException("from is null or empty");
       }
 
-      if (Util.fixEmpty(step.getInto()) == null) {
-        throw new IllegalArgumentException("into is null or empty");
+      boolean archive = Util.fixEmpty(step.getIntoArchive()) != null;
+      if (archive && Util.fixEmpty(step.getInto()) != null) {
+        throw new IllegalArgumentException("only one of into or intoArchive can be given");
       }
 
-      intoPath = ws.child(step.getInto());
+      if (!archive && Util.fixEmpty(step.getInto()) == null) {
+        throw new IllegalArgumentException("into is null or empty");
+      }
 
-      if (intoPath.exists() && !step.isOverride()) {
+      if (archive && !ArchiveWriter.isSupported(step.getIntoArchive())) {
         throw new IllegalArgumentException(
-            intoPath.getRemote() + " already exist. Please set override to true just in case.");
+            "intoArchive must end with .zip, .tar, .tar.gz or .tgz");
+      }
+
+      if (!archive && step.getFromRemotes() != null && !step.getFromRemotes().isEmpty()) {
+        throw new IllegalArgumentException("fromRemotes requires intoArchive");
       }
 
-      return getChannel().call(new GetCallable(step, getListener(), intoPath.getRemote()));
+      return callWithPreConnect(() -> {
+        FilePath intoPath = ws.child(archive ? step.getIntoArchive() : step.getInto());
+
+        if (intoPath.exists() && !step.isOverride()) {
+          throw new IllegalArgumentException(
+              intoPath.getRemote() + " already exist. Please set override to true just in case.");
+        }
+
+        return new GetCallable(step, getListener(), intoPath.getRemote());
+      });
     }
 
     private static class GetCallable extends SSHMasterToSlaveCallable {
@@ -118,6 +146,16 @@ public class GetStep extends BasicSSHStep {
       @Override
       public Object execute() {
         final GetStep step = (GetStep) getStep();
+        if (Util.fixEmpty(step.getIntoArchive()) != null) {
+          List<SSHService> others = new ArrayList<>();
+          if (step.getFromRemotes() != null) {
+            for (Map remote : step.getFromRemotes()) {
+              others.add(createService(remote));
+            }
+          }
+          return getService().getArchive(step.getFrom(), into, step.getFilterBy(),
+              step.getFilterRegex(), others);
+        }
         return getService().get(step.getFrom(), into, step.getFilterBy(), step.getFilterRegex());
       }
     }
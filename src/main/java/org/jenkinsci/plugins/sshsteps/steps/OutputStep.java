@@ -0,0 +1,104 @@
+package org.jenkinsci.plugins.sshsteps.steps;
+
+import com.google.common.collect.ImmutableSet;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Set;
+import lombok.Getter;
+import lombok.Setter;
+import org.jenkinsci.plugins.sshsteps.util.Common;
+import org.jenkinsci.plugins.sshsteps.util.FetchOutputCallable;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * Step to fetch the full output of a command run with returnResult, kept on the agent when it was
+ * too large to return with the result. No connection to the remote is made, it has to run on the
+ * same node as the command, so unlike the other steps it takes no remote.
+ *
+ * @author Naresh Rayapati
+ */
+@Getter
+public class OutputStep extends Step implements Serializable {
+
+  @Serial
+  private static final long serialVersionUID = -3178592046615129845L;
+
+  private final String ref;
+
+  @Setter
+  @DataBoundSetter
+  private String stream = "stdout";
+
+  @DataBoundConstructor
+  public OutputStep(String ref) {
+    this.ref = ref;
+  }
+
+  @Override
+  public StepExecution start(StepContext context) throws Exception {
+    return new Execution(this, context);
+  }
+
+  @Extension
+  public static class DescriptorImpl extends StepDescriptor {
+
+    @Override
+    public String getFunctionName() {
+      return "sshOutput";
+    }
+
+    @NonNull
+    @Override
+    public String getDisplayName() {
+      return Common.getPrefix() + getFunctionName() + " - Fetch the output of a command result.";
+    }
+
+    @Override
+    public Set<? extends Class<?>> getRequiredContext() {
+      return ImmutableSet.of(Launcher.class, TaskListener.class);
+    }
+  }
+
+  public static class Execution extends SynchronousNonBlockingStepExecution<String> {
+
+    @Serial
+    private static final long serialVersionUID = 6405981137284766310L;
+
+    private final transient OutputStep step;
+
+    protected Execution(OutputStep step, StepContext context) {
+      super(context);
+      this.step = step;
+    }
+
+    @Override
+    protected String run() throws Exception {
+      if (Util.fixEmpty(step.getRef()) == null) {
+        throw new IllegalArgumentException("ref is null or empty");
+      }
+
+      if (!"stdout".equals(step.getStream()) && !"stderr".equals(step.getStream())) {
+        throw new IllegalArgumentException("stream must be stdout or stderr");
+      }
+
+      final VirtualChannel channel = getContext().get(Launcher.class).getChannel();
+      if (channel == null) {
+        throw new IllegalArgumentException(
+            "Unable to get the channel, Perhaps you forgot to surround the code with a step that provides this, such as: node, dockerNode");
+      }
+      return channel.call(new FetchOutputCallable(step.getRef(), step.getStream()));
+    }
+  }
+}
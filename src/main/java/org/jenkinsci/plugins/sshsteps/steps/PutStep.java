@@ -7,9 +7,14 @@ import hudson.Util;
 import hudson.model.TaskListener;
 import java.io.IOException;
 import java.io.Serial;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.jenkinsci.plugins.sshsteps.SSHService;
 import org.jenkinsci.plugins.sshsteps.util.SSHMasterToSlaveCallable;
 import org.jenkinsci.plugins.sshsteps.util.SSHStepDescriptorImpl;
 import org.jenkinsci.plugins.sshsteps.util.SSHStepExecution;
@@ -41,12 +46,36 @@ public class PutStep extends BasicSSHStep {
   @DataBoundSetter
   private String filterRegex;
 
+  @Setter
+  @DataBoundSetter
+  private List<Map> toRemotes;
+
+  @Setter
+  @DataBoundSetter
+  private String text;
+
+  @Setter
+  @DataBoundSetter
+  private byte[] bytes;
+
   @DataBoundConstructor
   public PutStep(String from, String into) {
     this.from = from;
     this.into = into;
   }
 
+  /**
+   * Content to put instead of a workspace file, text (UTF-8) or bytes.
+   *
+   * @return content or null when putting from the workspace.
+   */
+  byte[] getContent() {
+    if (text != null) {
+      return text.getBytes(StandardCharsets.UTF_8);
+    }
+    return bytes;
+  }
+
   @Override
   public StepExecution start(StepContext context) throws Exception {
     return new Execution(this, context);
@@ -80,25 +109,40 @@ public class PutStep extends BasicSSHStep {
     @Override
     protected Object run() throws Exception {
       PutStep step = (PutStep) getStep();
-      FilePath ws = getContext().get(FilePath.class);
-      assert ws != null;
-      FilePath fromPath;
-
-      if (Util.fixEmpty(step.getFrom()) == null) {
-        throw new IllegalArgumentException("from is null or empty");
+      int sources = (Util.fixEmpty(step.getFrom()) != null ? 1 : 0) + (step.getText() != null ? 1 : 0)
+          + (step.getBytes() != null ? 1 : 0);
+      if (sources > 1) {
+        throw new IllegalArgumentException("only one of from, text or bytes can be given");
       }
 
-      fromPath = ws.child(step.getFrom());
-
-      if (!fromPath.exists()) {
-        throw new IllegalArgumentException(fromPath.getRemote() + " does not exist.");
+      if (step.getContent() == null && Util.fixEmpty(step.getFrom()) == null) {
+        throw new IllegalArgumentException("from is null or empty");
       }
 
       if (Util.fixEmpty(step.getInto()) == null) {
         throw new IllegalArgumentException("into is null or empty");
       }
 
-      return getChannel().call(new PutCallable(step, getListener(), fromPath.getRemote()));
+      if (step.getContent() != null) {
+        if (step.getToRemotes() != null && !step.getToRemotes().isEmpty()) {
+          throw new IllegalArgumentException("toRemotes is not supported with text or bytes");
+        }
+        // Nothing to look up in the workspace.
+        return callWithPreConnect(() -> new PutCallable(step, getListener(), null));
+      }
+
+      FilePath ws = getContext().get(FilePath.class);
+      assert ws != null;
+
+      return callWithPreConnect(() -> {
+        FilePath fromPath = ws.child(step.getFrom());
+
+        if (!fromPath.exists()) {
+          throw new IllegalArgumentException(fromPath.getRemote() + " does not exist.");
+        }
+
+        return new PutCallable(step, getListener(), fromPath.getRemote());
+      });
     }
 
     private static class PutCallable extends SSHMasterToSlaveCallable {
@@ -113,6 +157,17 @@ public class PutStep extends BasicSSHStep {
       @Override
       public Object execute() {
         final PutStep step = (PutStep) getStep();
+        if (from == null) {
+          return getService().put(step.getContent(), step.getInto());
+        }
+        if (step.getToRemotes() != null && !step.getToRemotes().isEmpty()) {
+          List<SSHService> others = new ArrayList<>();
+          for (Map remote : step.getToRemotes()) {
+            others.add(createService(remote));
+          }
+          return getService().put(from, step.getInto(), step.getFilterBy(), step.getFilterRegex(),
+              others);
+        }
         return getService().put(from, step.getInto(), step.getFilterBy(), step.getFilterRegex());
       }
     }
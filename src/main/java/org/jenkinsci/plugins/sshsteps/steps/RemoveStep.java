@@ -6,14 +6,18 @@ import hudson.Util;
 import hudson.model.TaskListener;
 import java.io.IOException;
 import java.io.Serial;
+import java.util.ArrayList;
+import java.util.List;
 
 import lombok.Getter;
+import lombok.Setter;
 import org.jenkinsci.plugins.sshsteps.util.SSHMasterToSlaveCallable;
 import org.jenkinsci.plugins.sshsteps.util.SSHStepDescriptorImpl;
 import org.jenkinsci.plugins.sshsteps.util.SSHStepExecution;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
 import org.jenkinsci.plugins.workflow.steps.StepExecution;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 /**
  * Step to remove a file/directory on remote node.
@@ -28,6 +32,14 @@ public class RemoveStep extends BasicSSHStep {
 
   private final String path;
 
+  @Setter
+  @DataBoundSetter
+  private List<String> paths;
+
+  @Setter
+  @DataBoundSetter
+  private boolean allowEmpty;
+
   @DataBoundConstructor
   public RemoveStep(String path) {
     this.path = path;
@@ -66,11 +78,12 @@ public class RemoveStep extends BasicSSHStep {
     @Override
     protected Object run() throws Exception {
       RemoveStep step = (RemoveStep) getStep();
-      if (Util.fixEmpty(step.getPath()) == null) {
+      if (Util.fixEmpty(step.getPath()) == null
+          && (step.getPaths() == null || step.getPaths().isEmpty())) {
         throw new IllegalArgumentException("path is null or empty");
       }
 
-      return getChannel().call(new RemoveCallable(step, getListener()));
+      return callOnAgent(new RemoveCallable(step, getListener()));
     }
 
     private static class RemoveCallable extends SSHMasterToSlaveCallable {
@@ -81,7 +94,17 @@ public class RemoveStep extends BasicSSHStep {
 
       @Override
       public Object execute() {
-        return getService().remove(((RemoveStep) getStep()).getPath());
+        RemoveStep step = (RemoveStep) getStep();
+        if (step.getPaths() == null || step.getPaths().isEmpty()) {
+          return getService().remove(step.getPath());
+        }
+        // Everything in one session, path (if any) goes first.
+        List<String> paths = new ArrayList<>();
+        if (Util.fixEmpty(step.getPath()) != null) {
+          paths.add(step.getPath());
+        }
+        paths.addAll(step.getPaths());
+        return getService().remove(paths, step.isAllowEmpty());
       }
     }
   }
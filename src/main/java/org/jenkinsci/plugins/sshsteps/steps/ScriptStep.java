@@ -69,22 +69,23 @@ public class ScriptStep extends BasicSSHStep {
       ScriptStep step = (ScriptStep) getStep();
       FilePath ws = getContext().get(FilePath.class);
       assert ws != null;
-      FilePath path;
       if (Util.fixEmpty(step.getScript()) == null) {
         throw new IllegalArgumentException("script is null or empty");
       }
 
-      path = ws.child(step.getScript());
+      return callWithPreConnect(() -> {
+        FilePath path = ws.child(step.getScript());
 
-      if (!path.exists()) {
-        throw new IllegalArgumentException(path.getRemote() + " does not exist.");
-      }
+        if (!path.exists()) {
+          throw new IllegalArgumentException(path.getRemote() + " does not exist.");
+        }
 
-      if (path.isDirectory()) {
-        throw new IllegalArgumentException(path.getRemote() + " is a directory.");
-      }
+        if (path.isDirectory()) {
+          throw new IllegalArgumentException(path.getRemote() + " is a directory.");
+        }
 
-      return getChannel().call(new ScriptCallable(step, getListener(), path.getRemote()));
+        return new ScriptCallable(step, getListener(), path.getRemote());
+      });
     }
 
     private static class ScriptCallable extends SSHMasterToSlaveCallable {
@@ -0,0 +1,117 @@
+package org.jenkinsci.plugins.sshsteps.steps;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.TaskListener;
+import java.io.IOException;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.jenkinsci.plugins.sshsteps.util.SSHMasterToSlaveCallable;
+import org.jenkinsci.plugins.sshsteps.util.SSHStepDescriptorImpl;
+import org.jenkinsci.plugins.sshsteps.util.SSHStepExecution;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * Step to get the size and modification time of files/directories on remote node, without
+ * transferring them.
+ *
+ * @author Naresh Rayapati
+ */
+@Getter
+public class StatStep extends BasicSSHStep {
+
+  @Serial
+  private static final long serialVersionUID = 4870323946520783015L;
+
+  private final String path;
+
+  @Setter
+  @DataBoundSetter
+  private List<String> paths;
+
+  @DataBoundConstructor
+  public StatStep(String path) {
+    this.path = path;
+  }
+
+  @Override
+  public StepExecution start(StepContext context) throws Exception {
+    return new Execution(this, context);
+  }
+
+  /**
+   * Path (if any) followed by paths.
+   */
+  List<String> allPaths() {
+    List<String> all = new ArrayList<>();
+    if (Util.fixEmpty(path) != null) {
+      all.add(path);
+    }
+    if (paths != null) {
+      all.addAll(paths);
+    }
+    return all;
+  }
+
+  @Extension
+  public static class DescriptorImpl extends SSHStepDescriptorImpl {
+
+    @Override
+    public String getFunctionName() {
+      return "sshStat";
+    }
+
+    @NonNull
+    @Override
+    public String getDisplayName() {
+      return getPrefix() + getFunctionName() + " - Get size and mtime of files on remote node.";
+    }
+  }
+
+  public static class Execution extends SSHStepExecution {
+
+    @Serial
+    private static final long serialVersionUID = -5321799482601126420L;
+
+    protected Execution(StatStep step, StepContext context)
+        throws IOException, InterruptedException {
+      super(step, context);
+    }
+
+    @Override
+    protected Object run() throws Exception {
+      StatStep step = (StatStep) getStep();
+      if (step.allPaths().isEmpty()) {
+        throw new IllegalArgumentException("path is null or empty");
+      }
+
+      return callOnAgent(new StatCallable(step, getListener()));
+    }
+
+    private static class StatCallable extends SSHMasterToSlaveCallable {
+
+      public StatCallable(StatStep step, TaskListener listener) {
+        super(step, listener);
+      }
+
+      @Override
+      public Object execute() {
+        StatStep step = (StatStep) getStep();
+        if (step instanceof ChecksumStep) {
+          ChecksumStep checksumStep = (ChecksumStep) step;
+          return getService().stat(step.allPaths(), checksumStep.getAlgorithm(),
+              checksumStep.getParallelism());
+        }
+        return getService().stat(step.allPaths(), null, 0);
+      }
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package org.jenkinsci.plugins.sshsteps.steps;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.TaskListener;
+import java.io.IOException;
+import java.io.Serial;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.jenkinsci.plugins.sshsteps.util.SSHMasterToSlaveCallable;
+import org.jenkinsci.plugins.sshsteps.util.SSHStepDescriptorImpl;
+import org.jenkinsci.plugins.sshsteps.util.SSHStepExecution;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * Step to print a remote file into the build log, fetching only what was appended since the given
+ * offset, and optionally to follow it until a line matches.
+ *
+ * @author Naresh Rayapati
+ */
+@Getter
+public class TailStep extends BasicSSHStep {
+
+  @Serial
+  private static final long serialVersionUID = -2946716301783515508L;
+
+  private final String path;
+
+  @Setter
+  @DataBoundSetter
+  private long offset;
+
+  @Setter
+  @DataBoundSetter
+  private boolean follow;
+
+  @Setter
+  @DataBoundSetter
+  private String until;
+
+  @Setter
+  @DataBoundSetter
+  private int timeoutSec;
+
+  @DataBoundConstructor
+  public TailStep(String path) {
+    this.path = path;
+  }
+
+  @Override
+  public StepExecution start(StepContext context) throws Exception {
+    return new Execution(this, context);
+  }
+
+  @Extension
+  public static class DescriptorImpl extends SSHStepDescriptorImpl {
+
+    @Override
+    public String getFunctionName() {
+      return "sshTail";
+    }
+
+    @NonNull
+    @Override
+    public String getDisplayName() {
+      return getPrefix() + getFunctionName() + " - Print (and follow) a file on a remote node.";
+    }
+  }
+
+  public static class Execution extends SSHStepExecution {
+
+    @Serial
+    private static final long serialVersionUID = 3071465390247719024L;
+
+    protected Execution(TailStep step, StepContext context)
+        throws IOException, InterruptedException {
+      super(step, context);
+    }
+
+    @Override
+    protected Object run() throws Exception {
+      TailStep step = (TailStep) getStep();
+      if (Util.fixEmpty(step.getPath()) == null) {
+        throw new IllegalArgumentException("path is null or empty");
+      }
+
+      if (step.getOffset() < 0) {
+        throw new IllegalArgumentException("offset must not be negative");
+      }
+
+      if (step.getTimeoutSec() < 0) {
+        throw new IllegalArgumentException("timeoutSec must not be negative");
+      }
+
+      if (Util.fixEmpty(step.getUntil()) != null) {
+        try {
+          Pattern.compile(step.getUntil());
+        } catch (PatternSyntaxException e) {
+          throw new IllegalArgumentException("until is not a valid regex: " + e.getDescription());
+        }
+      }
+
+      return callOnAgent(new TailCallable(step, getListener()));
+    }
+
+    private static class TailCallable extends SSHMasterToSlaveCallable {
+
+      public TailCallable(TailStep step, TaskListener listener) {
+        super(step, listener);
+      }
+
+      @Override
+      public Object execute() {
+        TailStep step = (TailStep) getStep();
+        return getService().tail(step.getPath(), step.getOffset(), step.isFollow(),
+            Util.fixEmpty(step.getUntil()), step.getTimeoutSec());
+      }
+    }
+  }
+}
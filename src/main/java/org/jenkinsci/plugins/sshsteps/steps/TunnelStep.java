@@ -0,0 +1,78 @@
+package org.jenkinsci.plugins.sshsteps.steps;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import java.io.Serial;
+import lombok.Getter;
+import lombok.Setter;
+import org.jenkinsci.plugins.sshsteps.util.SSHStepDescriptorImpl;
+import org.jenkinsci.plugins.sshsteps.util.TunnelExecution;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * Block step forwarding a local port on the agent to a host and port reachable from the remote
+ * node (like ssh -L) while its body runs.
+ *
+ * @author Naresh Rayapati
+ */
+@Getter
+public class TunnelStep extends BasicSSHStep {
+
+  @Serial
+  private static final long serialVersionUID = 5327118190417420563L;
+
+  private final String remoteHost;
+
+  private final int remotePort;
+
+  @Setter
+  @DataBoundSetter
+  private int localPort;
+
+  @Setter
+  @DataBoundSetter
+  private String bindAddress = "127.0.0.1";
+
+  @DataBoundConstructor
+  public TunnelStep(String remoteHost, int remotePort) {
+    this.remoteHost = remoteHost;
+    this.remotePort = remotePort;
+  }
+
+  @Override
+  public StepExecution start(StepContext context) throws Exception {
+    if (remoteHost == null || remoteHost.isEmpty()) {
+      throw new IllegalArgumentException("remoteHost is null or empty");
+    }
+    if (remotePort <= 0 || remotePort > 65535) {
+      throw new IllegalArgumentException("remotePort must be between 1 and 65535");
+    }
+    if (localPort < 0 || localPort > 65535) {
+      throw new IllegalArgumentException("localPort must be between 0 and 65535");
+    }
+    return new TunnelExecution(this, context);
+  }
+
+  @Extension
+  public static class DescriptorImpl extends SSHStepDescriptorImpl {
+
+    @Override
+    public String getFunctionName() {
+      return "withSSHTunnel";
+    }
+
+    @NonNull
+    @Override
+    public String getDisplayName() {
+      return getPrefix() + getFunctionName() + " - Forward a local port through a remote node.";
+    }
+
+    @Override
+    public boolean takesImplicitBlockArgument() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,258 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Archive written sequentially while files are received, without staging them on disk. The
+ * format follows the file name: .zip, .tar, .tar.gz or .tgz.
+ *
+ * @author Naresh Rayapati
+ */
+public abstract class ArchiveWriter implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Create the archive, replacing an existing file.
+   *
+   * @param file archive file, the extension selects the format.
+   * @return writer.
+   */
+  public static ArchiveWriter create(File file) throws IOException {
+    String name = file.getName().toLowerCase(Locale.ROOT);
+    if (!isSupported(name)) {
+      throw new IllegalArgumentException("Unsupported archive " + file.getName());
+    }
+    OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+    if (name.endsWith(".zip")) {
+      return new Zip(out);
+    }
+    if (name.endsWith(".tar")) {
+      return new Tar(out);
+    }
+    return new Tar(new GZIPOutputStream(out, BUFFER_SIZE));
+  }
+
+  /**
+   * Whether the given archive name has a supported extension.
+   *
+   * @param name archive file name.
+   * @return true for .zip, .tar, .tar.gz and .tgz.
+   */
+  public static boolean isSupported(String name) {
+    String lower = name.toLowerCase(Locale.ROOT);
+    return lower.endsWith(".zip") || lower.endsWith(".tar") || lower.endsWith(".tar.gz")
+        || lower.endsWith(".tgz");
+  }
+
+  /**
+   * Add a directory entry.
+   *
+   * @param name entry name, '/' separated.
+   * @param modified modification time in milliseconds.
+   */
+  public abstract void addDirectory(String name, long modified) throws IOException;
+
+  /**
+   * Add a file entry, its content is written to the returned stream and closing that stream ends
+   * the entry. Tar entries are exactly {@code size} long: extra bytes (e.g. a log file still
+   * growing) are dropped and missing ones are padded with zeros.
+   *
+   * @param name entry name, '/' separated.
+   * @param size expected size in bytes.
+   * @param modified modification time in milliseconds.
+   * @return stream for the content.
+   */
+  public abstract OutputStream addFile(String name, long size, long modified) throws IOException;
+
+  private static final class Zip extends ArchiveWriter {
+
+    private final ZipOutputStream zip;
+
+    Zip(OutputStream out) {
+      this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void addDirectory(String name, long modified) throws IOException {
+      ZipEntry entry = new ZipEntry(name.endsWith("/") ? name : name + "/");
+      entry.setTime(modified);
+      zip.putNextEntry(entry);
+      zip.closeEntry();
+    }
+
+    @Override
+    public OutputStream addFile(String name, long size, long modified) throws IOException {
+      ZipEntry entry = new ZipEntry(name);
+      entry.setTime(modified);
+      zip.putNextEntry(entry);
+      return new FilterOutputStream(zip) {
+        private boolean closed;
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+          out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+          if (!closed) {
+            closed = true;
+            zip.closeEntry();
+          }
+        }
+      };
+    }
+
+    @Override
+    public void close() throws IOException {
+      zip.close();
+    }
+  }
+
+  /**
+   * Minimal ustar writer, names longer than 100 characters use a GNU long name entry and sizes of
+   * 8 GiB or more the GNU base-256 encoding (read by GNU tar, bsdtar and most libraries).
+   */
+  static final class Tar extends ArchiveWriter {
+
+    private static final int BLOCK = 512;
+    private static final int NAME_LENGTH = 100;
+
+    private final OutputStream out;
+
+    Tar(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void addDirectory(String name, long modified) throws IOException {
+      writeHeader(name.endsWith("/") ? name : name + "/", 0, modified, '5');
+    }
+
+    @Override
+    public OutputStream addFile(String name, long size, long modified) throws IOException {
+      writeHeader(name, size, modified, '0');
+      return new OutputStream() {
+        private long written;
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+          write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+          int count = (int) Math.min(len, size - written);
+          if (count > 0) {
+            out.write(b, off, count);
+            written += count;
+          }
+        }
+
+        @Override
+        public void close() throws IOException {
+          if (closed) {
+            return;
+          }
+          closed = true;
+          byte[] zeros = new byte[BLOCK];
+          while (written < size) {
+            int count = (int) Math.min(BLOCK, size - written);
+            out.write(zeros, 0, count);
+            written += count;
+          }
+          pad(size);
+        }
+      };
+    }
+
+    private void writeHeader(String name, long size, long modified, char type) throws IOException {
+      byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+      if (nameBytes.length > NAME_LENGTH) {
+        writeHeader("././@LongLink", nameBytes.length + 1, 0, 'L');
+        out.write(nameBytes);
+        out.write(0);
+        pad(nameBytes.length + 1);
+      }
+      byte[] header = new byte[BLOCK];
+      System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, NAME_LENGTH));
+      octal(header, 100, 8, type == '5' ? 0755 : 0644);
+      octal(header, 108, 8, 0);
+      octal(header, 116, 8, 0);
+      number(header, 124, 12, size);
+      number(header, 136, 12, modified / 1000);
+      header[156] = (byte) type;
+      System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 8);
+      for (int i = 148; i < 156; i++) {
+        header[i] = ' ';
+      }
+      long checksum = 0;
+      for (byte b : header) {
+        checksum += b & 0xff;
+      }
+      octal(header, 148, 7, checksum);
+      out.write(header);
+    }
+
+    /**
+     * Writes a numeric field, in octal when it fits, otherwise base-256: the first byte has its
+     * high bit set and the value follows big-endian in the rest of the field.
+     */
+    static void number(byte[] header, int offset, int length, long value) {
+      if (value >= 0 && Long.toOctalString(value).length() <= length - 1) {
+        octal(header, offset, length, value);
+        return;
+      }
+      if (value < 0) {
+        throw new IllegalArgumentException("Negative value for tar header: " + value);
+      }
+      long remaining = value;
+      for (int i = offset + length - 1; i > offset; i--) {
+        header[i] = (byte) remaining;
+        remaining >>>= 8;
+      }
+      header[offset] = (byte) 0x80;
+    }
+
+    private static void octal(byte[] header, int offset, int length, long value) {
+      String digits = Long.toOctalString(value);
+      if (digits.length() > length - 1) {
+        throw new IllegalArgumentException("Value too large for tar header: " + value);
+      }
+      StringBuilder field = new StringBuilder();
+      for (int i = digits.length(); i < length - 1; i++) {
+        field.append('0');
+      }
+      field.append(digits);
+      byte[] bytes = field.toString().getBytes(StandardCharsets.US_ASCII);
+      System.arraycopy(bytes, 0, header, offset, bytes.length);
+      header[offset + length - 1] = 0;
+    }
+
+    private void pad(long size) throws IOException {
+      int remainder = (int) (size % BLOCK);
+      if (remainder > 0) {
+        out.write(new byte[BLOCK - remainder]);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.write(new byte[BLOCK * 2]);
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory pipe between a writer and a reader thread, holding at most {@code maxChunks} chunks.
+ * The writer blocks while the pipe is full (back-pressure), either side can abort the pipe, which
+ * fails the other side instead of leaving it blocked. Unlike {@link java.io.PipedInputStream} it
+ * does not depend on the liveness of the threads involved.
+ *
+ * @author Naresh Rayapati
+ */
+public final class BoundedPipe {
+
+  private static final byte[] EOF = new byte[0];
+
+  private static final long POLL_MS = 100;
+
+  private final BlockingQueue<byte[]> chunks;
+  private volatile Throwable aborted;
+
+  /**
+   * Constructor.
+   *
+   * @param maxChunks number of chunks buffered before the writer blocks.
+   */
+  public BoundedPipe(int maxChunks) {
+    this.chunks = new ArrayBlockingQueue<>(maxChunks + 1);
+  }
+
+  /**
+   * Abort the pipe, the other side fails with the given cause.
+   *
+   * @param cause reason.
+   */
+  public void abort(Throwable cause) {
+    aborted = cause;
+    chunks.clear();
+  }
+
+  public boolean isAborted() {
+    return aborted != null;
+  }
+
+  private IOException abortedException() {
+    return new IOException("Pipe aborted: " + aborted.getMessage(), aborted);
+  }
+
+  /**
+   * Writing end, each write is copied into a chunk, closing it signals the end of the stream.
+   */
+  public OutputStream getOutputStream() {
+    return new OutputStream() {
+      private boolean closed;
+
+      @Override
+      public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        if (len > 0) {
+          offer(Arrays.copyOfRange(b, off, off + len));
+        }
+      }
+
+      @Override
+      public void close() throws IOException {
+        if (!closed) {
+          closed = true;
+          offer(EOF);
+        }
+      }
+    };
+  }
+
+  private void offer(byte[] chunk) throws IOException {
+    try {
+      while (!chunks.offer(chunk, POLL_MS, TimeUnit.MILLISECONDS)) {
+        if (aborted != null) {
+          throw abortedException();
+        }
+      }
+      if (aborted != null) {
+        throw abortedException();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while writing to pipe");
+    }
+  }
+
+  /**
+   * Reading end, returns end of stream once the writing end was closed.
+   */
+  public InputStream getInputStream() {
+    return new InputStream() {
+      private byte[] current;
+      private int position;
+      private boolean eof;
+
+      @Override
+      public int read() throws IOException {
+        byte[] one = new byte[1];
+        int read = read(one, 0, 1);
+        return read < 0 ? -1 : one[0] & 0xff;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+          return 0;
+        }
+        if (current == null || position == current.length) {
+          if (eof || !next()) {
+            return -1;
+          }
+        }
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, count);
+        position += count;
+        return count;
+      }
+
+      private boolean next() throws IOException {
+        try {
+          byte[] chunk;
+          do {
+            if (aborted != null) {
+              throw abortedException();
+            }
+            chunk = chunks.poll(POLL_MS, TimeUnit.MILLISECONDS);
+          } while (chunk == null);
+          if (chunk == EOF) {
+            eof = true;
+            return false;
+          }
+          current = chunk;
+          position = 0;
+          return true;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while reading from pipe");
+        }
+      }
+    };
+  }
+}
@@ -0,0 +1,25 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.util.Map;
+import jenkins.security.MasterToSlaveCallable;
+
+/**
+ * Cancels a running step callable on the agent, see {@link CancelRegistry}.
+ *
+ * @author Naresh Rayapati
+ */
+public class CancelCallable extends MasterToSlaveCallable<Map<String, Object>, InterruptedException> {
+
+  private final String executionId;
+  private final long graceMillis;
+
+  public CancelCallable(String executionId, long graceMillis) {
+    this.executionId = executionId;
+    this.graceMillis = graceMillis;
+  }
+
+  @Override
+  public Map<String, Object> call() throws InterruptedException {
+    return CancelRegistry.cancel(executionId, graceMillis);
+  }
+}
@@ -0,0 +1,130 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.jenkinsci.plugins.sshsteps.SSHService;
+
+/**
+ * Agent side registry of running step callables, keyed by the execution id of the step, so that
+ * aborting a build stops the remote commands and frees channels and agent threads instead of
+ * leaving them to run to the end.
+ *
+ * @author Naresh Rayapati
+ */
+public final class CancelRegistry {
+
+  /**
+   * Time to wait for the callable to finish after its channels were closed.
+   */
+  static final long ABORT_WAIT_MS = 5000;
+
+  private static final Map<String, Running> RUNNING = new ConcurrentHashMap<>();
+
+  private CancelRegistry() {
+  }
+
+  /**
+   * Register the callable running in the current thread.
+   *
+   * @param id execution id.
+   */
+  static void start(String id) {
+    RUNNING.put(id, new Running(Thread.currentThread()));
+  }
+
+  /**
+   * Add a service of the running callable, e.g. the destinations of a copy.
+   *
+   * @param id execution id.
+   * @param service ssh service.
+   */
+  static void add(String id, SSHService service) {
+    Running running = RUNNING.get(id);
+    if (running != null) {
+      running.services.add(service);
+    }
+  }
+
+  /**
+   * The callable finished, releasing its resources. Called from the thread of the callable, which
+   * is not interrupted by a cancel from then on (the pooled thread runs other callables next).
+   *
+   * @param id execution id.
+   */
+  static void finish(String id) {
+    Running running = RUNNING.remove(id);
+    if (running != null) {
+      synchronized (running) {
+        running.done.countDown();
+        if (running.interrupted) {
+          // Do not hand the interrupt of a cancel over to the next callable.
+          Thread.interrupted();
+        }
+      }
+    }
+  }
+
+  /**
+   * Cancel the callable: TERM to its commands, then after the grace period its channels are
+   * closed and its thread interrupted.
+   *
+   * @param id execution id.
+   * @param graceMillis time for the commands to exit after TERM.
+   * @return running (false when nothing was running), signalled (commands), forced (channels had
+   *         to be closed), released and releasedMillis (time until the callable finished).
+   */
+  public static Map<String, Object> cancel(String id, long graceMillis)
+      throws InterruptedException {
+    Map<String, Object> result = new LinkedHashMap<>();
+    Running running = RUNNING.get(id);
+    result.put("running", running != null);
+    if (running == null) {
+      return result;
+    }
+    long started = System.nanoTime();
+    int signalled = 0;
+    for (SSHService service : running.services) {
+      signalled += service.terminate();
+    }
+    boolean released = running.done.await(graceMillis, TimeUnit.MILLISECONDS);
+    result.put("signalled", signalled);
+    result.put("forced", !released);
+    if (!released) {
+      for (SSHService service : running.services) {
+        service.abort();
+      }
+      running.interrupt();
+      released = running.done.await(ABORT_WAIT_MS, TimeUnit.MILLISECONDS);
+    }
+    result.put("released", released);
+    result.put("releasedMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    return result;
+  }
+
+  private static final class Running {
+
+    private final Thread thread;
+    private final List<SSHService> services = new CopyOnWriteArrayList<>();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private boolean interrupted;
+
+    private Running(Thread thread) {
+      this.thread = thread;
+    }
+
+    /**
+     * Interrupts the thread only while the callable has not finished, guarded by this.
+     */
+    private synchronized void interrupt() {
+      if (done.getCount() > 0) {
+        interrupted = true;
+        thread.interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * In-memory output of a command, keeping up to a number of bytes. The rest is counted but dropped,
+ * and a marker with the sizes is appended to what is kept.
+ *
+ * @author Naresh Rayapati
+ */
+public final class CappedOutputStream extends OutputStream {
+
+  private final ByteArrayOutputStream kept = new ByteArrayOutputStream();
+  private final long maxBytes;
+  private long size;
+
+  /**
+   * Constructor.
+   *
+   * @param maxBytes bytes kept, the rest is dropped.
+   */
+  public CappedOutputStream(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  @Override
+  public synchronized void write(int b) {
+    if (size++ < maxBytes) {
+      kept.write(b);
+    }
+  }
+
+  @Override
+  public synchronized void write(byte[] b, int off, int len) {
+    long room = Math.max(0, maxBytes - size);
+    kept.write(b, off, (int) Math.min(room, len));
+    size += len;
+  }
+
+  /**
+   * Bytes written, including the dropped ones.
+   */
+  public synchronized long size() {
+    return size;
+  }
+
+  public synchronized boolean isTruncated() {
+    return size > maxBytes;
+  }
+
+  /**
+   * Bytes kept, followed by the truncation marker when bytes were dropped.
+   *
+   * @param charset encoding of the output, for the marker.
+   */
+  public synchronized byte[] toByteArray(String charset) {
+    if (!isTruncated()) {
+      return kept.toByteArray();
+    }
+    byte[] marker = marker().getBytes(Charset.forName(charset));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(kept.size() + marker.length);
+    bytes.writeBytes(kept.toByteArray());
+    bytes.writeBytes(marker);
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Text kept, followed by the truncation marker when bytes were dropped.
+   *
+   * @param charset encoding of the output.
+   */
+  public synchronized String toString(String charset) {
+    String text = new String(kept.toByteArray(), Charset.forName(charset));
+    return isTruncated() ? text + marker() : text;
+  }
+
+  private String marker() {
+    return System.lineSeparator() + "[output truncated, first " + maxBytes + " of " + size
+        + " bytes kept]" + System.lineSeparator();
+  }
+}
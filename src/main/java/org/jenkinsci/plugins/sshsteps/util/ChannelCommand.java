@@ -0,0 +1,145 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import com.jcraft.jsch.ChannelExec;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Output of a command run on an exec channel for the multiplexed transport. JSch's session thread
+ * pushes the output into {@link #getStdout()} and {@link #getStderr()} as it arrives, so unlike
+ * hidetake's operations no reader threads are started per command, and channels on a shared
+ * connection are all served by its one session thread.
+ *
+ * <p>The session thread only queues the lines, the thread waiting in {@link #await(ChannelExec)}
+ * hands them to the log, so a slow build log does not hold up the other channels of the
+ * connection. The queue takes up to {@link #QUEUE_LINES} lines; past that the session thread
+ * waits for the log to catch up, as JSch has no flow control per channel.
+ *
+ * @author Naresh Rayapati
+ */
+public final class ChannelCommand {
+
+  /**
+   * Time between checks for the exit status, while handing the output to the log.
+   */
+  static final long EXIT_POLL_MILLIS = 10;
+
+  /**
+   * Lines queued for the log before the session thread waits for it.
+   */
+  static final int QUEUE_LINES = 1024;
+
+  private final List<String> lines = new ArrayList<>();
+  private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_LINES);
+  private final Consumer<String> log;
+  private final Stream stdout;
+  private final Stream stderr;
+
+  /**
+   * Constructor.
+   *
+   * @param charset encoding of the output.
+   * @param log receives every line of stdout and stderr, e.g. for the build log, on the thread
+   *        waiting for the command.
+   */
+  public ChannelCommand(String charset, Consumer<String> log) {
+    this.log = log;
+    this.stdout = new Stream(new OutputMatcher(charset, line -> {
+      synchronized (lines) {
+        lines.add(line);
+      }
+      enqueue(line);
+    }));
+    this.stderr = new Stream(new OutputMatcher(charset, this::enqueue));
+  }
+
+  /**
+   * Stream for the standard output, closed by JSch at the end of the output.
+   */
+  public OutputStream getStdout() {
+    return stdout;
+  }
+
+  /**
+   * Stream for the standard error, closed by JSch at the end of the output.
+   */
+  public OutputStream getStderr() {
+    return stderr;
+  }
+
+  /**
+   * Waits for the command on the given (connected) channel to exit.
+   *
+   * @param channel channel the streams are set on.
+   * @return exit status, -1 when the channel closed without one.
+   */
+  public int await(ChannelExec channel) throws InterruptedException {
+    // The exit status may arrive after the end of the output.
+    while (!channel.isClosed()) {
+      drain(EXIT_POLL_MILLIS);
+    }
+    // Last lines without a line break, if the channel closed without closing the streams.
+    stdout.close();
+    stderr.close();
+    drain(0);
+    return channel.getExitStatus();
+  }
+
+  private void drain(long timeoutMillis) throws InterruptedException {
+    String line = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+    while (line != null) {
+      log.accept(line);
+      line = queue.poll();
+    }
+  }
+
+  private void enqueue(String line) {
+    try {
+      queue.put(line);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Lines of the standard output, same as hidetake's execute returns.
+   */
+  public String getOutput() {
+    synchronized (lines) {
+      return String.join(System.lineSeparator(), lines);
+    }
+  }
+
+  private final class Stream extends OutputStream {
+
+    private final OutputMatcher matcher;
+    private boolean done;
+
+    private Stream(OutputMatcher matcher) {
+      this.matcher = matcher;
+    }
+
+    @Override
+    public void write(int b) {
+      matcher.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      matcher.write(b, off, len);
+    }
+
+    @Override
+    public synchronized void close() {
+      if (!done) {
+        done = true;
+        matcher.finish();
+      }
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Agent wide cache of the fastest cipher per host, as measured by sshCalibrate. Lives as long as
+ * the agent JVM, calibrate again after server or hardware changes.
+ *
+ * @author Naresh Rayapati
+ */
+public final class CipherCalibration {
+
+  private static final Map<String, String> FASTEST = new ConcurrentHashMap<>();
+
+  private CipherCalibration() {
+  }
+
+  /**
+   * Fastest cipher measured for the host.
+   *
+   * @param host host key, e.g. host:port.
+   * @return cipher name, or null when the host was not calibrated on this agent.
+   */
+  public static String get(String host) {
+    return FASTEST.get(host);
+  }
+
+  public static void put(String host, String cipher) {
+    FASTEST.put(host, cipher);
+  }
+
+  public static void clear(String host) {
+    FASTEST.remove(host);
+  }
+}
@@ -0,0 +1,115 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Agent wide, per host circuit breaker for connection attempts. After {@code threshold}
+ * consecutive connect failures the circuit opens and further attempts fail fast, once
+ * {@code resetMillis} elapsed a single attempt is let through (half open) to probe the host. A
+ * successful probe closes the circuit, a failed one opens it again.
+ *
+ * @author Naresh Rayapati
+ */
+public final class CircuitBreaker {
+
+  private static final Map<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+  /**
+   * Circuit states.
+   */
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private State state = State.CLOSED;
+  private int failures;
+  private long openedAt;
+  private boolean probing;
+
+  CircuitBreaker() {
+  }
+
+  /**
+   * Breaker shared by all steps on this agent connecting to the given host.
+   *
+   * @param host host key, e.g. host:port.
+   * @return circuit breaker for the host.
+   */
+  public static CircuitBreaker forHost(String host) {
+    return BREAKERS.computeIfAbsent(host, k -> new CircuitBreaker());
+  }
+
+  /**
+   * Whether a connection attempt may be made now, moves an open circuit to half open once the
+   * reset time elapsed and lets exactly one probe through.
+   *
+   * @param resetMillis time an open circuit stays open.
+   * @param now current time in milliseconds.
+   * @return true when the attempt may proceed, false to fail fast.
+   */
+  public synchronized boolean tryAcquire(long resetMillis, long now) {
+    if (state == State.OPEN && now - openedAt >= resetMillis) {
+      state = State.HALF_OPEN;
+      probing = false;
+    }
+    if (state == State.HALF_OPEN) {
+      if (probing) {
+        return false;
+      }
+      probing = true;
+      return true;
+    }
+    return state == State.CLOSED;
+  }
+
+  /**
+   * Record a successful connection.
+   *
+   * @return true when this closed a previously open or half open circuit.
+   */
+  public synchronized boolean onSuccess() {
+    boolean recovered = state != State.CLOSED;
+    state = State.CLOSED;
+    failures = 0;
+    probing = false;
+    return recovered;
+  }
+
+  /**
+   * Record a failed connection attempt.
+   *
+   * @param threshold consecutive failures after which the circuit opens.
+   * @param now current time in milliseconds.
+   * @return true when this opened the circuit.
+   */
+  public synchronized boolean onFailure(int threshold, long now) {
+    failures++;
+    probing = false;
+    if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= threshold)) {
+      state = State.OPEN;
+      openedAt = now;
+      return true;
+    }
+    return false;
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  public synchronized int getFailures() {
+    return failures;
+  }
+
+  /**
+   * Milliseconds until an open circuit lets the next probe through.
+   *
+   * @param resetMillis time an open circuit stays open.
+   * @param now current time in milliseconds.
+   * @return remaining time, 0 when not open.
+   */
+  public synchronized long remainingOpenMillis(long resetMillis, long now) {
+    return state == State.OPEN ? Math.max(0, openedAt + resetMillis - now) : 0;
+  }
+}
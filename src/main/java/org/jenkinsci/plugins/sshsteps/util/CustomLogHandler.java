@@ -29,6 +29,7 @@ public class CustomLogHandler extends Handler {
   private long lastFlushTime;
   private final AtomicLong lineCount = new AtomicLong(0);
   private long lastRateLimitReset;
+  private String host;
 
   /**
    * Constructor with default buffering.
@@ -60,6 +61,15 @@ public class CustomLogHandler extends Handler {
     this.lastRateLimitReset = System.currentTimeMillis();
   }
 
+  /**
+   * Host the output comes from, for events.
+   *
+   * @param host host and port of the remote.
+   */
+  public void setHost(String host) {
+    this.host = host;
+  }
+
   @Override
   public synchronized void publish(LogRecord record) {
     // First time running publish method on this object - assign current execution id.
@@ -104,11 +114,13 @@ public class CustomLogHandler extends Handler {
 
   private void flushBuffer() {
     if (!buffer.isEmpty()) {
+      SSHEvents.LogFlush event = new SSHEvents.LogFlush(uuid, buffer.size());
       for (String message : buffer) {
         logger.println(message);
       }
       logger.flush();
       buffer.clear();
+      event.finish(host);
     }
   }
 
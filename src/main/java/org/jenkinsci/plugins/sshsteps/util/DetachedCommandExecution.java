@@ -0,0 +1,257 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import java.io.IOException;
+import java.io.Serial;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import jenkins.util.Timer;
+import org.jenkinsci.plugins.sshsteps.steps.BasicSSHStep;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+
+/**
+ * Execution of a command detached from the ssh session: the command is started in the background
+ * on the remote node, writing its output and exit status to a job directory, and the output is
+ * tailed by short polls scheduled on the Jenkins timer and run on the executor of the ssh steps. No
+ * thread or connection is held in between, and the polls continue after a controller restart from
+ * the last offset (output of a poll cut off by the restart may be shown again, a job launched
+ * right before the restart is not launched again).
+ *
+ * @author Naresh Rayapati
+ */
+public class DetachedCommandExecution extends StepExecution {
+
+  @Serial
+  private static final long serialVersionUID = -4186238260451073826L;
+
+  static final long MIN_POLL_MS = 2000;
+
+  static final long MAX_POLL_MS = 60000;
+
+  static final int MAX_CHUNK = 1024 * 1024;
+
+  /**
+   * Consecutive failed polls (e.g. remote node unreachable) before the step fails.
+   */
+  static final int MAX_FAILURES = 10;
+
+  private final BasicSSHStep step;
+  private final String command;
+  private final String jobDir;
+  private long offset;
+  private long delay = MIN_POLL_MS;
+  private boolean started;
+  private int failures;
+  private transient volatile ScheduledFuture<?> next;
+  private transient volatile boolean stopped;
+  /**
+   * Whether the context was completed, by a poll or by stop, guarded by this.
+   */
+  private transient boolean done;
+
+  public DetachedCommandExecution(BasicSSHStep step, String command,
+      @NonNull StepContext context) {
+    super(context);
+    this.step = step;
+    this.command = command;
+    this.jobDir = ".ssh-steps/jobs/" + UUID.randomUUID();
+  }
+
+  @Override
+  public boolean start() {
+    schedule(0);
+    return false;
+  }
+
+  @Override
+  public void onResume() {
+    schedule(0);
+  }
+
+  /**
+   * Schedules the next poll, its round trips run on the executor of the ssh steps rather than on
+   * the shared timer.
+   */
+  void schedule(long delayMillis) {
+    next = Timer.get().schedule(() -> SSHStepExecution.getExecutorService().execute(this::poll),
+        delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * One round trip: start the job, or fetch the output written since the last poll.
+   */
+  synchronized void poll() {
+    if (stopped || done) {
+      return;
+    }
+    try {
+      VirtualChannel channel = getChannel();
+      TaskListener listener = getContext().get(TaskListener.class);
+      if (!started) {
+        boolean running = (Boolean) SSHStepExecution.call(channel, step.getRemote(),
+            new StartJobCallable(step, listener, command, jobDir));
+        if (!running) {
+          // dry run
+          done = true;
+          getContext().onSuccess(null);
+          return;
+        }
+        started = true;
+        schedule(MIN_POLL_MS);
+        return;
+      }
+      Map result;
+      try {
+        result = (Map) SSHStepExecution.call(channel, step.getRemote(),
+            new PollJobCallable(step, listener, jobDir, offset));
+      } catch (IOException | RuntimeException e) {
+        if (++failures >= MAX_FAILURES) {
+          throw e;
+        }
+        listener.getLogger().println(Common.getPrefix() + "Failed to poll detached command ("
+            + failures + " of " + MAX_FAILURES + " failed polls before the step gives up), retrying: "
+            + e.getMessage());
+        delay = Math.min(delay * 2, MAX_POLL_MS);
+        schedule(delay);
+        return;
+      }
+      failures = 0;
+      long previous = offset;
+      offset = ((Number) result.get("offset")).longValue();
+      boolean more = Boolean.TRUE.equals(result.get("more"));
+      Integer exitStatus = (Integer) result.get("exitStatus");
+      if (exitStatus != null && !more) {
+        finish(channel, listener, exitStatus);
+        return;
+      }
+      if (more) {
+        schedule(0);
+        return;
+      }
+      delay = offset > previous ? MIN_POLL_MS : Math.min(delay * 2, MAX_POLL_MS);
+      schedule(delay);
+    } catch (Throwable e) {
+      done = true;
+      getContext().onFailure(e);
+    }
+  }
+
+  private void finish(VirtualChannel channel, TaskListener listener, int exitStatus)
+      throws IOException, InterruptedException {
+    SSHStepExecution.call(channel, step.getRemote(),
+        new RemoveJobCallable(step, listener, jobDir, false));
+    if (exitStatus != 0 && step.isFailOnError()) {
+      throw new IllegalStateException(
+          Common.getPrefix() + "Detached command exited with status " + exitStatus);
+    }
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("exitStatus", exitStatus);
+    result.put("jobId", jobDir.substring(jobDir.lastIndexOf('/') + 1));
+    done = true;
+    getContext().onSuccess(result);
+  }
+
+  /**
+   * Stops polling and kills the remote job. A poll in flight completes first, the context is
+   * completed only once, by whichever comes first.
+   */
+  @Override
+  public void stop(@NonNull Throwable cause) throws Exception {
+    stopped = true;
+    ScheduledFuture<?> scheduled = next;
+    if (scheduled != null) {
+      scheduled.cancel(false);
+    }
+    synchronized (this) {
+      if (done) {
+        return;
+      }
+      done = true;
+    }
+    try {
+      if (started) {
+        SSHStepExecution.call(getChannel(), step.getRemote(),
+            new RemoveJobCallable(step, getContext().get(TaskListener.class), jobDir, true));
+      }
+    } catch (Exception e) {
+      cause.addSuppressed(e);
+    } finally {
+      getContext().onFailure(cause);
+    }
+  }
+
+  @Override
+  public @NonNull
+  String getStatus() {
+    return started ? "tailing " + jobDir + " at offset " + offset : "starting " + jobDir;
+  }
+
+  private VirtualChannel getChannel() throws IOException, InterruptedException {
+    Launcher launcher = getContext().get(Launcher.class);
+    VirtualChannel channel = launcher != null ? launcher.getChannel() : null;
+    if (channel == null) {
+      throw new IllegalArgumentException(
+          "Unable to get the channel, Perhaps you forgot to surround the code with a step that provides this, such as: node, dockerNode");
+    }
+    return channel;
+  }
+
+  private static class StartJobCallable extends SSHMasterToSlaveCallable {
+
+    private final String command;
+    private final String jobDir;
+
+    StartJobCallable(BasicSSHStep step, TaskListener listener, String command, String jobDir) {
+      super(step, listener);
+      this.command = command;
+      this.jobDir = jobDir;
+    }
+
+    @Override
+    protected Object execute() {
+      return getService().startJob(command, jobDir);
+    }
+  }
+
+  private static class PollJobCallable extends SSHMasterToSlaveCallable {
+
+    private final String jobDir;
+    private final long offset;
+
+    PollJobCallable(BasicSSHStep step, TaskListener listener, String jobDir, long offset) {
+      super(step, listener);
+      this.jobDir = jobDir;
+      this.offset = offset;
+    }
+
+    @Override
+    protected Object execute() {
+      return getService().pollJob(jobDir, offset, MAX_CHUNK);
+    }
+  }
+
+  private static class RemoveJobCallable extends SSHMasterToSlaveCallable {
+
+    private final String jobDir;
+    private final boolean kill;
+
+    RemoveJobCallable(BasicSSHStep step, TaskListener listener, String jobDir, boolean kill) {
+      super(step, listener);
+      this.jobDir = jobDir;
+      this.kill = kill;
+    }
+
+    @Override
+    protected Object execute() {
+      getService().removeJob(jobDir, kill);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import jenkins.security.MasterToSlaveCallable;
+
+/**
+ * Closes a speculatively opened connection which is not going to be used.
+ *
+ * @author Naresh Rayapati
+ */
+public class DiscardPreConnectCallable extends MasterToSlaveCallable<Void, RuntimeException> {
+
+  private final String id;
+
+  public DiscardPreConnectCallable(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public Void call() {
+    PreConnectRegistry.discard(id);
+    return null;
+  }
+}
@@ -0,0 +1,76 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes everything to each of the given pipes. Pipes aborted by their reader (e.g. the
+ * destination failed) are dropped, the remaining ones keep receiving; once all of them are
+ * dropped writing fails.
+ *
+ * @author Naresh Rayapati
+ */
+public final class FanOutOutputStream extends OutputStream {
+
+  private static final Logger LOGGER = Logger.getLogger(FanOutOutputStream.class.getName());
+
+  private final List<OutputStream> outputs = new ArrayList<>();
+
+  /**
+   * Constructor.
+   *
+   * @param pipes pipes to write to.
+   */
+  public FanOutOutputStream(List<BoundedPipe> pipes) {
+    for (BoundedPipe pipe : pipes) {
+      outputs.add(pipe.getOutputStream());
+    }
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (outputs.isEmpty()) {
+      throw new IOException("All destinations failed");
+    }
+    outputs.removeIf(output -> {
+      try {
+        output.write(b, off, len);
+        return false;
+      } catch (IOException e) {
+        LOGGER.log(Level.FINE, "Dropping destination", e);
+        return true;
+      }
+    });
+    if (outputs.isEmpty()) {
+      throw new IOException("All destinations failed");
+    }
+  }
+
+  /**
+   * Whether every destination was dropped, writing fails from then on.
+   */
+  public boolean isAllFailed() {
+    return outputs.isEmpty();
+  }
+
+  @Override
+  public void close() {
+    for (OutputStream output : outputs) {
+      try {
+        output.close();
+      } catch (IOException e) {
+        LOGGER.log(Level.FINE, "Dropping destination", e);
+      }
+    }
+    outputs.clear();
+  }
+}
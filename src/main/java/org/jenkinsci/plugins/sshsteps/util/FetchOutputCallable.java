@@ -0,0 +1,24 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import jenkins.security.MasterToSlaveCallable;
+
+/**
+ * Fetches command output kept on the agent, see {@link OutputStore}.
+ *
+ * @author Naresh Rayapati
+ */
+public class FetchOutputCallable extends MasterToSlaveCallable<String, RuntimeException> {
+
+  private final String ref;
+  private final String stream;
+
+  public FetchOutputCallable(String ref, String stream) {
+    this.ref = ref;
+    this.stream = stream;
+  }
+
+  @Override
+  public String call() {
+    return OutputStore.get(ref, stream);
+  }
+}
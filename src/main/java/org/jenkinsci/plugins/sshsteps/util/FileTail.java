@@ -0,0 +1,210 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Reads what was appended to a remote file since the last poll, from the offset reached so far,
+ * so a growing file is never fetched twice. A file shorter than the offset, one that went missing
+ * and came back, one modified before the previous poll, or one whose bytes before the offset
+ * changed (replaced by a file that grew past the offset in the meantime) was truncated or rotated
+ * and is read again from the start. Lines are passed on as they complete, the first one matching
+ * {@code until} (if any) is kept.
+ *
+ * @author Naresh Rayapati
+ */
+public final class FileTail {
+
+  /**
+   * Most bytes read in one poll, so that a large backlog does not delay a match or a cancel.
+   */
+  static final int MAX_CHUNK = 1024 * 1024;
+
+  private static final int BUFFER_SIZE = 32 * 1024;
+
+  /**
+   * Bytes before the offset read again on the next poll, to tell the file from another one.
+   */
+  static final int FINGERPRINT = 64;
+
+  private final Source source;
+  private final OutputMatcher lines;
+  private final CompletableFuture<String> matched = new CompletableFuture<>();
+  private long offset;
+  private int truncations;
+  private boolean missing;
+  private Stat previous;
+  private byte[] fingerprint = new byte[0];
+
+  /**
+   * Constructor.
+   *
+   * @param source file to read.
+   * @param offset bytes already read, 0 for the whole file.
+   * @param until pattern to find in a line, null for none.
+   * @param charset encoding of the file.
+   * @param lines receives every line.
+   */
+  public FileTail(Source source, long offset, Pattern until, String charset,
+      Consumer<String> lines) {
+    this.source = source;
+    this.offset = offset;
+    this.lines = new OutputMatcher(until, charset, lines, matched);
+  }
+
+  /**
+   * Reads up to {@value #MAX_CHUNK} bytes appended since the last poll.
+   *
+   * @return true when there is more to read right away.
+   * @throws IOException when the file cannot be read.
+   */
+  public boolean poll() throws IOException {
+    Stat stat = source.stat();
+    if (stat == null) {
+      missing = true;
+      return false;
+    }
+    long size = stat.getSize();
+    if (size < offset || (missing && offset > 0)
+        || (previous != null && stat.getModified() < previous.getModified())) {
+      rotated();
+    }
+    missing = false;
+    previous = stat;
+    if (size <= offset) {
+      return false;
+    }
+    InputStream in = source.open(offset - fingerprint.length);
+    try {
+      // Replaced by another file which grew past the offset between two polls.
+      if (fingerprint.length > 0
+          && !Arrays.equals(in.readNBytes(fingerprint.length), fingerprint)) {
+        in.close();
+        rotated();
+        in = source.open(0);
+      }
+      long length = Math.min(size - offset, MAX_CHUNK);
+      byte[] buffer = new byte[(int) Math.min(length, BUFFER_SIZE)];
+      long remaining = length;
+      while (remaining > 0 && !isMatched()) {
+        int read = in.read(buffer, 0, (int) Math.min(remaining, buffer.length));
+        if (read < 0) {
+          break;
+        }
+        lines.write(buffer, 0, read);
+        remember(buffer, read);
+        offset += read;
+        remaining -= read;
+      }
+    } finally {
+      in.close();
+    }
+    return offset < size && !isMatched();
+  }
+
+  /**
+   * Truncated or rotated, the partial line left belongs to the previous file.
+   */
+  private void rotated() {
+    lines.finish();
+    truncations++;
+    offset = 0;
+    fingerprint = new byte[0];
+  }
+
+  /**
+   * Keeps the last {@value #FINGERPRINT} bytes read.
+   */
+  private void remember(byte[] bytes, int length) {
+    int keep = Math.min(FINGERPRINT, fingerprint.length + length);
+    int fromBytes = Math.min(length, keep);
+    byte[] next = new byte[keep];
+    System.arraycopy(fingerprint, fingerprint.length - (keep - fromBytes), next, 0,
+        keep - fromBytes);
+    System.arraycopy(bytes, length - fromBytes, next, keep - fromBytes, fromBytes);
+    fingerprint = next;
+  }
+
+  /**
+   * Passes on the last line when it did not end with a line break.
+   */
+  public void finish() {
+    lines.finish();
+  }
+
+  public long getOffset() {
+    return offset;
+  }
+
+  public int getTruncations() {
+    return truncations;
+  }
+
+  public boolean isMissing() {
+    return missing;
+  }
+
+  public boolean isMatched() {
+    return matched.isDone();
+  }
+
+  /**
+   * First line matching until, null when none (yet).
+   */
+  public String getMatchedLine() {
+    return matched.getNow(null);
+  }
+
+  /**
+   * Remote file, e.g. over SFTP.
+   */
+  public interface Source {
+
+    /**
+     * Current attributes of the file.
+     *
+     * @return size and modification time, null when the file does not exist.
+     */
+    Stat stat() throws IOException;
+
+    /**
+     * Opens the file at the given offset.
+     *
+     * @param offset bytes to skip.
+     * @return stream of the rest of the file.
+     */
+    InputStream open(long offset) throws IOException;
+  }
+
+  /**
+   * Attributes of the remote file, as SFTP reports them.
+   */
+  public static final class Stat {
+
+    private final long size;
+    private final long modified;
+
+    /**
+     * Constructor.
+     *
+     * @param size size in bytes.
+     * @param modified modification time, in seconds since the epoch.
+     */
+    public Stat(long size, long modified) {
+      this.size = size;
+      this.modified = modified;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    public long getModified() {
+      return modified;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size histogram of non-negative values with a relative precision of 1/{@value #SUB_BUCKETS}
+ * (log-linear buckets as in HDR histograms): recording is one array increment, whatever the range
+ * of values, and percentiles are read by walking the buckets.
+ *
+ * @author Naresh Rayapati
+ */
+public final class LatencyHistogram {
+
+  /**
+   * Buckets per power of two.
+   */
+  static final int SUB_BUCKETS = 8;
+
+  private static final int SUB_BITS = 3;
+
+  private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Record a value, negative ones count as 0.
+   *
+   * @param value e.g. a duration in milliseconds.
+   */
+  public void record(long value) {
+    long v = Math.max(0, value);
+    counts.incrementAndGet(index(v));
+    count.incrementAndGet();
+    sum.addAndGet(v);
+    max.accumulateAndGet(v, Math::max);
+  }
+
+  static int index(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  /**
+   * Highest value of the given bucket.
+   */
+  static long upperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+    long sub = index % SUB_BUCKETS;
+    long lower = (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+    return lower + (1L << (exponent - SUB_BITS)) - 1;
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public double getMean() {
+    long n = count.get();
+    return n == 0 ? 0 : (double) sum.get() / n;
+  }
+
+  /**
+   * Standard deviation, from the buckets.
+   */
+  public double getStdDev() {
+    long n = 0;
+    double mean = getMean();
+    double squares = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      long c = counts.get(i);
+      if (c > 0) {
+        double delta = Math.min(upperBound(i), max.get()) - mean;
+        squares += c * delta * delta;
+        n += c;
+      }
+    }
+    return n <= 1 ? 0 : Math.sqrt(squares / (n - 1));
+  }
+
+  /**
+   * Value at the given quantile, within the precision of the buckets.
+   *
+   * @param quantile between 0 and 1, e.g. 0.99.
+   * @return upper bound of the bucket the quantile falls in (at most the max), 0 when empty.
+   */
+  public long getValue(double quantile) {
+    long n = count.get();
+    if (n == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * n));
+    long seen = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(upperBound(i), max.get());
+      }
+    }
+    return max.get();
+  }
+}
@@ -0,0 +1,99 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local file mapped into memory once and read by any number of independent streams, e.g. one per
+ * destination of a multicast upload. The pages are read from disk once and shared, each stream
+ * keeps its own position so a slow reader never holds back a fast one.
+ *
+ * @author Naresh Rayapati
+ */
+public final class MappedFile {
+
+  /**
+   * Size of a single mapping, a MappedByteBuffer is limited to 2 GB.
+   */
+  static final int SEGMENT_SIZE = 1 << 30;
+
+  private final List<MappedByteBuffer> segments;
+  private final long length;
+
+  private MappedFile(List<MappedByteBuffer> segments, long length) {
+    this.segments = segments;
+    this.length = length;
+  }
+
+  /**
+   * Map the given file read-only.
+   *
+   * @param file file to map.
+   * @return mapped file.
+   */
+  public static MappedFile map(File file) throws IOException {
+    return map(file, SEGMENT_SIZE);
+  }
+
+  static MappedFile map(File file, int segmentSize) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      List<MappedByteBuffer> segments = new ArrayList<>();
+      for (long position = 0; position < size; position += segmentSize) {
+        segments.add(channel.map(FileChannel.MapMode.READ_ONLY, position,
+            Math.min(segmentSize, size - position)));
+      }
+      return new MappedFile(segments, size);
+    }
+  }
+
+  public long getLength() {
+    return length;
+  }
+
+  /**
+   * New stream from the start of the file, independent of all other streams.
+   */
+  public InputStream newInputStream() {
+    return new InputStream() {
+      private int segment;
+      private ByteBuffer current = segments.isEmpty() ? null : segments.get(0).duplicate();
+
+      @Override
+      public int read() {
+        byte[] one = new byte[1];
+        int read = read(one, 0, 1);
+        return read < 0 ? -1 : one[0] & 0xff;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+          return 0;
+        }
+        while (current != null && !current.hasRemaining()) {
+          segment++;
+          current = segment < segments.size() ? segments.get(segment).duplicate() : null;
+        }
+        if (current == null) {
+          return -1;
+        }
+        int count = Math.min(len, current.remaining());
+        current.get(b, off, count);
+        return count;
+      }
+
+      @Override
+      public int available() {
+        return current == null ? 0 : current.remaining();
+      }
+    };
+  }
+}
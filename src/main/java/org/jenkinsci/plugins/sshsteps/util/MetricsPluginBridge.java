@@ -0,0 +1,131 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import jenkins.metrics.api.Metrics;
+
+/**
+ * Registers the metrics of {@link SSHMetrics} with the metrics plugin. Only loaded once the
+ * plugin is known to be installed, as it is an optional dependency.
+ *
+ * @author Naresh Rayapati
+ */
+final class MetricsPluginBridge {
+
+  private MetricsPluginBridge() {
+  }
+
+  static void register(String name, Object metric) {
+    if (metric instanceof LatencyHistogram) {
+      Metrics.metricRegistry()
+          .register(name, new LatencyHistogramAdapter((LatencyHistogram) metric));
+    } else if (metric instanceof AtomicLong) {
+      AtomicLong counter = (AtomicLong) metric;
+      Metrics.metricRegistry().register(name, (Gauge<Long>) counter::get);
+    }
+  }
+
+  /**
+   * Histogram of the metrics plugin reading from a {@link LatencyHistogram}.
+   */
+  private static final class LatencyHistogramAdapter extends Histogram {
+
+    private final LatencyHistogram histogram;
+
+    LatencyHistogramAdapter(LatencyHistogram histogram) {
+      super(new LatencyReservoir(histogram));
+      this.histogram = histogram;
+    }
+
+    @Override
+    public long getCount() {
+      return histogram.getCount();
+    }
+  }
+
+  private static final class LatencyReservoir implements Reservoir {
+
+    private final LatencyHistogram histogram;
+
+    LatencyReservoir(LatencyHistogram histogram) {
+      this.histogram = histogram;
+    }
+
+    @Override
+    public int size() {
+      return (int) Math.min(Integer.MAX_VALUE, histogram.getCount());
+    }
+
+    @Override
+    public void update(long value) {
+      histogram.record(value);
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+      return new LatencySnapshot(histogram);
+    }
+  }
+
+  private static final class LatencySnapshot extends Snapshot {
+
+    private final LatencyHistogram histogram;
+
+    LatencySnapshot(LatencyHistogram histogram) {
+      this.histogram = histogram;
+    }
+
+    @Override
+    public double getValue(double quantile) {
+      return histogram.getValue(quantile);
+    }
+
+    @Override
+    public long[] getValues() {
+      // Buckets are not kept as samples, report the usual quantiles.
+      return new long[] {histogram.getValue(0), histogram.getValue(0.5),
+          histogram.getValue(0.75), histogram.getValue(0.95), histogram.getValue(0.99),
+          histogram.getValue(0.999), histogram.getMax()};
+    }
+
+    @Override
+    public int size() {
+      return (int) Math.min(Integer.MAX_VALUE, histogram.getCount());
+    }
+
+    @Override
+    public long getMax() {
+      return histogram.getMax();
+    }
+
+    @Override
+    public double getMean() {
+      return histogram.getMean();
+    }
+
+    @Override
+    public long getMin() {
+      return histogram.getValue(0);
+    }
+
+    @Override
+    public double getStdDev() {
+      return histogram.getStdDev();
+    }
+
+    @Override
+    public void dump(OutputStream output) {
+      try (PrintWriter out = new PrintWriter(output, false, StandardCharsets.UTF_8)) {
+        for (long value : getValues()) {
+          out.println(value);
+        }
+      }
+    }
+  }
+}
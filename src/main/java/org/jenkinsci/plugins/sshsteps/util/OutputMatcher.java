@@ -0,0 +1,95 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Splits command output into lines as it arrives, passes each line on (e.g. to the build log) and
+ * completes {@code matched} with the first line matching the pattern. Lines longer than
+ * {@value #MAX_LINE} bytes are split.
+ *
+ * @author Naresh Rayapati
+ */
+public final class OutputMatcher extends OutputStream {
+
+  static final int MAX_LINE = 64 * 1024;
+
+  private final Pattern pattern;
+  private final Charset charset;
+  private final Consumer<String> lines;
+  private final CompletableFuture<String> matched;
+  private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+  /**
+   * Constructor, only splitting the output into lines.
+   *
+   * @param charset encoding of the output.
+   * @param lines receives every line.
+   */
+  public OutputMatcher(String charset, Consumer<String> lines) {
+    this(null, charset, lines, new CompletableFuture<>());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param pattern pattern to find in a line, null for none.
+   * @param charset encoding of the output.
+   * @param lines receives every line.
+   * @param matched completed with the first matching line, may be shared by several matchers.
+   */
+  public OutputMatcher(Pattern pattern, String charset, Consumer<String> lines,
+      CompletableFuture<String> matched) {
+    this.pattern = pattern;
+    this.charset = Charset.forName(charset);
+    this.lines = lines;
+    this.matched = matched;
+  }
+
+  @Override
+  public void write(int b) {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public synchronized void write(byte[] b, int off, int len) {
+    int start = off;
+    for (int i = off; i < off + len; i++) {
+      if (b[i] == '\n') {
+        line.write(b, start, i - start);
+        endLine();
+        start = i + 1;
+      } else if (line.size() + i - start >= MAX_LINE) {
+        line.write(b, start, i - start);
+        endLine();
+        start = i;
+      }
+    }
+    line.write(b, start, off + len - start);
+  }
+
+  /**
+   * Handle the last line when it did not end with a line break.
+   */
+  public synchronized void finish() {
+    if (line.size() > 0) {
+      endLine();
+    }
+  }
+
+  private void endLine() {
+    String text = new String(line.toByteArray(), charset);
+    line.reset();
+    if (text.endsWith("\r")) {
+      text = text.substring(0, text.length() - 1);
+    }
+    lines.accept(text);
+    if (pattern != null && !matched.isDone() && pattern.matcher(text).find()) {
+      matched.complete(text);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agent side buffers of command output too large to return with the result, fetched later by
+ * reference (sshOutput). Each stream is kept up to {@link #MAX_OUTPUT_BYTES}, see
+ * {@link CappedOutputStream}, and the oldest outputs are dropped when they expire or the store is
+ * full.
+ *
+ * @author Naresh Rayapati
+ */
+public final class OutputStore {
+
+  static final long EXPIRY_MS = TimeUnit.MINUTES.toMillis(30);
+
+  static final long MAX_BYTES = 256L * 1024 * 1024;
+
+  /**
+   * Bytes kept of stdout or stderr of one command, the rest is dropped with a marker.
+   */
+  public static final long MAX_OUTPUT_BYTES = 16L * 1024 * 1024;
+
+  private static final Map<String, Output> OUTPUTS = new LinkedHashMap<>();
+
+  private static long totalBytes;
+
+  private OutputStore() {
+  }
+
+  /**
+   * Keep the output of a command.
+   *
+   * @param stdout standard output.
+   * @param stderr standard error.
+   * @param charset encoding of the output.
+   * @return reference to fetch it with.
+   */
+  public static synchronized String put(byte[] stdout, byte[] stderr, String charset) {
+    expire(System.currentTimeMillis());
+    Output output = new Output(stdout, stderr, charset, System.currentTimeMillis());
+    String ref = UUID.randomUUID().toString();
+    OUTPUTS.put(ref, output);
+    totalBytes += output.size();
+    Iterator<Output> oldest = OUTPUTS.values().iterator();
+    while (totalBytes > MAX_BYTES && oldest.hasNext()) {
+      Output dropped = oldest.next();
+      if (dropped == output) {
+        break;
+      }
+      totalBytes -= dropped.size();
+      oldest.remove();
+    }
+    return ref;
+  }
+
+  /**
+   * Fetch a stream of a kept output.
+   *
+   * @param ref reference returned by {@link #put(byte[], byte[], String)}.
+   * @param stream stdout or stderr.
+   * @return the text.
+   */
+  public static synchronized String get(String ref, String stream) {
+    expire(System.currentTimeMillis());
+    Output output = OUTPUTS.get(ref);
+    if (output == null) {
+      throw new IllegalArgumentException(
+          "Output " + ref + " is not available on this agent (expired or dropped)");
+    }
+    if ("stderr".equals(stream)) {
+      return new String(output.stderr, Charset.forName(output.charset));
+    }
+    if (stream == null || "stdout".equals(stream)) {
+      return new String(output.stdout, Charset.forName(output.charset));
+    }
+    throw new IllegalArgumentException("stream must be stdout or stderr");
+  }
+
+  static synchronized void clear() {
+    OUTPUTS.clear();
+    totalBytes = 0;
+  }
+
+  private static void expire(long now) {
+    Iterator<Output> oldest = OUTPUTS.values().iterator();
+    while (oldest.hasNext()) {
+      Output output = oldest.next();
+      if (now - output.created < EXPIRY_MS) {
+        break;
+      }
+      totalBytes -= output.size();
+      oldest.remove();
+    }
+  }
+
+  private static final class Output {
+
+    private final byte[] stdout;
+    private final byte[] stderr;
+    private final String charset;
+    private final long created;
+
+    private Output(byte[] stdout, byte[] stderr, String charset, long created) {
+      this.stdout = stdout;
+      this.stderr = stderr;
+      this.charset = charset;
+      this.created = created;
+    }
+
+    private long size() {
+      return (long) stdout.length + stderr.length;
+    }
+  }
+}
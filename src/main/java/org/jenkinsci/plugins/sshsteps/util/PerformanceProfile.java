@@ -0,0 +1,137 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import com.jcraft.jsch.JSch;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Named algorithm preferences (performanceProfile in the remote) applied to the JSch session. The
+ * preferred algorithms are put in front of JSch's defaults, so servers not supporting them still
+ * negotiate one of the defaults.
+ *
+ * @author Naresh Rayapati
+ */
+public enum PerformanceProfile {
+
+  /**
+   * Bulk transfers on fast links, AES-GCM (hardware accelerated, no separate MAC), no compression.
+   */
+  THROUGHPUT("throughput",
+      "aes128-gcm@openssh.com,aes256-gcm@openssh.com,aes128-ctr,aes256-ctr",
+      "hmac-sha2-256-etm@openssh.com,hmac-sha2-256",
+      "curve25519-sha256,curve25519-sha256@libssh.org,ecdh-sha2-nistp256",
+      "none", null),
+
+  /**
+   * Least CPU spent per connection and byte, cheap key exchange and AES-CTR/GCM.
+   */
+  LOW_CPU("low-cpu",
+      "aes128-ctr,aes128-gcm@openssh.com",
+      "hmac-sha2-256-etm@openssh.com,hmac-sha1-etm@openssh.com",
+      "ecdh-sha2-nistp256,curve25519-sha256,curve25519-sha256@libssh.org",
+      "none", null),
+
+  /**
+   * Slow links with compressible payloads (logs, text, uncompressed archives), zlib compression.
+   */
+  WAN_COMPRESSED("wan-compressed",
+      "aes128-gcm@openssh.com,aes128-ctr",
+      "hmac-sha2-256-etm@openssh.com,hmac-sha2-256",
+      "curve25519-sha256,curve25519-sha256@libssh.org,ecdh-sha2-nistp256",
+      "zlib@openssh.com,zlib,none", "6");
+
+  private final String profileName;
+  private final String ciphers;
+  private final String macs;
+  private final String kex;
+  private final String compression;
+  private final String compressionLevel;
+
+  PerformanceProfile(String profileName, String ciphers, String macs, String kex,
+      String compression, String compressionLevel) {
+    this.profileName = profileName;
+    this.ciphers = ciphers;
+    this.macs = macs;
+    this.kex = kex;
+    this.compression = compression;
+    this.compressionLevel = compressionLevel;
+  }
+
+  public String getProfileName() {
+    return profileName;
+  }
+
+  /**
+   * Profile by its name in the remote.
+   *
+   * @param name profile name, e.g. throughput.
+   * @return matching profile.
+   * @throws IllegalArgumentException when there is no such profile.
+   */
+  public static PerformanceProfile of(String name) {
+    for (PerformanceProfile profile : values()) {
+      if (profile.profileName.equals(name)) {
+        return profile;
+      }
+    }
+    throw new IllegalArgumentException("Unknown performanceProfile " + name + ", supported: "
+        + String.join(", ", names()));
+  }
+
+  public static String[] names() {
+    return Arrays.stream(values()).map(PerformanceProfile::getProfileName).toArray(String[]::new);
+  }
+
+  /**
+   * JSch session config for this profile.
+   *
+   * @param calibratedCipher fastest cipher measured for the host by sshCalibrate, preferred over
+   *     the profile's ciphers for the throughput profile; may be null.
+   * @return config to be set on the session.
+   */
+  public Map<String, String> jschConfig(String calibratedCipher) {
+    Map<String, String> config = new HashMap<>();
+    String preferredCiphers = this == THROUGHPUT && calibratedCipher != null
+        ? calibratedCipher + "," + ciphers : ciphers;
+    config.put("cipher.c2s", prefer(preferredCiphers, JSch.getConfig("cipher.c2s")));
+    config.put("cipher.s2c", prefer(preferredCiphers, JSch.getConfig("cipher.s2c")));
+    config.put("mac.c2s", prefer(macs, JSch.getConfig("mac.c2s")));
+    config.put("mac.s2c", prefer(macs, JSch.getConfig("mac.s2c")));
+    config.put("kex", prefer(kex, JSch.getConfig("kex")));
+    config.put("compression.c2s", compression);
+    config.put("compression.s2c", compression);
+    if (compressionLevel != null) {
+      config.put("compression_level", compressionLevel);
+    }
+    return config;
+  }
+
+  /**
+   * JSch session config allowing only the given cipher (and no compression), used to measure it.
+   *
+   * @param cipher cipher name.
+   * @return config to be set on the session.
+   */
+  public static Map<String, String> singleCipherConfig(String cipher) {
+    Map<String, String> config = new HashMap<>();
+    config.put("cipher.c2s", cipher);
+    config.put("cipher.s2c", cipher);
+    config.put("compression.c2s", "none");
+    config.put("compression.s2c", "none");
+    return config;
+  }
+
+  /**
+   * Preferred algorithms followed by the remaining defaults, without duplicates.
+   */
+  static String prefer(String preferred, String defaults) {
+    Set<String> names = new LinkedHashSet<>(Arrays.asList(preferred.split(",")));
+    if (defaults != null) {
+      names.addAll(Arrays.asList(defaults.split(",")));
+    }
+    return String.join(",", names);
+  }
+}
@@ -0,0 +1,38 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import hudson.model.TaskListener;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jenkinsci.plugins.sshsteps.steps.BasicSSHStep;
+
+/**
+ * Opens a connection to the remote while the controller is still validating the step, the step
+ * callable picks it up from {@link PreConnectRegistry}.
+ *
+ * @author Naresh Rayapati
+ */
+public class PreConnectCallable extends SSHMasterToSlaveCallable {
+
+  private static final Logger LOGGER = Logger.getLogger(PreConnectCallable.class.getName());
+
+  private final String id;
+
+  public PreConnectCallable(BasicSSHStep step, TaskListener listener, String id) {
+    super(step, listener);
+    this.id = id;
+  }
+
+  @Override
+  protected Object execute() {
+    SSHConnection connection = null;
+    try {
+      connection = getService().connect();
+    } catch (Exception e) {
+      // The step callable falls back to a regular connection and reports the failure.
+      LOGGER.log(Level.FINE, "Pre-connect failed", e);
+    } finally {
+      PreConnectRegistry.complete(id, connection);
+    }
+    return null;
+  }
+}
@@ -0,0 +1,129 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Agent side registry of speculatively opened connections, keyed by an id generated on the
+ * controller. The pre-connect callable and the step callable may arrive in any order, both sides
+ * meet on the same future.
+ *
+ * @author Naresh Rayapati
+ */
+public final class PreConnectRegistry {
+
+  private static final Logger LOGGER = Logger.getLogger(PreConnectRegistry.class.getName());
+
+  /**
+   * Connections nobody claimed within this time are closed (e.g. the controller never sent the
+   * step callable).
+   */
+  static final long EXPIRY_MS = TimeUnit.MINUTES.toMillis(5);
+
+  private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+  private PreConnectRegistry() {
+  }
+
+  /**
+   * Publish the outcome of a pre-connect attempt.
+   *
+   * @param id pre-connect id.
+   * @param connection established connection, or null when the attempt failed.
+   */
+  public static void complete(String id, SSHConnection connection) {
+    expire();
+    Entry entry = entry(id);
+    if (!entry.future.complete(connection)) {
+      // Discarded in the meantime.
+      ENTRIES.remove(id);
+      close(connection);
+    }
+  }
+
+  /**
+   * Claim the connection for the given id, waiting for the pre-connect to finish if required.
+   *
+   * @param id pre-connect id.
+   * @param timeoutMillis longest wait for the pre-connect, e.g. in case it was lost on the way.
+   * @return established connection, or null when pre-connect failed, was discarded or did not
+   *         finish in time (its connection is then closed once it completes).
+   */
+  public static SSHConnection take(String id, long timeoutMillis) throws InterruptedException {
+    Entry entry = entry(id);
+    try {
+      SSHConnection connection = entry.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+      ENTRIES.remove(id);
+      return connection;
+    } catch (ExecutionException e) {
+      ENTRIES.remove(id);
+      return null;
+    } catch (InterruptedException e) {
+      discard(id);
+      throw e;
+    } catch (TimeoutException e) {
+      LOGGER.log(Level.FINE, "Pre-connect {0} did not finish within {1} ms",
+          new Object[] {id, timeoutMillis});
+      if (entry.future.complete(null)) {
+        // The marker is left for a late pre-connect to close its connection, like discard.
+        return null;
+      }
+      ENTRIES.remove(id);
+      return entry.future.getNow(null);
+    }
+  }
+
+  /**
+   * Drop the connection for the given id, e.g. when the step failed validation.
+   *
+   * @param id pre-connect id.
+   */
+  public static void discard(String id) {
+    Entry entry = entry(id);
+    if (!entry.future.complete(null)) {
+      ENTRIES.remove(id);
+      close(entry.future.getNow(null));
+    }
+    // Otherwise pre-connect is still running, the marker is left for it to close its connection.
+  }
+
+  private static Entry entry(String id) {
+    return ENTRIES.computeIfAbsent(id, k -> new Entry());
+  }
+
+  private static void expire() {
+    long now = System.currentTimeMillis();
+    ENTRIES.entrySet().removeIf(e -> {
+      if (now - e.getValue().created < EXPIRY_MS) {
+        return false;
+      }
+      if (!e.getValue().future.complete(null)) {
+        close(e.getValue().future.getNow(null));
+      }
+      return true;
+    });
+  }
+
+  private static void close(SSHConnection connection) {
+    if (connection == null) {
+      return;
+    }
+    try {
+      connection.close();
+    } catch (Exception e) {
+      LOGGER.log(Level.FINE, "Error closing pre-connected session", e);
+    }
+  }
+
+  private static final class Entry {
+
+    private final CompletableFuture<SSHConnection> future = new CompletableFuture<>();
+    private final long created = System.currentTimeMillis();
+  }
+}
@@ -0,0 +1,282 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remote (map of settings) sent along with a callable. The map, with identity material, gateway
+ * and proxy, is sent to an agent only the first time; the agent caches it by fingerprint and later
+ * callables carry just the id. While a callable is serialized the remote of its step is left out
+ * too, see {@link #writeLean(ObjectOutputStream)}.
+ *
+ * @author Naresh Rayapati
+ */
+public final class RemoteDescriptor implements Serializable {
+
+  @Serial
+  private static final long serialVersionUID = 3940258172650412873L;
+
+  /**
+   * Remotes cached on the agent, the least recently used ones are dropped beyond this.
+   */
+  static final int MAX_CACHED = 256;
+
+  /**
+   * Remotes not used for this long are dropped from the agent, not to keep credentials around.
+   */
+  static final long IDLE_EXPIRY_MS = TimeUnit.MINUTES.toMillis(30);
+
+  private static final ThreadLocal<Boolean> LEAN = new ThreadLocal<>();
+
+  /**
+   * Controller side: ids sent to each channel.
+   */
+  private static final Map<Object, Set<String>> SENT =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  /**
+   * Agent side: remotes by id, in access order.
+   */
+  private static final Map<String, Cached> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final String id;
+  private final Map remote;
+
+  private RemoteDescriptor(String id, Map remote) {
+    this.id = id;
+    this.remote = remote;
+  }
+
+  /**
+   * Descriptor for a callable sent to the given channel, without the map when it was sent before.
+   *
+   * @param channel channel to the agent.
+   * @param remote map of settings.
+   * @return descriptor, or null when there is no remote.
+   */
+  public static RemoteDescriptor create(Object channel, Map remote) {
+    if (remote == null) {
+      return null;
+    }
+    String id = fingerprint(remote);
+    return new RemoteDescriptor(id, sent(channel).add(id) ? remote : null);
+  }
+
+  /**
+   * Descriptor always carrying the map, e.g. after {@link NotCachedException}.
+   *
+   * @param channel channel to the agent.
+   * @param remote map of settings.
+   * @return descriptor, or null when there is no remote.
+   */
+  public static RemoteDescriptor full(Object channel, Map remote) {
+    if (remote == null) {
+      return null;
+    }
+    String id = fingerprint(remote);
+    sent(channel).add(id);
+    return new RemoteDescriptor(id, remote);
+  }
+
+  private static Set<String> sent(Object channel) {
+    return SENT.computeIfAbsent(channel, k -> Collections.synchronizedSet(new HashSet<>()));
+  }
+
+  /**
+   * Hash of the settings, independent of the order of the keys of the map and of nested maps
+   * (gateway, proxy).
+   */
+  static String fingerprint(Map remote) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] hash = digest.digest(canonical(remote));
+      StringBuilder id = new StringBuilder();
+      for (int i = 0; i < 16; i++) {
+        id.append(String.format("%02x", hash[i]));
+      }
+      return id.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Canonical form of a value of the settings: maps with their entries sorted, every value tagged
+   * with its type and prefixed with its length, so that distinct settings never share a form.
+   */
+  static byte[] canonical(Object value) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      writeCanonical(out, value);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writeCanonical(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte('n');
+    } else if (value instanceof Map<?, ?> map) {
+      List<byte[]> entries = new ArrayList<>();
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream entryOut = new DataOutputStream(bytes)) {
+          writeCanonical(entryOut, entry.getKey());
+          writeCanonical(entryOut, entry.getValue());
+        }
+        entries.add(bytes.toByteArray());
+      }
+      entries.sort(Arrays::compare);
+      out.writeByte('m');
+      out.writeInt(entries.size());
+      for (byte[] entry : entries) {
+        out.write(entry);
+      }
+    } else if (value instanceof Collection<?> collection) {
+      out.writeByte('l');
+      out.writeInt(collection.size());
+      for (Object item : collection) {
+        writeCanonical(out, item);
+      }
+    } else if (value instanceof Object[] array) {
+      writeCanonical(out, Arrays.asList(array));
+    } else if (value instanceof byte[] array) {
+      writeBytes(out, 'b', array);
+    } else if (value instanceof char[] array) {
+      writeBytes(out, 'c', new String(array).getBytes(StandardCharsets.UTF_8));
+    } else if (value instanceof CharSequence) {
+      // Strings and GStrings alike.
+      writeBytes(out, 's', value.toString().getBytes(StandardCharsets.UTF_8));
+    } else if (value instanceof Number || value instanceof Boolean
+        || value instanceof Character || value instanceof Enum) {
+      // Type and value, e.g. port 22 and 22L differ.
+      writeBytes(out, 'v', value.getClass().getName().getBytes(StandardCharsets.UTF_8));
+      writeBytes(out, 's', value.toString().getBytes(StandardCharsets.UTF_8));
+    } else if (value instanceof Serializable) {
+      // Credential objects and the like, by their serialized state.
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+        objectOut.writeObject(value);
+      }
+      writeBytes(out, 'o', bytes.toByteArray());
+    } else {
+      // Can not be sent to an agent anyway.
+      writeBytes(out, 'x', (value.getClass().getName() + ":" + value)
+          .getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private static void writeBytes(DataOutputStream out, char tag, byte[] bytes)
+      throws IOException {
+    out.writeByte(tag);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  boolean isLean() {
+    return remote == null;
+  }
+
+  /**
+   * Agent side, the map of settings sent now or before.
+   *
+   * @return map of settings.
+   * @throws NotCachedException when the map was not sent before (agent restarted or evicted it).
+   */
+  public Map resolve() throws NotCachedException {
+    long now = System.currentTimeMillis();
+    synchronized (CACHE) {
+      CACHE.values().removeIf(cached -> now - cached.used > IDLE_EXPIRY_MS);
+      if (remote != null) {
+        CACHE.put(id, new Cached(remote, now));
+        while (CACHE.size() > MAX_CACHED) {
+          CACHE.remove(CACHE.keySet().iterator().next());
+        }
+        return remote;
+      }
+      Cached cached = CACHE.get(id);
+      if (cached == null) {
+        throw new NotCachedException(id);
+      }
+      cached.used = now;
+      return cached.remote;
+    }
+  }
+
+  static void clear() {
+    SENT.clear();
+    synchronized (CACHE) {
+      CACHE.clear();
+    }
+  }
+
+  /**
+   * Default serialization of the calling object, steps in it leave out their remote (carried by
+   * a descriptor instead). Only valid from within a writeObject method.
+   *
+   * @param out stream given to writeObject.
+   */
+  public static void writeLean(ObjectOutputStream out) throws IOException {
+    LEAN.set(Boolean.TRUE);
+    try {
+      out.defaultWriteObject();
+    } finally {
+      LEAN.remove();
+    }
+  }
+
+  /**
+   * Whether the remote of steps is left out, see {@link #writeLean(ObjectOutputStream)}.
+   */
+  public static boolean isWritingLean() {
+    return Boolean.TRUE.equals(LEAN.get());
+  }
+
+  private static final class Cached {
+
+    private final Map remote;
+    private long used;
+
+    private Cached(Map remote, long used) {
+      this.remote = remote;
+      this.used = used;
+    }
+  }
+
+  /**
+   * The agent does not know the remote, the caller sends it again with
+   * {@link #full(Object, Map)}.
+   */
+  public static final class NotCachedException extends IOException {
+
+    @Serial
+    private static final long serialVersionUID = -2736019254871690235L;
+
+    public NotCachedException(String id) {
+      super("Remote " + id + " is not cached on the agent");
+    }
+  }
+}
@@ -0,0 +1,250 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Agent wide pool of shared connections (similar to OpenSSH's ControlMaster), concurrent steps
+ * targeting the same remote open their channels on one connection.
+ *
+ * <p>Each connection carries at most {@code maxSessions} concurrent channels (sshd's MaxSessions,
+ * 10 by default), a lease takes as many as its step opens at once (e.g. parallel SFTP channels).
+ * Once all connections are full, overflow connections are opened up to {@code maxConnections},
+ * after that callers queue until channels are released. Connections which
+ * dropped are replaced on the next lease, idle ones are closed after {@code idleMillis}.
+ *
+ * @author Naresh Rayapati
+ */
+public final class SSHConnectionPool {
+
+  private static final Logger LOGGER = Logger.getLogger(SSHConnectionPool.class.getName());
+
+  private static final long REAP_INTERVAL_MS = TimeUnit.SECONDS.toMillis(10);
+
+  private static final Map<String, HostPool> POOLS = new ConcurrentHashMap<>();
+
+  private static ScheduledExecutorService reaper;
+
+  private SSHConnectionPool() {
+  }
+
+  /**
+   * Lease a session of one channel on a shared connection, open one if required.
+   *
+   * @param key connection key of the remote, see {@link Common#connectionKey(Object)}.
+   * @param maxSessions maximum concurrent channels per connection.
+   * @param maxConnections maximum connections to the remote, including overflow ones.
+   * @param idleMillis time after which an unused connection is closed.
+   * @param opener opens a new connection.
+   * @return lease, to be closed once the session is over.
+   */
+  public static Lease lease(String key, int maxSessions, int maxConnections, long idleMillis,
+      Callable<SSHConnection> opener) throws Exception {
+    return lease(key, 1, maxSessions, maxConnections, idleMillis, opener);
+  }
+
+  /**
+   * Lease a session on a shared connection, open one if required.
+   *
+   * @param key connection key of the remote, see {@link Common#connectionKey(Object)}.
+   * @param channels most channels the session opens at once, at most maxSessions.
+   * @param maxSessions maximum concurrent channels per connection.
+   * @param maxConnections maximum connections to the remote, including overflow ones.
+   * @param idleMillis time after which an unused connection is closed.
+   * @param opener opens a new connection.
+   * @return lease, to be closed once the session is over.
+   */
+  public static Lease lease(String key, int channels, int maxSessions, int maxConnections,
+      long idleMillis, Callable<SSHConnection> opener) throws Exception {
+    if (channels < 1 || channels > maxSessions) {
+      throw new IllegalArgumentException(
+          "channels must be between 1 and maxSessions (" + maxSessions + "): " + channels);
+    }
+    startReaper();
+    HostPool pool = POOLS.computeIfAbsent(key, HostPool::new);
+    pool.idleMillis = idleMillis;
+    return new Lease(pool, pool.acquire(channels, maxSessions, maxConnections, opener), channels);
+  }
+
+  private static synchronized void startReaper() {
+    if (reaper == null) {
+      reaper = Executors.newSingleThreadScheduledExecutor(
+          new NamingThreadFactory(new DaemonThreadFactory(), "SSHConnectionPool.reaper"));
+      reaper.scheduleWithFixedDelay(SSHConnectionPool::reap, REAP_INTERVAL_MS, REAP_INTERVAL_MS,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private static void reap() {
+    long now = System.currentTimeMillis();
+    POOLS.values().forEach(pool -> pool.closeIdle(now));
+  }
+
+  private static void close(SSHConnection connection) {
+    try {
+      connection.close();
+    } catch (Exception e) {
+      LOGGER.log(Level.FINE, "Error closing shared connection", e);
+    }
+  }
+
+  /**
+   * A session on a shared connection.
+   */
+  public static final class Lease implements Closeable {
+
+    private final HostPool pool;
+    private final Slot slot;
+    private final int channels;
+    private boolean released;
+
+    private Lease(HostPool pool, Slot slot, int channels) {
+      this.pool = pool;
+      this.slot = slot;
+      this.channels = channels;
+    }
+
+    public SSHConnection getConnection() {
+      return slot.connection;
+    }
+
+    @Override
+    public synchronized void close() {
+      if (!released) {
+        released = true;
+        pool.release(slot, channels);
+      }
+    }
+  }
+
+  private static final class Slot {
+
+    private final SSHConnection connection;
+    private int inUse;
+    private boolean retired;
+    private long lastUsed = System.currentTimeMillis();
+
+    private Slot(SSHConnection connection) {
+      this.connection = connection;
+    }
+  }
+
+  private static final class HostPool {
+
+    private final String key;
+    private final List<Slot> slots = new ArrayList<>();
+    private int opening;
+    private volatile long idleMillis;
+
+    HostPool(String key) {
+      this.key = key;
+    }
+
+    Slot acquire(int channels, int maxSessions, int maxConnections,
+        Callable<SSHConnection> opener) throws Exception {
+      SSHEvents.QueueWait queued = null;
+      synchronized (this) {
+        while (true) {
+          retireDisconnected();
+          for (Slot slot : slots) {
+            if (slot.inUse + channels <= maxSessions) {
+              slot.inUse += channels;
+              dequeued(queued);
+              return slot;
+            }
+          }
+          if (slots.size() + opening < maxConnections) {
+            opening++;
+            dequeued(queued);
+            break;
+          }
+          // Queue until channels are released.
+          if (queued == null) {
+            queued = new SSHEvents.QueueWait("session");
+          }
+          wait();
+        }
+      }
+
+      SSHConnection connection;
+      try {
+        connection = opener.call();
+      } catch (Exception e) {
+        synchronized (this) {
+          opening--;
+          notifyAll();
+        }
+        throw e;
+      }
+
+      synchronized (this) {
+        opening--;
+        Slot slot = new Slot(connection);
+        slot.inUse = channels;
+        slots.add(slot);
+        notifyAll();
+        return slot;
+      }
+    }
+
+    private void dequeued(SSHEvents.QueueWait queued) {
+      if (queued != null) {
+        queued.finish(key);
+      }
+    }
+
+    synchronized void release(Slot slot, int channels) {
+      slot.inUse -= channels;
+      slot.lastUsed = System.currentTimeMillis();
+      if (!slot.connection.isConnected() && !slot.retired) {
+        slot.retired = true;
+        slots.remove(slot);
+      }
+      if (slot.retired && slot.inUse == 0) {
+        close(slot.connection);
+      }
+      notifyAll();
+    }
+
+    /**
+     * Drop connections which went down (e.g. the server restarted), sessions still using them get
+     * the connection closed once released.
+     */
+    private void retireDisconnected() {
+      for (Iterator<Slot> it = slots.iterator(); it.hasNext(); ) {
+        Slot slot = it.next();
+        if (!slot.connection.isConnected()) {
+          it.remove();
+          slot.retired = true;
+          if (slot.inUse == 0) {
+            close(slot.connection);
+          }
+        }
+      }
+    }
+
+    synchronized void closeIdle(long now) {
+      for (Iterator<Slot> it = slots.iterator(); it.hasNext(); ) {
+        Slot slot = it.next();
+        if (slot.inUse == 0 && now - slot.lastUsed >= idleMillis) {
+          it.remove();
+          slot.retired = true;
+          close(slot.connection);
+        }
+      }
+      retireDisconnected();
+    }
+  }
+}
@@ -0,0 +1,234 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.apache.log4j.MDC;
+
+/**
+ * Java Flight Recorder events for the phases of the SSH steps, to profile controllers and agents
+ * in production (e.g. {@code jcmd <pid> JFR.start}) and relate slow builds to phases and hosts.
+ * Every event carries the host and the execution id of the step. Events are only filled in when
+ * they are recorded, otherwise the cost is a timestamp.
+ *
+ * @author Naresh Rayapati
+ */
+public final class SSHEvents {
+
+  private static final String PREFIX = "org.jenkinsci.plugins.sshsteps.";
+
+  private SSHEvents() {
+  }
+
+  /**
+   * Execution id of the step running in the current thread, if any.
+   */
+  static String executionId() {
+    Object id = MDC.get("execution.id");
+    return id != null ? id.toString() : null;
+  }
+
+  /**
+   * Base of all events: started when created, see {@link #finish(String)}.
+   */
+  @Category({"Jenkins", "SSH Steps"})
+  @StackTrace(false)
+  public abstract static class SSHEvent extends Event {
+
+    @Label("Host")
+    String host;
+
+    @Label("Execution Id")
+    @Description("Execution id of the step, same on controller and agent")
+    String executionId;
+
+    SSHEvent() {
+      begin();
+    }
+
+    /**
+     * End the event and record it when enabled.
+     *
+     * @param host host (or connection key) the event is about.
+     */
+    public void finish(String host) {
+      end();
+      if (shouldCommit()) {
+        this.host = host;
+        if (executionId == null) {
+          executionId = executionId();
+        }
+        commit();
+      }
+    }
+  }
+
+  @Name(PREFIX + "Step")
+  @Label("SSH Step")
+  @Description("Step run on the controller, including the call to the agent")
+  public static final class Step extends SSHEvent {
+
+    @Label("Step")
+    String step;
+
+    @Label("Success")
+    boolean success;
+
+    public Step(String executionId, String step) {
+      this.executionId = executionId;
+      this.step = step;
+    }
+
+    public void setSuccess(boolean success) {
+      this.success = success;
+    }
+  }
+
+  @Name(PREFIX + "QueueWait")
+  @Label("SSH Queue Wait")
+  @Description("Wait for an executor thread (controller) or a session on a shared connection")
+  public static final class QueueWait extends SSHEvent {
+
+    @Label("Queue")
+    String queue;
+
+    public QueueWait(String queue) {
+      this.queue = queue;
+    }
+
+    /**
+     * Same as {@link #finish(String)}, for the given execution rather than the current thread's.
+     */
+    public void finish(String host, String executionId) {
+      this.executionId = executionId;
+      finish(host);
+    }
+  }
+
+  @Name(PREFIX + "Connect")
+  @Label("SSH Connect")
+  @Description("Connection attempt, through all gateways, including key exchange and authentication")
+  public static final class Connect extends SSHEvent {
+
+    @Label("Attempt")
+    int attempt;
+
+    @Label("Hops")
+    int hops;
+
+    @Label("Success")
+    boolean success;
+
+    public Connect(int attempt, int hops) {
+      this.attempt = attempt;
+      this.hops = hops;
+    }
+
+    public void setSuccess(boolean success) {
+      this.success = success;
+    }
+  }
+
+  @Name(PREFIX + "Handshake")
+  @Label("SSH Handshake")
+  @Description("Connection to one hop (gateway or target): TCP connect, key exchange and "
+      + "authentication")
+  public static final class Handshake extends SSHEvent {
+
+    @Label("Gateway")
+    boolean gateway;
+
+    @Label("Success")
+    boolean success;
+
+    public Handshake(boolean gateway) {
+      this.gateway = gateway;
+    }
+
+    public void setSuccess(boolean success) {
+      this.success = success;
+    }
+  }
+
+  @Name(PREFIX + "ChannelOpen")
+  @Label("SSH Channel Open")
+  @Description("Opening of an exec, shell or sftp channel on the target")
+  public static final class ChannelOpen extends SSHEvent {
+
+    @Label("Type")
+    String type;
+
+    public ChannelOpen(String type) {
+      this.type = type;
+    }
+  }
+
+  @Name(PREFIX + "Command")
+  @Label("SSH Command")
+  @Description("Command or script run on the remote, the command itself is not recorded")
+  public static final class Command extends SSHEvent {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Exit Status")
+    int exitStatus = -1;
+
+    public Command(String operation) {
+      this.operation = operation;
+    }
+
+    public void setExitStatus(int exitStatus) {
+      this.exitStatus = exitStatus;
+    }
+  }
+
+  @Name(PREFIX + "Transfer")
+  @Label("SSH File Transfer")
+  public static final class Transfer extends SSHEvent {
+
+    @Label("Transfer")
+    String transfer;
+
+    @Label("Upload")
+    boolean upload;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Files")
+    long files = -1;
+
+    public Transfer(String transfer, boolean upload) {
+      this.transfer = transfer;
+      this.upload = upload;
+    }
+
+    public void setBytes(long bytes) {
+      this.bytes = bytes;
+    }
+
+    public void setFiles(long files) {
+      this.files = files;
+    }
+  }
+
+  @Name(PREFIX + "LogFlush")
+  @Label("SSH Log Flush")
+  @Description("Buffered output lines written to the build log")
+  public static final class LogFlush extends SSHEvent {
+
+    @Label("Lines")
+    int lines;
+
+    public LogFlush(String executionId, int lines) {
+      this.executionId = executionId;
+      this.lines = lines;
+    }
+  }
+}
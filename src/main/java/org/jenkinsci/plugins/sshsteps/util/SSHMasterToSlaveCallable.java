@@ -3,9 +3,13 @@ package org.jenkinsci.plugins.sshsteps.util;
 import com.google.common.annotations.VisibleForTesting;
 import hudson.model.TaskListener;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.util.Map;
 import java.util.UUID;
 import jenkins.security.MasterToSlaveCallable;
 import lombok.Getter;
+import lombok.Setter;
 import org.apache.log4j.MDC;
 import org.jenkinsci.plugins.sshsteps.SSHService;
 import org.jenkinsci.plugins.sshsteps.steps.BasicSSHStep;
@@ -22,6 +26,22 @@ public abstract class SSHMasterToSlaveCallable extends MasterToSlaveCallable<Obj
   private final TaskListener listener;
   @Getter
   private SSHService service;
+  /**
+   * Id of a connection opened ahead of time by {@link PreConnectCallable}, if any.
+   */
+  @Setter
+  private String preConnectId;
+  /**
+   * Remote of the step, sent instead of the remote in the step itself.
+   */
+  @Setter
+  private RemoteDescriptor remoteDescriptor;
+  /**
+   * Id of the step execution, to cancel this callable with {@link CancelCallable}.
+   */
+  @Setter
+  private String executionId;
+  private transient Map remote;
 
   public SSHMasterToSlaveCallable(BasicSSHStep step, TaskListener listener) {
     this.step = step;
@@ -29,18 +49,86 @@ public abstract class SSHMasterToSlaveCallable extends MasterToSlaveCallable<Obj
   }
 
   @Override
-  public Object call() {
-    MDC.put("execution.id", UUID.randomUUID().toString());
-    this.service = createService();
-    return execute();
+  public Object call() throws IOException {
+    MDC.put("execution.id", executionId != null ? executionId : UUID.randomUUID().toString());
+    if (executionId != null) {
+      CancelRegistry.start(executionId);
+    }
+    SSHMetrics.Samples samples = SSHMetrics.startSamples();
+    try {
+      this.remote = remoteDescriptor != null ? remoteDescriptor.resolve() : step.getRemote();
+      this.service = createService();
+      if (preConnectId != null) {
+        try {
+          service.attach(PreConnectRegistry.take(preConnectId, preConnectTimeoutMillis(remote)));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for pre-connected session", e);
+        }
+      }
+      return new SSHMetrics.Reply(execute(), samples);
+    } catch (Exception e) {
+      if (samples.isEmpty()) {
+        throw e;
+      }
+      // Failed connects are recorded as well.
+      throw new SSHMetrics.Failure(e, samples);
+    } finally {
+      SSHMetrics.stopSamples();
+      if (executionId != null) {
+        CancelRegistry.finish(executionId);
+      }
+    }
+  }
+
+  /**
+   * Longest wait for a connection opened ahead of time: the connect timeout of the remote for every
+   * attempt, or {@link PreConnectRegistry#EXPIRY_MS} when there is none.
+   */
+  static long preConnectTimeoutMillis(Map remote) {
+    long timeoutSec = number(remote, "timeoutSec");
+    if (timeoutSec <= 0) {
+      return PreConnectRegistry.EXPIRY_MS;
+    }
+    long attempts = number(remote, "retryCount") + 1;
+    return Math.min(timeoutSec * 1000L * attempts, PreConnectRegistry.EXPIRY_MS);
+  }
+
+  private static long number(Map remote, String key) {
+    Object value = remote != null ? remote.get(key) : null;
+    return value != null ? Long.parseLong(value.toString()) : 0;
   }
 
   @VisibleForTesting
   public SSHService createService() {
-    return SSHService
-        .create(step.getRemote(), step.isFailOnError(), step.isDryRun(), listener.getLogger());
+    return createService(remote != null ? remote : step.getRemote());
+  }
+
+  /**
+   * Service for the given remote with the settings of the step, e.g. for the destinations of a
+   * copy.
+   *
+   * @param remote map of settings.
+   * @return ssh service.
+   */
+  protected SSHService createService(Map remote) {
+    SSHService created =
+        SSHService.create(remote, step.isFailOnError(), step.isDryRun(), listener.getLogger());
+    if (executionId != null) {
+      CancelRegistry.add(executionId, created);
+    }
+    return created;
   }
 
   protected abstract Object execute();
 
+  @Serial
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    if (remoteDescriptor != null) {
+      RemoteDescriptor.writeLean(out);
+    } else {
+      out.defaultWriteObject();
+    }
+  }
+
 }
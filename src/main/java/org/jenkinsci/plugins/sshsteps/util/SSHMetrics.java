@@ -0,0 +1,300 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import lombok.Getter;
+import org.jenkinsci.plugins.sshsteps.steps.BasicSSHStep;
+import org.jenkinsci.plugins.sshsteps.steps.CommandStep;
+import org.jenkinsci.plugins.sshsteps.steps.CommandsStep;
+import org.jenkinsci.plugins.sshsteps.steps.GetStep;
+import org.jenkinsci.plugins.sshsteps.steps.PutStep;
+import org.jenkinsci.plugins.sshsteps.steps.RemoveStep;
+import org.jenkinsci.plugins.sshsteps.steps.ScriptStep;
+
+/**
+ * Controller side latency histograms and counters per host and operation: connect time (measured
+ * on the agent and sent back with the result, see {@link Samples}), step duration, transfer
+ * throughput, errors and connect retries. Exposed through the metrics plugin when installed, as
+ * {@code ssh-steps.<host>.<operation>.<metric>}. Hosts beyond {@value #MAX_HOSTS} are counted as
+ * {@value #OTHER_HOST}.
+ *
+ * @author Naresh Rayapati
+ */
+public final class SSHMetrics {
+
+  private static final Logger LOGGER = Logger.getLogger(SSHMetrics.class.getName());
+
+  static final int MAX_HOSTS = 100;
+
+  static final String OTHER_HOST = "other";
+
+  private static final ThreadLocal<Samples> SAMPLES = new ThreadLocal<>();
+
+  private static final Set<String> HOSTS = ConcurrentHashMap.newKeySet();
+
+  private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+  private static final Map<String, AtomicLong> COUNTERS = new ConcurrentHashMap<>();
+
+  private SSHMetrics() {
+  }
+
+  /**
+   * Operation of a step: command, script, put, get, remove or other.
+   *
+   * @param step ssh step.
+   * @return operation name.
+   */
+  public static String operation(BasicSSHStep step) {
+    if (step instanceof CommandStep || step instanceof CommandsStep) {
+      return "command";
+    }
+    if (step instanceof ScriptStep) {
+      return "script";
+    }
+    if (step instanceof PutStep) {
+      return "put";
+    }
+    if (step instanceof GetStep) {
+      return "get";
+    }
+    if (step instanceof RemoveStep) {
+      return "remove";
+    }
+    return "other";
+  }
+
+  /**
+   * Host of a remote, as used in metric names.
+   *
+   * @param remote map of settings, may be null.
+   * @return host, with any dots replaced, or {@value #OTHER_HOST} beyond {@value #MAX_HOSTS}.
+   */
+  static String host(Map remote) {
+    String host = remote != null && remote.get("host") != null
+        ? remote.get("host").toString().replace('.', '_') : "unknown";
+    if (HOSTS.contains(host)) {
+      return host;
+    }
+    synchronized (HOSTS) {
+      if (HOSTS.size() >= MAX_HOSTS && !HOSTS.contains(host)) {
+        return OTHER_HOST;
+      }
+      HOSTS.add(host);
+    }
+    return host;
+  }
+
+  /**
+   * Record the duration of a step run on the controller.
+   */
+  public static void stepFinished(Map remote, String operation, long durationMillis,
+      boolean failed) {
+    String prefix = name(host(remote), operation);
+    histogram(prefix + ".duration").record(durationMillis);
+    if (failed) {
+      counter(prefix + ".errors").incrementAndGet();
+    }
+  }
+
+  /**
+   * Record the throughput of a put or get, from its statistics.
+   *
+   * @param stats result of the transfer, with bytes and durationMillis.
+   */
+  public static void transferred(Map remote, String operation, Map stats) {
+    Object bytes = stats.get("bytes");
+    Object millis = stats.get("durationMillis");
+    if (bytes instanceof Number && millis instanceof Number
+        && ((Number) millis).longValue() > 0) {
+      histogram(name(host(remote), operation) + ".throughputKBps")
+          .record(((Number) bytes).longValue() * 1000 / 1024 / ((Number) millis).longValue());
+    }
+  }
+
+  /**
+   * Record what the agent measured for a callable.
+   */
+  static void received(Map remote, String operation, Samples samples) {
+    String prefix = name(host(remote), operation);
+    for (long millis : samples.connectMillis) {
+      histogram(prefix + ".connect").record(millis);
+    }
+    if (samples.retries > 0) {
+      counter(prefix + ".retries").addAndGet(samples.retries);
+    }
+    if (samples.connectErrors > 0) {
+      counter(prefix + ".connectErrors").addAndGet(samples.connectErrors);
+    }
+  }
+
+  private static String name(String host, String operation) {
+    return "ssh-steps." + host + "." + operation;
+  }
+
+  static LatencyHistogram histogram(String name) {
+    LatencyHistogram histogram = HISTOGRAMS.get(name);
+    if (histogram == null) {
+      histogram = HISTOGRAMS.computeIfAbsent(name, k -> {
+        LatencyHistogram created = new LatencyHistogram();
+        expose(k, created);
+        return created;
+      });
+    }
+    return histogram;
+  }
+
+  static AtomicLong counter(String name) {
+    AtomicLong counter = COUNTERS.get(name);
+    if (counter == null) {
+      counter = COUNTERS.computeIfAbsent(name, k -> {
+        AtomicLong created = new AtomicLong();
+        expose(k, created);
+        return created;
+      });
+    }
+    return counter;
+  }
+
+  public static Map<String, LatencyHistogram> getHistograms() {
+    return Collections.unmodifiableMap(HISTOGRAMS);
+  }
+
+  public static Map<String, AtomicLong> getCounters() {
+    return Collections.unmodifiableMap(COUNTERS);
+  }
+
+  private static void expose(String name, Object metric) {
+    Jenkins jenkins = Jenkins.getInstanceOrNull();
+    if (jenkins == null || jenkins.getPlugin("metrics") == null) {
+      return;
+    }
+    try {
+      MetricsPluginBridge.register(name, metric);
+    } catch (RuntimeException | LinkageError e) {
+      LOGGER.log(Level.FINE, "Failed to register metric " + name, e);
+    }
+  }
+
+  static void clear() {
+    HOSTS.clear();
+    HISTOGRAMS.clear();
+    COUNTERS.clear();
+  }
+
+  /**
+   * Agent side: start collecting for the callable running in the current thread.
+   */
+  static Samples startSamples() {
+    Samples samples = new Samples();
+    SAMPLES.set(samples);
+    return samples;
+  }
+
+  static void stopSamples() {
+    SAMPLES.remove();
+  }
+
+  /**
+   * Agent side: a connection was opened for the current callable.
+   *
+   * @param millis time to connect, including gateways.
+   * @param retries failed attempts before.
+   */
+  public static void connected(long millis, int retries) {
+    Samples samples = SAMPLES.get();
+    if (samples != null) {
+      samples.connectMillis.add(millis);
+      samples.retries += retries;
+    }
+  }
+
+  /**
+   * Agent side: connecting failed for the current callable, after all retries.
+   *
+   * @param retries failed attempts before the last one.
+   */
+  public static void connectFailed(int retries) {
+    Samples samples = SAMPLES.get();
+    if (samples != null) {
+      samples.retries += retries;
+      samples.connectErrors++;
+    }
+  }
+
+  /**
+   * Measurements of a callable on the agent, sent back along with its result or its failure.
+   */
+  public static final class Samples implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = -6309148277405216311L;
+
+    private final List<Long> connectMillis = Collections.synchronizedList(new ArrayList<>());
+    private int retries;
+    private int connectErrors;
+
+    boolean isEmpty() {
+      return connectMillis.isEmpty() && retries == 0 && connectErrors == 0;
+    }
+  }
+
+  /**
+   * Response of a callable along with its {@link Samples}, unwrapped on the controller.
+   */
+  @Getter
+  public static final class Reply implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 2871561520466214372L;
+
+    private final Object value;
+    private final Samples samples;
+
+    Reply(Object value, Samples samples) {
+      this.value = value;
+      this.samples = samples;
+    }
+  }
+
+  /**
+   * Failure of a callable along with its {@link Samples}, unwrapped on the controller.
+   */
+  public static final class Failure extends IOException {
+
+    @Serial
+    private static final long serialVersionUID = -2196433165019356624L;
+
+    @Getter
+    private final Samples samples;
+
+    Failure(Exception cause, Samples samples) {
+      super(cause.toString(), cause);
+      this.samples = samples;
+    }
+
+    /**
+     * The failure of the callable, as thrown on the agent.
+     *
+     * @return the cause when it is an IOException, this otherwise.
+     */
+    IOException unwrap() {
+      Throwable cause = getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      return cause instanceof IOException ? (IOException) cause : this;
+    }
+  }
+}
@@ -10,10 +10,12 @@ import hudson.util.ClassLoaderSanityThreadFactory;
 import hudson.util.DaemonThreadFactory;
 import hudson.util.NamingThreadFactory;
 import java.io.IOException;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import jenkins.model.Jenkins;
 import lombok.Getter;
 import org.apache.log4j.MDC;
@@ -39,9 +41,19 @@ public abstract class SSHStepExecution<T> extends StepExecution {
   @Getter
   private final BasicSSHStep step;
 
+  /**
+   * Grace period for commands to exit on cancel, when the remote has no cancelGraceSec.
+   */
+  static final int DEFAULT_CANCEL_GRACE_SEC = 10;
+
+  private final String executionId = UUID.randomUUID().toString();
   private transient volatile Future<?> task;
   private transient String threadName;
-  private transient Throwable stopCause;
+  private transient volatile Throwable stopCause;
+  /**
+   * Whether the context was completed, by the task or by stop, whichever comes first.
+   */
+  private final AtomicBoolean completed = new AtomicBoolean();
 
   protected SSHStepExecution(BasicSSHStep step, @NonNull StepContext context)
       throws IOException, InterruptedException {
@@ -76,23 +88,132 @@ public abstract class SSHStepExecution<T> extends StepExecution {
     return channel;
   }
 
+  /**
+   * Runs the given callable on the agent.
+   *
+   * @param callable callable to run.
+   * @return response from the callable.
+   */
+  protected Object callOnAgent(SSHMasterToSlaveCallable callable)
+      throws IOException, InterruptedException {
+    callable.setExecutionId(executionId);
+    return call(getChannel(), step.getRemote(), callable);
+  }
+
+  /**
+   * Runs the given callable on the given channel, sending the remote only when the agent does not
+   * have it yet (see {@link RemoteDescriptor}). What the agent measured is recorded in
+   * {@link SSHMetrics}.
+   */
+  static Object call(VirtualChannel channel, Map remote, SSHMasterToSlaveCallable callable)
+      throws IOException, InterruptedException {
+    callable.setRemoteDescriptor(RemoteDescriptor.create(channel, remote));
+    Object response;
+    try {
+      try {
+        response = channel.call(callable);
+      } catch (RemoteDescriptor.NotCachedException e) {
+        // Agent restarted or dropped the remote in the meantime, send it along again.
+        callable.setRemoteDescriptor(RemoteDescriptor.full(channel, remote));
+        response = channel.call(callable);
+      }
+    } catch (SSHMetrics.Failure e) {
+      SSHMetrics.received(remote, SSHMetrics.operation(callable.getStep()), e.getSamples());
+      throw e.unwrap();
+    }
+    if (response instanceof SSHMetrics.Reply) {
+      SSHMetrics.Reply reply = (SSHMetrics.Reply) response;
+      SSHMetrics.received(remote, SSHMetrics.operation(callable.getStep()), reply.getSamples());
+      return reply.getValue();
+    }
+    return response;
+  }
+
+  /**
+   * Same as {@link #callOnAgent(SSHMasterToSlaveCallable)}, but when {@code preConnect} is enabled
+   * on the remote the connection is opened on the agent while the factory is still validating the
+   * step (usually workspace round trips), and handed over to the callable.
+   *
+   * @param factory validates the step and creates the callable.
+   * @return response from the callable.
+   */
+  protected Object callWithPreConnect(CallableFactory factory) throws Exception {
+    String preConnectId = startPreConnect();
+    SSHMasterToSlaveCallable callable;
+    try {
+      callable = factory.create();
+    } catch (Throwable e) {
+      discardPreConnect(preConnectId);
+      throw e;
+    }
+    callable.setPreConnectId(preConnectId);
+    return callOnAgent(callable);
+  }
+
+  private String startPreConnect() {
+    Map remote = step.getRemote();
+    if (step.isDryRun() || remote == null
+        || !Boolean.parseBoolean(String.valueOf(remote.get("preConnect")))) {
+      return null;
+    }
+    String id = UUID.randomUUID().toString();
+    try {
+      VirtualChannel channel = getChannel();
+      PreConnectCallable callable = new PreConnectCallable(step, listener, id);
+      // Always with the remote, a cache miss would leave the step waiting for the connection.
+      callable.setRemoteDescriptor(RemoteDescriptor.full(channel, remote));
+      channel.callAsync(callable);
+    } catch (IOException e) {
+      return null;
+    }
+    return id;
+  }
+
+  private void discardPreConnect(String preConnectId) {
+    if (preConnectId != null) {
+      try {
+        getChannel().callAsync(new DiscardPreConnectCallable(preConnectId));
+      } catch (IOException e) {
+        // Expires on the agent anyway.
+      }
+    }
+  }
+
   @Override
   public final boolean start() {
     Authentication auth = Jenkins.getAuthentication2();
+    String host = step.getRemote() != null ? String.valueOf(step.getRemote().get("host")) : null;
+    SSHEvents.QueueWait queued = new SSHEvents.QueueWait("executor");
     task = getExecutorService().submit(() -> {
       threadName = Thread.currentThread().getName();
+      queued.finish(host, executionId);
+      SSHEvents.Step event = new SSHEvents.Step(executionId, step.getClass().getSimpleName());
+      String operation = SSHMetrics.operation(step);
+      long started = System.nanoTime();
       try {
-        MDC.put("execution.id", UUID.randomUUID().toString());
+        MDC.put("execution.id", executionId);
         T ret;
         try (ACLContext acl = ACL.as2(auth)) {
           ret = run();
         }
-        getContext().onSuccess(ret);
+        event.setSuccess(true);
+        event.finish(host);
+        SSHMetrics.stepFinished(step.getRemote(), operation,
+            (System.nanoTime() - started) / 1_000_000L, false);
+        if (ret instanceof Map && ("put".equals(operation) || "get".equals(operation))) {
+          SSHMetrics.transferred(step.getRemote(), operation, (Map) ret);
+        }
+        if (completed.compareAndSet(false, true)) {
+          getContext().onSuccess(ret);
+        }
       } catch (Throwable x) {
-        if (stopCause == null) {
-          getContext().onFailure(x);
-        } else {
+        event.finish(host);
+        SSHMetrics.stepFinished(step.getRemote(), operation,
+            (System.nanoTime() - started) / 1_000_000L, true);
+        if (stopCause != null) {
           stopCause.addSuppressed(x);
+        } else if (completed.compareAndSet(false, true)) {
+          getContext().onFailure(x);
         }
       } finally {
         MDC.clear();
@@ -102,15 +223,56 @@ public abstract class SSHStepExecution<T> extends StepExecution {
   }
 
   /**
-   * If the computation is going synchronously, try to cancel that.
+   * If the computation is going synchronously, try to cancel that. The callable on the agent is
+   * cancelled first (TERM to the remote commands, closing the channels after the grace period),
+   * the step completes once it released its resources.
    */
   @Override
   public void stop(@NonNull Throwable cause) throws Exception {
-    if (task != null) {
-      stopCause = cause;
-      task.cancel(true);
+    if (task == null) {
+      if (completed.compareAndSet(false, true)) {
+        super.stop(cause);
+      }
+      return;
+    }
+    stopCause = cause;
+    getExecutorService().submit(() -> {
+      try {
+        cancelOnAgent();
+      } finally {
+        task.cancel(true);
+        if (completed.compareAndSet(false, true)) {
+          getContext().onFailure(cause);
+        }
+      }
+    });
+  }
+
+  private void cancelOnAgent() {
+    try {
+      Object grace = step.getRemote() != null ? step.getRemote().get("cancelGraceSec") : null;
+      long graceMillis = (grace != null ? Long.parseLong(grace.toString())
+          : DEFAULT_CANCEL_GRACE_SEC) * 1000L;
+      Map<String, Object> result =
+          getChannel().call(new CancelCallable(executionId, graceMillis));
+      if (!Boolean.TRUE.equals(result.get("running"))) {
+        return;
+      }
+      StringBuilder message = new StringBuilder(Common.getPrefix()).append("Cancelled, ")
+          .append(result.get("signalled")).append(" command(s) signalled, ");
+      if (Boolean.TRUE.equals(result.get("released"))) {
+        message.append("resources released in ").append(result.get("releasedMillis")).append(" ms");
+        if (Boolean.TRUE.equals(result.get("forced"))) {
+          message.append(" (channels closed after the grace period)");
+        }
+      } else {
+        message.append("resources not released after ").append(result.get("releasedMillis"))
+            .append(" ms");
+      }
+      listener.getLogger().println(message);
+    } catch (Exception e) {
+      listener.getLogger().println(Common.getPrefix() + "Failed to cancel on the agent: " + e);
     }
-    super.stop(cause);
   }
 
   @Override
@@ -129,4 +291,12 @@ public abstract class SSHStepExecution<T> extends StepExecution {
     }
   }
 
+  /**
+   * Creates the callable for a step, see {@link #callWithPreConnect(CallableFactory)}.
+   */
+  @FunctionalInterface
+  protected interface CallableFactory {
+
+    SSHMasterToSlaveCallable create() throws Exception;
+  }
 }
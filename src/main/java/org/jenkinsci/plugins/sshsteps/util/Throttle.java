@@ -0,0 +1,109 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bandwidth limits applying to a transfer: the bucket of the host (bandwidthLimit of the remote)
+ * and the agent wide bucket (system property {@value #AGENT_LIMIT_PROPERTY}), both shared by all
+ * steps running on the agent.
+ *
+ * @author Naresh Rayapati
+ */
+public final class Throttle {
+
+  /**
+   * Agent wide limit for all transfers in KB/s, unlimited when not set.
+   */
+  public static final String AGENT_LIMIT_PROPERTY = "org.jenkinsci.plugins.sshsteps.bandwidthLimit";
+
+  private static final Map<String, TokenBucket> HOSTS = new ConcurrentHashMap<>();
+
+  private static TokenBucket agent;
+
+  private final List<TokenBucket> buckets;
+  private final int priority;
+
+  private Throttle(List<TokenBucket> buckets, int priority) {
+    this.buckets = buckets;
+    this.priority = priority;
+  }
+
+  /**
+   * Throttle for a transfer to the given host.
+   *
+   * @param host host key, e.g. host:port.
+   * @param hostLimitKBps bandwidthLimit of the remote in KB/s, 0 for unlimited.
+   * @param priority transferPriority of the remote (high, normal or low), null for normal.
+   * @return throttle, or null when neither the host nor the agent is limited.
+   */
+  public static Throttle forTransfer(String host, long hostLimitKBps, String priority) {
+    List<TokenBucket> buckets = new ArrayList<>(2);
+    if (hostLimitKBps > 0) {
+      long rate = hostLimitKBps * 1024;
+      TokenBucket bucket = HOSTS.computeIfAbsent(host, k -> new TokenBucket(rate));
+      if (bucket.getRate() != rate) {
+        bucket.setRate(rate);
+      }
+      buckets.add(bucket);
+    }
+    TokenBucket agentBucket = agentBucket();
+    if (agentBucket != null) {
+      buckets.add(agentBucket);
+    }
+    return buckets.isEmpty() ? null
+        : new Throttle(Collections.unmodifiableList(buckets), priorityOf(priority));
+  }
+
+  private static synchronized TokenBucket agentBucket() {
+    long limit = Long.getLong(AGENT_LIMIT_PROPERTY, 0);
+    if (limit <= 0) {
+      return null;
+    }
+    if (agent == null) {
+      agent = new TokenBucket(limit * 1024);
+    } else if (agent.getRate() != limit * 1024) {
+      agent.setRate(limit * 1024);
+    }
+    return agent;
+  }
+
+  static int priorityOf(String priority) {
+    if (priority == null || "normal".equals(priority)) {
+      return TokenBucket.NORMAL;
+    }
+    if ("high".equals(priority)) {
+      return TokenBucket.HIGH;
+    }
+    if ("low".equals(priority)) {
+      return TokenBucket.LOW;
+    }
+    throw new IllegalArgumentException("Unknown transferPriority " + priority);
+  }
+
+  public int getPriority() {
+    return priority;
+  }
+
+  /**
+   * Block until the given number of bytes may be transferred.
+   *
+   * @param bytes bytes about to be sent or received.
+   */
+  public void consume(int bytes) throws InterruptedIOException {
+    try {
+      for (TokenBucket bucket : buckets) {
+        bucket.acquire(bytes, priority);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      InterruptedIOException ioe = new InterruptedIOException("Interrupted while throttled");
+      ioe.initCause(e);
+      throw ioe;
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting bytes per second, shared by concurrent transfers. Waiting callers are
+ * served by priority, a caller only takes tokens while no caller of a higher priority waits.
+ *
+ * @author Naresh Rayapati
+ */
+public final class TokenBucket {
+
+  /**
+   * Priorities, higher values go first.
+   */
+  public static final int LOW = 0;
+  public static final int NORMAL = 1;
+  public static final int HIGH = 2;
+
+  /**
+   * Smallest burst, one SSH packet.
+   */
+  private static final long MIN_CAPACITY = 32 * 1024;
+
+  private static final long MAX_WAIT_MS = 100;
+
+  private final int[] waiting = new int[HIGH + 1];
+  private long bytesPerSecond;
+  private long capacity;
+  private double tokens;
+  private long refilledAt = System.nanoTime();
+
+  /**
+   * Constructor.
+   *
+   * @param bytesPerSecond rate limit.
+   */
+  public TokenBucket(long bytesPerSecond) {
+    setRate(bytesPerSecond);
+    tokens = capacity;
+  }
+
+  /**
+   * Change the rate, e.g. when the configured limit changed.
+   *
+   * @param bytesPerSecond rate limit.
+   */
+  public synchronized void setRate(long bytesPerSecond) {
+    if (bytesPerSecond <= 0) {
+      throw new IllegalArgumentException("bytesPerSecond must be positive");
+    }
+    this.bytesPerSecond = bytesPerSecond;
+    // Bursts of up to 1/10 second keep the flow smooth.
+    this.capacity = Math.max(MIN_CAPACITY, bytesPerSecond / 10);
+    notifyAll();
+  }
+
+  public synchronized long getRate() {
+    return bytesPerSecond;
+  }
+
+  /**
+   * Block until the given number of bytes may be transferred.
+   *
+   * @param bytes bytes about to be transferred.
+   * @param priority one of {@link #LOW}, {@link #NORMAL} or {@link #HIGH}.
+   */
+  public synchronized void acquire(long bytes, int priority) throws InterruptedException {
+    waiting[priority]++;
+    try {
+      while (bytes > 0) {
+        refill();
+        if (tokens >= 1 && !higherWaiting(priority)) {
+          long taken = Math.min((long) tokens, bytes);
+          tokens -= taken;
+          bytes -= taken;
+          continue;
+        }
+        long needed = Math.max(1, Math.min(bytes, capacity) - (long) tokens);
+        long waitMs = Math.max(1, TimeUnit.SECONDS.toMillis(needed) / bytesPerSecond);
+        wait(Math.min(waitMs, MAX_WAIT_MS));
+      }
+    } finally {
+      waiting[priority]--;
+      notifyAll();
+    }
+  }
+
+  private boolean higherWaiting(int priority) {
+    for (int p = priority + 1; p < waiting.length; p++) {
+      if (waiting[p] > 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void refill() {
+    long now = System.nanoTime();
+    tokens = Math.min(capacity, tokens + (now - refilledAt) * bytesPerSecond / 1e9d);
+    refilledAt = now;
+  }
+}
@@ -0,0 +1,238 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a put or get, fed with the file content read from or written to the SFTP streams
+ * (see {@link #count(InputStream)}), so encryption overhead and other channels of the connection
+ * are not counted, and printed to the build log every {@code intervalMillis}.
+ * Totals are known when the files were listed before the transfer, otherwise no percentage or ETA
+ * is shown.
+ *
+ * @author Naresh Rayapati
+ */
+public final class TransferProgress {
+
+  private static ScheduledExecutorService reporter;
+
+  private final String label;
+  private final String host;
+  private final boolean upload;
+  private final AtomicLong bytes = new AtomicLong();
+  private volatile long totalBytes = -1;
+  private volatile long totalFiles = -1;
+  private long startedAt;
+  private ScheduledFuture<?> report;
+  private SSHEvents.Transfer event;
+
+  /**
+   * Constructor.
+   *
+   * @param label printed in front of each line, e.g. sshPut test[host].
+   * @param upload true to count sent bytes, false to count received bytes.
+   */
+  public TransferProgress(String label, boolean upload) {
+    this(label, null, upload);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param label printed in front of each line, e.g. sshPut test[host].
+   * @param host host and port of the remote, null for several remotes.
+   * @param upload true to count sent bytes, false to count received bytes.
+   */
+  public TransferProgress(String label, String host, boolean upload) {
+    this.label = label;
+    this.host = host;
+    this.upload = upload;
+  }
+
+  public boolean isUpload() {
+    return upload;
+  }
+
+  /**
+   * Set the totals of the transfer.
+   *
+   * @param totalBytes bytes of all files.
+   * @param totalFiles number of files.
+   */
+  public void setTotals(long totalBytes, long totalFiles) {
+    this.totalBytes = totalBytes;
+    this.totalFiles = totalFiles;
+  }
+
+  public void add(long count) {
+    bytes.addAndGet(count);
+  }
+
+  /**
+   * Counts the bytes read from the given stream, e.g. a local file being uploaded.
+   *
+   * @param in stream to read.
+   * @return counting stream.
+   */
+  public InputStream count(InputStream in) {
+    return new FilterInputStream(in) {
+      @Override
+      public int read() throws IOException {
+        int read = super.read();
+        if (read >= 0) {
+          add(1);
+        }
+        return read;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+          add(read);
+        }
+        return read;
+      }
+
+      @Override
+      public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        add(skipped);
+        return skipped;
+      }
+    };
+  }
+
+  /**
+   * Counts the bytes written to the given stream, e.g. a local file being downloaded.
+   *
+   * @param out stream to write.
+   * @return counting stream.
+   */
+  public OutputStream count(OutputStream out) {
+    return new FilterOutputStream(out) {
+      @Override
+      public void write(int b) throws IOException {
+        out.write(b);
+        add(1);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        add(len);
+      }
+    };
+  }
+
+  /**
+   * Start measuring and printing progress.
+   *
+   * @param logger build log.
+   * @param intervalMillis time between progress lines, 0 to only measure.
+   */
+  public synchronized void start(PrintStream logger, long intervalMillis) {
+    bytes.set(0);
+    startedAt = System.nanoTime();
+    event = new SSHEvents.Transfer(label, upload);
+    if (intervalMillis > 0) {
+      report = reporter().scheduleAtFixedRate(() -> logger.println(describe(System.nanoTime())),
+          intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Stop measuring.
+   *
+   * @return statistics: bytes, files (when known), durationMillis and mbPerSec.
+   */
+  public synchronized Map<String, Object> finish() {
+    if (report != null) {
+      report.cancel(false);
+      report = null;
+    }
+    long finishedAt = System.nanoTime();
+    long millis = TimeUnit.NANOSECONDS.toMillis(finishedAt - startedAt);
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("bytes", bytes.get());
+    if (totalFiles >= 0) {
+      stats.put("files", totalFiles);
+    }
+    stats.put("durationMillis", millis);
+    stats.put("mbPerSec", Math.round(mbPerSec(bytes.get(), finishedAt - startedAt) * 10) / 10d);
+    if (event != null) {
+      event.setBytes(bytes.get());
+      event.setFiles(totalFiles);
+      event.finish(host);
+      event = null;
+    }
+    return stats;
+  }
+
+  /**
+   * Progress line, e.g. {@code sshGet test[host]: 1.2 GB of 5.0 GB (24%), 120 files, 85.3 MB/s,
+   * ETA 0:45}.
+   */
+  String describe(long now) {
+    long done = bytes.get();
+    long total = totalBytes;
+    long elapsed = now - startedAt;
+    double rate = mbPerSec(done, elapsed);
+    StringBuilder line = new StringBuilder(Common.getPrefix()).append(label).append(": ")
+        .append(formatBytes(done));
+    if (total > 0) {
+      line.append(" of ").append(formatBytes(total))
+          .append(String.format(Locale.ROOT, " (%d%%)", Math.min(100, done * 100 / total)));
+    }
+    if (totalFiles >= 0) {
+      line.append(", ").append(totalFiles).append(totalFiles == 1 ? " file" : " files");
+    }
+    line.append(String.format(Locale.ROOT, ", %.1f MB/s", rate));
+    if (total > 0 && done > 0) {
+      long remaining = Math.max(0, total - done);
+      long etaSec = (long) (remaining * (elapsed / 1e9d) / done);
+      line.append(String.format(Locale.ROOT, ", ETA %d:%02d", etaSec / 60, etaSec % 60));
+    }
+    return line.toString();
+  }
+
+  private static double mbPerSec(long bytes, long nanos) {
+    return nanos <= 0 ? 0 : bytes / (1024d * 1024d) / (nanos / 1e9d);
+  }
+
+  static String formatBytes(long bytes) {
+    if (bytes < 1024) {
+      return bytes + " B";
+    }
+    String[] units = {"KB", "MB", "GB", "TB"};
+    double value = bytes;
+    int unit = -1;
+    while (value >= 1024 && unit < units.length - 1) {
+      value /= 1024;
+      unit++;
+    }
+    return String.format(Locale.ROOT, "%.1f %s", value, units[unit]);
+  }
+
+  private static synchronized ScheduledExecutorService reporter() {
+    if (reporter == null) {
+      reporter = Executors.newSingleThreadScheduledExecutor(
+          new NamingThreadFactory(new DaemonThreadFactory(), "TransferProgress.reporter"));
+    }
+    return reporter;
+  }
+}
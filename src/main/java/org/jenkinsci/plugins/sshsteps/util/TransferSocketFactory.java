@@ -0,0 +1,115 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import com.jcraft.jsch.SocketFactory;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Socket factory for JSch sessions, throttling their traffic while transfers run on them. The
+ * session itself is not touched, only the time between {@link #enter(Throttle)} and
+ * {@link #exit(Throttle)}; with several transfers on one (shared) connection the highest priority
+ * throttle applies. Transferred bytes are counted on the SFTP streams (see
+ * {@link TransferProgress}), not here.
+ *
+ * @author Naresh Rayapati
+ */
+public final class TransferSocketFactory implements SocketFactory {
+
+  private final int connectTimeoutMillis;
+  private final List<Throttle> throttles = new ArrayList<>();
+  private volatile Throttle current;
+
+  /**
+   * Constructor.
+   *
+   * @param connectTimeoutMillis connect timeout, 0 for none (same as JSch's own sockets).
+   */
+  public TransferSocketFactory(int connectTimeoutMillis) {
+    this.connectTimeoutMillis = connectTimeoutMillis;
+  }
+
+  /**
+   * A transfer starts.
+   *
+   * @param throttle limits of the transfer, may be null.
+   */
+  public synchronized void enter(Throttle throttle) {
+    if (throttle != null) {
+      throttles.add(throttle);
+      update();
+    }
+  }
+
+  /**
+   * A transfer finished.
+   *
+   * @param throttle limits given to {@link #enter(Throttle)}.
+   */
+  public synchronized void exit(Throttle throttle) {
+    if (throttle != null) {
+      throttles.remove(throttle);
+      update();
+    }
+  }
+
+  private void update() {
+    Throttle highest = null;
+    for (Throttle throttle : throttles) {
+      if (highest == null || throttle.getPriority() > highest.getPriority()) {
+        highest = throttle;
+      }
+    }
+    current = highest;
+  }
+
+  @Override
+  public Socket createSocket(String host, int port) throws IOException {
+    Socket socket = new Socket();
+    try {
+      socket.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+      socket.setTcpNoDelay(true);
+    } catch (IOException e) {
+      socket.close();
+      throw e;
+    }
+    return socket;
+  }
+
+  @Override
+  public InputStream getInputStream(Socket socket) throws IOException {
+    return new FilterInputStream(socket.getInputStream()) {
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+          Throttle throttle = current;
+          if (throttle != null) {
+            throttle.consume(read);
+          }
+        }
+        return read;
+      }
+    };
+  }
+
+  @Override
+  public OutputStream getOutputStream(Socket socket) throws IOException {
+    return new FilterOutputStream(socket.getOutputStream()) {
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        Throttle throttle = current;
+        if (throttle != null) {
+          throttle.consume(len);
+        }
+        out.write(b, off, len);
+      }
+    };
+  }
+}
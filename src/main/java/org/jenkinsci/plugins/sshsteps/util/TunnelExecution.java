@@ -0,0 +1,236 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.EnvVars;
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Serial;
+import java.util.Map;
+import java.util.UUID;
+import jenkins.security.MasterToSlaveCallable;
+import org.jenkinsci.plugins.sshsteps.steps.TunnelStep;
+import org.jenkinsci.plugins.workflow.steps.BodyExecution;
+import org.jenkinsci.plugins.workflow.steps.BodyExecutionCallback;
+import org.jenkinsci.plugins.workflow.steps.EnvironmentExpander;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+
+/**
+ * Execution of withSSHTunnel: opens one dedicated connection on the agent forwarding a local port,
+ * runs the body with SSH_TUNNEL_PORT set to that port and closes the connection once the body
+ * completes, fails or is aborted. The connection lives in the agent's {@link TunnelRegistry}, it
+ * does not survive a restart of the agent, so the tunnel is gone once the block resumes after a
+ * restart.
+ *
+ * @author Naresh Rayapati
+ */
+public class TunnelExecution extends StepExecution {
+
+  @Serial
+  private static final long serialVersionUID = 2466217861013549872L;
+
+  static final String PORT_VARIABLE = "SSH_TUNNEL_PORT";
+
+  private final TunnelStep step;
+  private final String tunnelId;
+  private int localPort = -1;
+  private transient volatile BodyExecution body;
+  /**
+   * Whether stop completed the context, guarded by this together with body.
+   */
+  private transient volatile boolean stopped;
+
+  public TunnelExecution(TunnelStep step, @NonNull StepContext context) {
+    super(context);
+    this.step = step;
+    this.tunnelId = UUID.randomUUID().toString();
+  }
+
+  @Override
+  public boolean start() {
+    // Connecting takes round trips to the agent and the remote, not for the shared timer.
+    SSHStepExecution.getExecutorService().execute(this::open);
+    return false;
+  }
+
+  /**
+   * Opens the tunnel on the agent and starts the body, or closes it again when the step was
+   * stopped in the meantime.
+   */
+  void open() {
+    try {
+      VirtualChannel channel = getChannel(getContext());
+      TaskListener listener = getContext().get(TaskListener.class);
+      int port = (Integer) SSHStepExecution.call(channel, step.getRemote(),
+          new OpenTunnelCallable(step, listener, tunnelId));
+      synchronized (this) {
+        if (!stopped) {
+          localPort = port;
+          listener.getLogger().println(Common.getPrefix() + "Tunnel " + step.getBindAddress()
+              + ":" + localPort + " -> " + step.getRemoteHost() + ":" + step.getRemotePort()
+              + " via " + step.getRemote().get("name") + "[" + step.getRemote().get("host")
+              + "] open");
+          body = getContext().newBodyInvoker()
+              .withContexts(EnvironmentExpander.merge(getContext().get(EnvironmentExpander.class),
+                  new TunnelEnvironment(localPort)))
+              .withCallback(new Callback(tunnelId))
+              .start();
+          return;
+        }
+      }
+      // Stopped while connecting, the context is already completed.
+      close(getContext(), tunnelId);
+    } catch (Throwable e) {
+      try {
+        close(getContext(), tunnelId);
+      } catch (Exception x) {
+        e.addSuppressed(x);
+      }
+      if (!stopped) {
+        getContext().onFailure(e);
+      }
+    }
+  }
+
+  /**
+   * Aborts the body, which closes the tunnel, or fails right away while still opening (open
+   * closes the tunnel once the agent returns it).
+   */
+  @Override
+  public void stop(@NonNull Throwable cause) throws Exception {
+    BodyExecution running;
+    synchronized (this) {
+      running = body;
+      if (running == null) {
+        stopped = true;
+      }
+    }
+    if (running != null) {
+      running.cancel(cause);
+    } else {
+      getContext().onFailure(cause);
+    }
+  }
+
+  @Override
+  public void onResume() {
+    // A running body resumes on its own, its callback closes what is left of the tunnel.
+    if (localPort < 0) {
+      getContext().onFailure(
+          new Exception("Resume after a restart not supported while opening the tunnel"));
+    }
+  }
+
+  @Override
+  public @NonNull
+  String getStatus() {
+    return localPort < 0 ? "opening tunnel " + tunnelId
+        : "forwarding port " + localPort + " to " + step.getRemoteHost() + ":"
+            + step.getRemotePort();
+  }
+
+  private static VirtualChannel getChannel(StepContext context)
+      throws IOException, InterruptedException {
+    Launcher launcher = context.get(Launcher.class);
+    VirtualChannel channel = launcher != null ? launcher.getChannel() : null;
+    if (channel == null) {
+      throw new IllegalArgumentException(
+          "Unable to get the channel, Perhaps you forgot to surround the code with a step that provides this, such as: node, dockerNode");
+    }
+    return channel;
+  }
+
+  /**
+   * Closes the tunnel on the agent.
+   *
+   * @return false when the agent had no such tunnel (dry run or agent restarted).
+   */
+  static boolean close(StepContext context, String tunnelId)
+      throws IOException, InterruptedException {
+    return getChannel(context).call(new CloseTunnelCallable(tunnelId));
+  }
+
+  /**
+   * Sets SSH_TUNNEL_PORT for the body.
+   */
+  static class TunnelEnvironment extends EnvironmentExpander {
+
+    @Serial
+    private static final long serialVersionUID = -1738012453270813316L;
+
+    private final int port;
+
+    TunnelEnvironment(int port) {
+      this.port = port;
+    }
+
+    @Override
+    public void expand(@NonNull EnvVars env) {
+      env.override(PORT_VARIABLE, String.valueOf(port));
+    }
+  }
+
+  /**
+   * Closes the tunnel once the body is done, whatever the outcome.
+   */
+  static class Callback extends BodyExecutionCallback.TailCall {
+
+    @Serial
+    private static final long serialVersionUID = 6215334932047361528L;
+
+    private final String tunnelId;
+
+    Callback(String tunnelId) {
+      this.tunnelId = tunnelId;
+    }
+
+    @Override
+    protected void finished(StepContext context) throws Exception {
+      boolean closed = close(context, tunnelId);
+      TaskListener listener = context.get(TaskListener.class);
+      if (listener != null) {
+        listener.getLogger().println(Common.getPrefix()
+            + (closed ? "Tunnel closed" : "Tunnel was already closed (e.g. agent restarted)"));
+      }
+    }
+  }
+
+  private static class OpenTunnelCallable extends SSHMasterToSlaveCallable {
+
+    private final String tunnelId;
+
+    OpenTunnelCallable(TunnelStep step, TaskListener listener, String tunnelId) {
+      super(step, listener);
+      this.tunnelId = tunnelId;
+    }
+
+    @Override
+    protected Object execute() {
+      TunnelStep step = (TunnelStep) getStep();
+      Map result = (Map) getService().openTunnel(step.getBindAddress(), step.getLocalPort(),
+          step.getRemoteHost(), step.getRemotePort());
+      Closeable connection = (Closeable) result.get("connection");
+      if (connection != null) {
+        TunnelRegistry.add(tunnelId, connection);
+      }
+      return result.get("localPort");
+    }
+  }
+
+  private static class CloseTunnelCallable extends MasterToSlaveCallable<Boolean, IOException> {
+
+    private final String tunnelId;
+
+    CloseTunnelCallable(String tunnelId) {
+      this.tunnelId = tunnelId;
+    }
+
+    @Override
+    public Boolean call() {
+      return TunnelRegistry.close(tunnelId);
+    }
+  }
+}
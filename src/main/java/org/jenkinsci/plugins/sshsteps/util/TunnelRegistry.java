@@ -0,0 +1,50 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Agent side registry of the connections held open by withSSHTunnel blocks, by tunnel id.
+ *
+ * @author Naresh Rayapati
+ */
+public final class TunnelRegistry {
+
+  private static final Logger LOGGER = Logger.getLogger(TunnelRegistry.class.getName());
+
+  private static final Map<String, Closeable> TUNNELS = new ConcurrentHashMap<>();
+
+  private TunnelRegistry() {
+  }
+
+  static void add(String id, Closeable connection) {
+    TUNNELS.put(id, connection);
+  }
+
+  /**
+   * Closes the connection of the given tunnel.
+   *
+   * @param id tunnel id.
+   * @return false when there was no such tunnel (e.g. the agent restarted).
+   */
+  static boolean close(String id) {
+    Closeable connection = TUNNELS.remove(id);
+    if (connection == null) {
+      return false;
+    }
+    try {
+      connection.close();
+    } catch (IOException | RuntimeException e) {
+      LOGGER.log(Level.FINE, "Failed to close tunnel " + id, e);
+    }
+    return true;
+  }
+
+  static boolean isOpen(String id) {
+    return TUNNELS.containsKey(id);
+  }
+}
@@ -0,0 +1,116 @@
+package org.jenkinsci.plugins.sshsteps;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.server.shell.ProcessShellCommandFactory;
+import org.hidetake.groovy.ssh.session.BadExitStatusException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Test cases for the commands of SSHService against an embedded SSH server, run with each
+ * transport of the remote.
+ *
+ * @author Naresh Rayapati
+ */
+class SSHServiceCommandTest {
+
+  private SshServer sshd;
+  private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+  @BeforeEach
+  void startSshd(@TempDir Path dir) throws IOException {
+    sshd = SshServer.setUpDefaultServer();
+    sshd.setHost("127.0.0.1");
+    sshd.setPort(0);
+    sshd.setKeyPairProvider(new SimpleGeneratorHostKeyProvider(dir.resolve("hostkey.ser")));
+    sshd.setPasswordAuthenticator(
+        (user, password, session) -> "jenkins".equals(user) && "secret".equals(password));
+    // Runs the command without a shell, e.g. /bin/echo.
+    sshd.setCommandFactory(ProcessShellCommandFactory.INSTANCE);
+    sshd.start();
+  }
+
+  @AfterEach
+  void stopSshd() throws IOException {
+    sshd.stop(true);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"default", "multiplexed"})
+  void testExecuteCommandReturnsAndLogsOutput(String transport) throws Exception {
+    Object output = service(transport, true).executeCommand("echo hello " + transport, false);
+
+    assertThat(output.toString().trim()).isEqualTo("hello " + transport);
+    assertThat(log.toString(StandardCharsets.UTF_8)).contains("hello " + transport);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"default", "multiplexed"})
+  void testExecuteCommandWithAppendNamePrefixesOutput(String transport) throws Exception {
+    SSHService service = service(transport, true, Map.of("appendName", true));
+
+    service.executeCommand("echo prefixed", false);
+
+    assertThat(log.toString(StandardCharsets.UTF_8)).contains("embedded|prefixed");
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"default", "multiplexed"})
+  void testExecuteCommandWithBadExitStatusFails(String transport) {
+    SSHService service = service(transport, true);
+
+    assertThatExceptionOfType(BadExitStatusException.class)
+        .isThrownBy(() -> service.executeCommand("false", false))
+        .withMessageContaining("exit status 1");
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"default", "multiplexed"})
+  void testExecuteCommandWithBadExitStatusAndNoFailOnError(String transport) throws Exception {
+    Object output = service(transport, false).executeCommand("false", false);
+
+    assertThat(output.toString()).isEmpty();
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"default", "multiplexed"})
+  void testConsecutiveCommandsOnOneService(String transport) throws Exception {
+    SSHService service = service(transport, true);
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(service.executeCommand("echo run-" + i, false).toString().trim())
+          .isEqualTo("run-" + i);
+    }
+  }
+
+  private SSHService service(String transport, boolean failOnError) {
+    return service(transport, failOnError, Map.of());
+  }
+
+  private SSHService service(String transport, boolean failOnError, Map<String, Object> extra) {
+    Map<String, Object> remote = new HashMap<>(extra);
+    remote.put("name", "embedded");
+    remote.put("host", "127.0.0.1");
+    remote.put("port", sshd.getPort());
+    remote.put("user", "jenkins");
+    remote.put("password", "secret");
+    remote.put("allowAnyHosts", true);
+    remote.put("transport", transport);
+    return SSHService.create(remote, failOnError, false,
+        new PrintStream(log, true, StandardCharsets.UTF_8));
+  }
+}
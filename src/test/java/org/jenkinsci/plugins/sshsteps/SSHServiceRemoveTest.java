@@ -0,0 +1,107 @@
+package org.jenkinsci.plugins.sshsteps;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.sftp.server.SftpSubsystemFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test cases for the removal of paths and glob patterns by SSHService against an embedded SSH
+ * server.
+ *
+ * @author Naresh Rayapati
+ */
+class SSHServiceRemoveTest {
+
+  @TempDir
+  Path server;
+
+  private SshServer sshd;
+  private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+  @BeforeEach
+  void startSshd(@TempDir Path dir) throws IOException {
+    sshd = SshServer.setUpDefaultServer();
+    sshd.setHost("127.0.0.1");
+    sshd.setPort(0);
+    sshd.setKeyPairProvider(new SimpleGeneratorHostKeyProvider(dir.resolve("hostkey.ser")));
+    sshd.setPasswordAuthenticator(
+        (user, password, session) -> "jenkins".equals(user) && "secret".equals(password));
+    // Remote paths are relative to the server directory, e.g. /logs is server/logs.
+    sshd.setFileSystemFactory(new VirtualFileSystemFactory(server));
+    sshd.setSubsystemFactories(List.of(new SftpSubsystemFactory()));
+    sshd.start();
+    Files.createDirectories(server.resolve("logs"));
+    Files.writeString(server.resolve("logs/a.log"), "a");
+    Files.writeString(server.resolve("logs/b.log"), "b");
+    Files.writeString(server.resolve("logs/keep.txt"), "keep");
+  }
+
+  @AfterEach
+  void stopSshd() throws IOException {
+    sshd.stop(true);
+  }
+
+  @Test
+  void testRemoveGlob() {
+    Object results = service(true).remove(List.of("/logs/*.log"), false);
+
+    assertThat((Map<?, ?>) results).containsOnlyKeys("/logs/a.log", "/logs/b.log")
+        .containsValues(true);
+    assertThat(server.resolve("logs/a.log")).doesNotExist();
+    assertThat(server.resolve("logs/keep.txt")).exists();
+  }
+
+  @Test
+  void testGlobMatchingNothingFails() {
+    assertThatIllegalStateException()
+        .isThrownBy(() -> service(true).remove(List.of("/logs/*.tmp", "/logs/a.log"), false))
+        .withMessageContaining("/logs/*.tmp: no match");
+    assertThat(server.resolve("logs/a.log")).doesNotExist();
+  }
+
+  @Test
+  void testGlobMatchingNothingReportedWithoutFailOnError() {
+    Object results = service(false).remove(List.of("/logs/*.tmp", "/logs/a.log"), false);
+
+    assertThat((Map<?, ?>) results).containsEntry("/logs/*.tmp", false)
+        .containsEntry("/logs/a.log", true);
+  }
+
+  @Test
+  void testGlobMatchingNothingAllowed() {
+    Object results = service(true).remove(List.of("/logs/*.tmp", "/logs/a.log"), true);
+
+    assertThat((Map<?, ?>) results).containsEntry("/logs/*.tmp", false)
+        .containsEntry("/logs/a.log", true);
+    assertThat(server.resolve("logs/a.log")).doesNotExist();
+  }
+
+  private SSHService service(boolean failOnError) {
+    Map<String, Object> remote = new HashMap<>();
+    remote.put("name", "embedded");
+    remote.put("host", "127.0.0.1");
+    remote.put("port", sshd.getPort());
+    remote.put("user", "jenkins");
+    remote.put("password", "secret");
+    remote.put("allowAnyHosts", true);
+    return SSHService.create(remote, failOnError, false,
+        new PrintStream(log, true, StandardCharsets.UTF_8));
+  }
+}
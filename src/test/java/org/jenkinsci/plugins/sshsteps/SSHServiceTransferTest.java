@@ -0,0 +1,173 @@
+package org.jenkinsci.plugins.sshsteps;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.scp.server.ScpCommandFactory;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.sftp.server.SftpSubsystemFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Test cases for the puts and gets of SSHService against an embedded SSH server, run with each
+ * fileTransfer method of the remote, so both lay out files and apply filters the same way.
+ *
+ * @author Naresh Rayapati
+ */
+class SSHServiceTransferTest {
+
+  @TempDir
+  Path local;
+  @TempDir
+  Path server;
+
+  private SshServer sshd;
+  private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+  @BeforeEach
+  void startSshd(@TempDir Path dir) throws IOException {
+    sshd = SshServer.setUpDefaultServer();
+    sshd.setHost("127.0.0.1");
+    sshd.setPort(0);
+    sshd.setKeyPairProvider(new SimpleGeneratorHostKeyProvider(dir.resolve("hostkey.ser")));
+    sshd.setPasswordAuthenticator(
+        (user, password, session) -> "jenkins".equals(user) && "secret".equals(password));
+    // Remote paths are relative to the server directory, e.g. /in is server/in.
+    sshd.setFileSystemFactory(new VirtualFileSystemFactory(server));
+    sshd.setSubsystemFactories(List.of(new SftpSubsystemFactory()));
+    sshd.setCommandFactory(new ScpCommandFactory());
+    sshd.start();
+    Files.createDirectories(server.resolve("in"));
+  }
+
+  @AfterEach
+  void stopSshd() throws IOException {
+    sshd.stop(true);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"sftp", "scp"})
+  void testPutFileIntoDirectory(String fileTransfer) throws Exception {
+    Path file = write(local.resolve("app.txt"), "hello");
+
+    Object stats = service(fileTransfer).put(file.toString(), "/in", null, null);
+
+    assertThat(server.resolve("in/app.txt")).hasContent("hello");
+    assertThat((Map<?, ?>) stats).containsEntry("bytes", 5L);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"sftp", "scp"})
+  void testPutDirectory(String fileTransfer) throws Exception {
+    Path dir = tree(local.resolve("dist"));
+
+    Object stats = service(fileTransfer).put(dir.toString(), "/in", null, null);
+
+    assertThat(server.resolve("in/dist/app.txt")).hasContent("app");
+    assertThat(server.resolve("in/dist/logs/run.log")).hasContent("run log");
+    assertThat((Map<?, ?>) stats).containsEntry("bytes", 10L);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"sftp", "scp"})
+  void testPutDirectoryWithFilter(String fileTransfer) throws Exception {
+    Path dir = tree(local.resolve("dist"));
+
+    Object stats = service(fileTransfer).put(dir.toString(), "/in", "name", ".*\\.txt");
+
+    assertThat(server.resolve("in/dist/app.txt")).hasContent("app");
+    assertThat(server.resolve("in/dist/logs/run.log")).doesNotExist();
+    assertThat((Map<?, ?>) stats).containsEntry("bytes", 3L);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"sftp", "scp"})
+  void testPutContent(String fileTransfer) throws Exception {
+    service(fileTransfer).put("content".getBytes(StandardCharsets.UTF_8), "/in/content.txt");
+
+    assertThat(server.resolve("in/content.txt")).hasContent("content");
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"sftp", "scp"})
+  void testGetFileIntoDirectory(String fileTransfer) throws Exception {
+    write(server.resolve("in/app.txt"), "hello");
+
+    Object stats = service(fileTransfer).get("/in/app.txt", local.toString(), null, null);
+
+    assertThat(local.resolve("app.txt")).hasContent("hello");
+    assertThat((Map<?, ?>) stats).containsEntry("bytes", 5L).containsEntry("files", 1L);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"sftp", "scp"})
+  void testGetFileIntoFile(String fileTransfer) throws Exception {
+    write(server.resolve("in/app.txt"), "hello");
+
+    service(fileTransfer).get("/in/app.txt", local.resolve("copy.txt").toString(), null, null);
+
+    assertThat(local.resolve("copy.txt")).hasContent("hello");
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"sftp", "scp"})
+  void testGetDirectory(String fileTransfer) throws Exception {
+    tree(server.resolve("in/dist"));
+
+    Object stats = service(fileTransfer).get("/in/dist", local.toString(), null, null);
+
+    assertThat(local.resolve("dist/app.txt")).hasContent("app");
+    assertThat(local.resolve("dist/logs/run.log")).hasContent("run log");
+    assertThat((Map<?, ?>) stats).containsEntry("bytes", 10L).containsEntry("files", 2L);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"sftp", "scp"})
+  void testGetDirectoryWithFilter(String fileTransfer) throws Exception {
+    tree(server.resolve("in/dist"));
+
+    Object stats = service(fileTransfer).get("/in/dist", local.toString(), "name", ".*\\.log");
+
+    assertThat(local.resolve("dist/app.txt")).doesNotExist();
+    assertThat(local.resolve("dist/logs/run.log")).hasContent("run log");
+    assertThat((Map<?, ?>) stats).containsEntry("bytes", 7L).containsEntry("files", 1L);
+  }
+
+  private static Path tree(Path dir) throws IOException {
+    write(dir.resolve("app.txt"), "app");
+    write(dir.resolve("logs/run.log"), "run log");
+    return dir;
+  }
+
+  private static Path write(Path file, String content) throws IOException {
+    Files.createDirectories(file.getParent());
+    return Files.writeString(file, content);
+  }
+
+  private SSHService service(String fileTransfer) {
+    Map<String, Object> remote = new HashMap<>();
+    remote.put("name", "embedded");
+    remote.put("host", "127.0.0.1");
+    remote.put("port", sshd.getPort());
+    remote.put("user", "jenkins");
+    remote.put("password", "secret");
+    remote.put("allowAnyHosts", true);
+    remote.put("fileTransfer", fileTransfer);
+    return SSHService.create(remote, true, false,
+        new PrintStream(log, true, StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,47 @@
+package org.jenkinsci.plugins.sshsteps.steps;
+
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit test cases for CalibrateStep class.
+ *
+ * @author Naresh Rayapati
+ */
+class CalibrateStepTest extends BaseTest {
+
+  CalibrateStep.Execution stepExecution;
+
+  @Test
+  void testWithNonPositiveSizeThrowsIllegalArgumentException() throws Exception {
+    final CalibrateStep step = new CalibrateStep();
+    step.setSizeMb(0);
+    stepExecution = new CalibrateStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessage("sizeMb must be positive")
+        .withStackTraceContaining("IllegalArgumentException")
+        .withNoCause();
+  }
+
+  @Test
+  void testSuccessfulCalibrate() throws Exception {
+    final CalibrateStep step = new CalibrateStep();
+    step.setCiphers(Collections.singletonList("aes128-ctr"));
+
+    // Since SSHService is a mock, it is not validating remote.
+    stepExecution = new CalibrateStep.Execution(step, contextMock);
+
+    // Execute Test.
+    stepExecution.run();
+
+    // Assert Test
+    verify(sshServiceMock, times(1)).calibrate(16, Collections.singletonList("aes128-ctr"));
+  }
+}
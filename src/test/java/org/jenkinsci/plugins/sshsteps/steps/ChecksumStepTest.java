@@ -0,0 +1,59 @@
+package org.jenkinsci.plugins.sshsteps.steps;
+
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit test cases for ChecksumStep class.
+ *
+ * @author Naresh Rayapati
+ */
+class ChecksumStepTest extends BaseTest {
+
+  ChecksumStep.Execution stepExecution;
+
+  @Test
+  void testWithUnknownAlgorithmThrowsIllegalArgumentException() throws Exception {
+    final ChecksumStep step = new ChecksumStep("/opt/app/app.jar");
+    step.setAlgorithm("crc32");
+    stepExecution = new ChecksumStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessage("algorithm must be one of sha256, sha1, md5, xxh64")
+        .withStackTraceContaining("IllegalArgumentException")
+        .withNoCause();
+  }
+
+  @Test
+  void testWithEmptyPathThrowsIllegalArgumentException() throws Exception {
+    final ChecksumStep step = new ChecksumStep(null);
+    stepExecution = new ChecksumStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessage("path is null or empty");
+  }
+
+  @Test
+  void testSuccessfulChecksum() throws Exception {
+    final ChecksumStep step = new ChecksumStep("/opt/app/*.jar");
+    step.setAlgorithm("xxh64");
+    step.setParallelism(8);
+
+    // Since SSHService is a mock, it is not validating remote.
+    stepExecution = new ChecksumStep.Execution(step, contextMock);
+
+    // Execute Test.
+    stepExecution.run();
+
+    // Assert Test
+    verify(sshServiceMock, times(1)).stat(Collections.singletonList("/opt/app/*.jar"), "xxh64", 8);
+  }
+}
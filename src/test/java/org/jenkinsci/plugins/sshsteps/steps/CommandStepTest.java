@@ -1,7 +1,9 @@
 package org.jenkinsci.plugins.sshsteps.steps;
 
+import org.jenkinsci.plugins.sshsteps.util.DetachedCommandExecution;
 import org.junit.jupiter.api.Test;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -42,6 +44,53 @@ class CommandStepTest extends BaseTest {
     verify(sshServiceMock, times(1)).executeCommand("ls -lrt", false);
   }
 
+  @Test
+  void testSuccessfulExecuteCommandWithResult() throws Exception {
+    final CommandStep step = new CommandStep("systemctl is-active app");
+    step.setReturnResult(true);
+    step.setInlineOutputLimit(128);
+
+    // Since SSHService is a mock, it is not validating remote.
+    stepExecution = new CommandStep.Execution(step, contextMock);
+
+    // Execute Test.
+    stepExecution.run();
+
+    // Assert Test
+    verify(sshServiceMock, times(1)).executeCommandResult("systemctl is-active app", false, 128);
+  }
+
+  @Test
+  void testWithInvalidWaitForThrowsIllegalArgumentException() throws Exception {
+    final CommandStep step = new CommandStep("./start.sh");
+    step.setWaitFor("Started (");
+    stepExecution = new CommandStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessageStartingWith("waitFor is not a valid regex")
+        .withNoCause();
+  }
+
+  @Test
+  void testSuccessfulExecuteCommandWithWaitFor() throws Exception {
+    final CommandStep step = new CommandStep("./start.sh");
+    step.setWaitFor("Started .* in \\d+s");
+    step.setWaitTimeoutSec(60);
+    step.setOnMatch("terminate");
+
+    // Since SSHService is a mock, it is not validating remote.
+    stepExecution = new CommandStep.Execution(step, contextMock);
+
+    // Execute Test.
+    stepExecution.run();
+
+    // Assert Test
+    verify(sshServiceMock, times(1))
+        .executeCommandUntil("./start.sh", "Started .* in \\d+s", 60, true);
+  }
+
   @Test
   void testPartialOutputCaptured() throws Exception {
     // Test for JENKINS-59781: Commands without trailing newlines should have their output captured
@@ -57,4 +106,25 @@ class CommandStepTest extends BaseTest {
     // The actual output capture happens in SSHService's interaction block
     verify(sshServiceMock, times(1)).executeCommand("printf 'output without newline'", false);
   }
+
+  @Test
+  void testDetachedStartsDetachedExecution() throws Exception {
+    final CommandStep step = new CommandStep("./nightly-build.sh");
+    step.setDetached(true);
+
+    assertThat(step.start(contextMock)).isInstanceOf(DetachedCommandExecution.class);
+  }
+
+  @Test
+  void testDetachedWithReturnResultThrowsIllegalArgumentException() {
+    final CommandStep step = new CommandStep("./nightly-build.sh");
+    step.setDetached(true);
+    step.setReturnResult(true);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> step.start(contextMock))
+        .withMessage("detached can not be combined with sudo, returnResult or waitFor")
+        .withNoCause();
+  }
 }
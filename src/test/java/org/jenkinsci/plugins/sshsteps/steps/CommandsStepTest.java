@@ -0,0 +1,60 @@
+package org.jenkinsci.plugins.sshsteps.steps;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit test cases for CommandsStep class.
+ *
+ * @author Naresh Rayapati
+ */
+class CommandsStepTest extends BaseTest {
+
+  CommandsStep.Execution stepExecution;
+
+  @Test
+  void testWithEmptyCommandsThrowsIllegalArgumentException() throws Exception {
+    final CommandsStep step = new CommandsStep(Collections.emptyList());
+    stepExecution = new CommandsStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessage("commands is null or empty")
+        .withStackTraceContaining("IllegalArgumentException")
+        .withNoCause();
+  }
+
+  @Test
+  void testWithEmptyCommandThrowsIllegalArgumentException() throws Exception {
+    final CommandsStep step = new CommandsStep(Arrays.asList("ls -lrt", ""));
+    stepExecution = new CommandsStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessage("commands must not contain an empty command")
+        .withStackTraceContaining("IllegalArgumentException")
+        .withNoCause();
+  }
+
+  @Test
+  void testSuccessfulExecuteCommands() throws Exception {
+    final CommandsStep step = new CommandsStep(Arrays.asList("uptime", "ls -lrt"));
+
+    // Since SSHService is a mock, it is not validating remote.
+    stepExecution = new CommandsStep.Execution(step, contextMock);
+
+    // Execute Test.
+    stepExecution.run();
+
+    // Assert Test
+    verify(sshServiceMock, times(1))
+        .executeCommands(Arrays.asList("uptime", "ls -lrt"), false, true);
+  }
+}
@@ -0,0 +1,166 @@
+package org.jenkinsci.plugins.sshsteps.steps;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import hudson.model.queue.QueueTaskFuture;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.server.shell.ProcessShellCommandFactory;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+/**
+ * Runs hundreds of sshCommand steps at once, from concurrent pipelines with parallel branches,
+ * against an embedded SSH server, to catch leaks and contention in the step executor, the log
+ * handlers and the connections before a release. The bounds on threads, heap and throughput are
+ * loose enough for a busy CI agent, they catch a leak per step rather than a slowdown.
+ *
+ * @author Naresh Rayapati
+ */
+@WithJenkins
+class ConcurrencyScaleTest {
+
+  private static final int BUILDS = 4;
+
+  private static final int STEPS_PER_BUILD = 50;
+
+  private static final long TIMEOUT_MINUTES = 5;
+
+  private static final String EXECUTOR_THREAD = "org.jenkinsci.plugins.ssh.util.SSHStepExecution";
+
+  /**
+   * Threads (besides the idle ones of the step executor) the controller may have gained.
+   */
+  private static final int MAX_THREAD_GROWTH = 50;
+
+  /**
+   * Heap retained per step, mostly the flow nodes and logs of the builds kept in memory.
+   */
+  private static final long MAX_HEAP_PER_STEP = 256 * 1024;
+
+  private static final double MIN_STEPS_PER_SEC = 2;
+
+  private static final Logger LOGGER = Logger.getLogger(ConcurrencyScaleTest.class.getName());
+
+  private final Logger hidetake = Logger.getLogger("org.hidetake");
+
+  private SshServer sshd;
+
+  @BeforeEach
+  void startSshd(@TempDir Path dir) throws IOException {
+    sshd = SshServer.setUpDefaultServer();
+    sshd.setHost("127.0.0.1");
+    sshd.setPort(0);
+    sshd.setKeyPairProvider(new SimpleGeneratorHostKeyProvider(dir.resolve("hostkey.ser")));
+    sshd.setPasswordAuthenticator(
+        (user, password, session) -> "jenkins".equals(user) && "secret".equals(password));
+    // Runs the command without a shell, e.g. /bin/echo.
+    sshd.setCommandFactory(ProcessShellCommandFactory.INSTANCE);
+    sshd.start();
+  }
+
+  @AfterEach
+  void stopSshd() throws IOException {
+    sshd.stop(true);
+  }
+
+  @Test
+  void testConcurrentPipelines(JenkinsRule j) throws Exception {
+    j.jenkins.setNumExecutors(BUILDS);
+    // Warm up class loading, the step executor and the CPS VM, so the baseline is not skewed.
+    WorkflowJob warmUp = j.createProject(WorkflowJob.class, "warm-up");
+    warmUp.setDefinition(new CpsFlowDefinition(script("w"), true));
+    j.assertBuildStatusSuccess(warmUp.scheduleBuild2(0).get(TIMEOUT_MINUTES, TimeUnit.MINUTES));
+    int handlers = hidetake.getHandlers().length;
+    long threads = nonExecutorThreads();
+    long heap = usedHeapAfterGc();
+
+    List<QueueTaskFuture<WorkflowRun>> builds = new ArrayList<>();
+    for (int b = 0; b < BUILDS; b++) {
+      // A job per build, the queue would merge builds of the same job.
+      WorkflowJob job = j.createProject(WorkflowJob.class, "scale-" + b);
+      job.setDefinition(new CpsFlowDefinition(script("b" + b), true));
+      builds.add(job.scheduleBuild2(0));
+    }
+    long started = System.nanoTime();
+    List<WorkflowRun> runs = new ArrayList<>();
+    for (QueueTaskFuture<WorkflowRun> build : builds) {
+      runs.add(j.assertBuildStatusSuccess(build.get(TIMEOUT_MINUTES, TimeUnit.MINUTES)));
+    }
+    double seconds = (System.nanoTime() - started) / 1e9;
+
+    for (int b = 0; b < BUILDS; b++) {
+      String log = JenkinsRule.getLog(runs.get(b));
+      for (int i = 0; i < STEPS_PER_BUILD; i++) {
+        assertThat(log).contains("b" + b + "-step-" + i + "\n");
+      }
+      for (int other = 0; other < BUILDS; other++) {
+        if (other != b) {
+          assertThat(log).as("log of build %d", b).doesNotContain("b" + other + "-step-");
+        }
+      }
+    }
+    assertThat(hidetake.getHandlers()).as("handlers left on org.hidetake").hasSize(handlers);
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+    while (!sshd.getActiveSessions().isEmpty() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(100);
+    }
+    assertThat(sshd.getActiveSessions()).as("ssh sessions left open").isEmpty();
+
+    int steps = BUILDS * STEPS_PER_BUILD;
+    double stepsPerSec = steps / seconds;
+    long threadGrowth = nonExecutorThreads() - threads;
+    long heapPerStep = (usedHeapAfterGc() - heap) / steps;
+    LOGGER.log(Level.INFO, "{0} steps in {1,number,0.0} s ({2,number,0} steps/s), {3} threads "
+        + "gained, {4} bytes retained per step",
+        new Object[] {steps, seconds, stepsPerSec, threadGrowth, heapPerStep});
+    assertThat(threadGrowth).as("threads gained besides the step executor")
+        .isLessThanOrEqualTo(MAX_THREAD_GROWTH);
+    assertThat(heapPerStep).as("retained bytes per step").isLessThan(MAX_HEAP_PER_STEP);
+    assertThat(stepsPerSec).as("steps/sec").isGreaterThan(MIN_STEPS_PER_SEC);
+  }
+
+  private static long nonExecutorThreads() {
+    return Thread.getAllStackTraces().keySet().stream()
+        .filter(thread -> !thread.getName().startsWith(EXECUTOR_THREAD))
+        .count();
+  }
+
+  private static long usedHeapAfterGc() throws InterruptedException {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      Thread.sleep(50);
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  private String script(String prefix) {
+    return "def remote = [name: 'embedded', host: '127.0.0.1', port: " + sshd.getPort()
+        + ", user: 'jenkins', password: 'secret', allowAnyHosts: true]\n"
+        + "def branches = [:]\n"
+        + "for (int i = 0; i < " + STEPS_PER_BUILD + "; i++) {\n"
+        + "  def n = i\n"
+        + "  branches['step-' + n] = {\n"
+        + "    sshCommand remote: remote, command: 'echo " + prefix + "-step-' + n\n"
+        + "  }\n"
+        + "}\n"
+        + "node {\n"
+        + "  parallel branches\n"
+        + "}\n";
+  }
+}
@@ -0,0 +1,80 @@
+package org.jenkinsci.plugins.sshsteps.steps;
+
+import java.util.Collections;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit test cases for CopyStep class.
+ *
+ * @author Naresh Rayapati
+ */
+class CopyStepTest extends BaseTest {
+
+  final String path = "/opt/app.tar.gz";
+
+  CopyStep.Execution stepExecution;
+
+  @Test
+  void testWithEmptyFromThrowsIllegalArgumentException() throws Exception {
+    final CopyStep step = new CopyStep("", path);
+    step.setToRemote(Collections.emptyMap());
+    stepExecution = new CopyStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessage("from is null or empty")
+        .withStackTraceContaining("IllegalArgumentException")
+        .withNoCause();
+  }
+
+  @Test
+  void testWithEmptyIntoThrowsIllegalArgumentException() throws Exception {
+    final CopyStep step = new CopyStep(path, "");
+    step.setToRemote(Collections.emptyMap());
+    stepExecution = new CopyStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessage("into is null or empty")
+        .withStackTraceContaining("IllegalArgumentException")
+        .withNoCause();
+  }
+
+  @Test
+  void testWithoutDestinationThrowsIllegalArgumentException() throws Exception {
+    final CopyStep step = new CopyStep(path, path);
+    stepExecution = new CopyStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessage("toRemote or toRemotes must be given")
+        .withStackTraceContaining("IllegalArgumentException")
+        .withNoCause();
+  }
+
+  @Test
+  void testSuccessfulCopy() throws Exception {
+    final CopyStep step = new CopyStep(path, path);
+    step.setToRemote(Collections.emptyMap());
+    step.setToRemotes(Collections.<Map>singletonList(Collections.emptyMap()));
+
+    // Since SSHService is a mock, it is not validating remote.
+    stepExecution = new CopyStep.Execution(step, contextMock);
+
+    // Execute Test.
+    stepExecution.run();
+
+    // Assert Test
+    verify(sshServiceMock, times(1)).copy(eq(path), anyList(), eq(path));
+  }
+}
@@ -6,8 +6,12 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -83,6 +87,38 @@ class GetStepTest extends BaseTest {
     verify(sshServiceMock, times(1)).get(path, path, filterBy, filterRegex);
   }
 
+  @Test
+  void testWithUnsupportedArchiveThrowsIllegalArgumentException() throws Exception {
+    final GetStep step = new GetStep(path, null);
+    step.setIntoArchive("logs.tar.zst");
+    stepExecution = new GetStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessage("intoArchive must end with .zip, .tar, .tar.gz or .tgz")
+        .withStackTraceContaining("IllegalArgumentException")
+        .withNoCause();
+  }
+
+  @Test
+  void testSuccessfulGetIntoArchive() throws Exception {
+    final GetStep step = new GetStep(path, null);
+    step.setIntoArchive("logs.tar.gz");
+    step.setFromRemotes(Collections.<Map>singletonList(Collections.emptyMap()));
+    step.setOverride(true);
+
+    // Since SSHService is a mock, it is not validating remote.
+    stepExecution = new GetStep.Execution(step, contextMock);
+
+    // Execute Test.
+    stepExecution.run();
+
+    // Assert Test
+    verify(sshServiceMock, times(1))
+        .getArchive(eq(path), eq(path), eq(filterBy), eq(filterRegex), anyList());
+  }
+
   @Test
   void testFileTransferDoesNotLeakToConsole() throws Exception {
     // Security fix test: Verify that file transfer operations (get) don't leak
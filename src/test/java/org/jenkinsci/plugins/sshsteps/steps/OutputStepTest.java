@@ -0,0 +1,54 @@
+package org.jenkinsci.plugins.sshsteps.steps;
+
+import java.nio.charset.StandardCharsets;
+import org.jenkinsci.plugins.sshsteps.util.OutputStore;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Unit test cases for OutputStep class.
+ *
+ * @author Naresh Rayapati
+ */
+class OutputStepTest extends BaseTest {
+
+  OutputStep.Execution stepExecution;
+
+  @Test
+  void testWithEmptyRefThrowsIllegalArgumentException() throws Exception {
+    final OutputStep step = new OutputStep("");
+    stepExecution = new OutputStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessage("ref is null or empty")
+        .withStackTraceContaining("IllegalArgumentException")
+        .withNoCause();
+  }
+
+  @Test
+  void testWithUnknownRefThrowsIllegalArgumentException() throws Exception {
+    final OutputStep step = new OutputStep("unknown");
+    stepExecution = new OutputStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessageContaining("is not available on this agent");
+  }
+
+  @Test
+  void testSuccessfulFetch() throws Exception {
+    String ref = OutputStore.put("out".getBytes(StandardCharsets.UTF_8),
+        "err".getBytes(StandardCharsets.UTF_8), "UTF-8");
+    final OutputStep step = new OutputStep(ref);
+    step.setStream("stderr");
+    stepExecution = new OutputStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThat(stepExecution.run()).isEqualTo("err");
+  }
+}
@@ -6,9 +6,15 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -81,6 +87,51 @@ class PutStepTest extends BaseTest {
     verify(sshServiceMock, times(1)).put(path, path, filterBy, filterRegex);
   }
 
+  @Test
+  void testWithFromAndTextThrowsIllegalArgumentException() throws Exception {
+    final PutStep step = new PutStep(path, path);
+    step.setText("key=value");
+    stepExecution = new PutStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessage("only one of from, text or bytes can be given")
+        .withStackTraceContaining("IllegalArgumentException")
+        .withNoCause();
+  }
+
+  @Test
+  void testSuccessfulTextPut() throws Exception {
+    final PutStep step = new PutStep(null, path);
+    step.setText("key=value");
+
+    // Since SSHService is a mock, it is not validating remote.
+    stepExecution = new PutStep.Execution(step, contextMock);
+
+    // Execute Test.
+    stepExecution.run();
+
+    // Assert Test
+    verify(sshServiceMock, times(1)).put("key=value".getBytes(StandardCharsets.UTF_8), path);
+    verify(filePathMock, never()).exists();
+  }
+
+  @Test
+  void testSuccessfulMulticastPut() throws Exception {
+    final PutStep step = new PutStep(path, path);
+    step.setToRemotes(Collections.<Map>singletonList(Collections.emptyMap()));
+
+    // Since SSHService is a mock, it is not validating remote.
+    stepExecution = new PutStep.Execution(step, contextMock);
+
+    // Execute Test.
+    stepExecution.run();
+
+    // Assert Test
+    verify(sshServiceMock, times(1)).put(eq(path), eq(path), eq(filterBy), eq(filterRegex), anyList());
+  }
+
   @Test
   void testFileTransferDoesNotLeakToConsole() throws Exception {
     // Security fix test: Verify that file transfer operations (put) don't leak
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.Mockito.any;
@@ -65,4 +66,35 @@ class RemoveStepTest extends BaseTest {
     // Assert Test
     verify(sshServiceMock, times(1)).remove(path);
   }
+
+  @Test
+  void testSuccessfulRemoveWithPaths() throws Exception {
+    final RemoveStep step = new RemoveStep(path);
+    step.setPaths(Arrays.asList("logs/*.log", "tmp"));
+
+    // Since SSHService is a mock, it is not validating remote.
+    stepExecution = new RemoveStep.Execution(step, contextMock);
+
+    // Execute Test.
+    stepExecution.run();
+
+    // Assert Test
+    verify(sshServiceMock, times(1)).remove(Arrays.asList(path, "logs/*.log", "tmp"), false);
+  }
+
+  @Test
+  void testSuccessfulRemoveWithPathsAllowingEmptyGlobs() throws Exception {
+    final RemoveStep step = new RemoveStep(null);
+    step.setPaths(Arrays.asList("logs/*.log"));
+    step.setAllowEmpty(true);
+
+    // Since SSHService is a mock, it is not validating remote.
+    stepExecution = new RemoveStep.Execution(step, contextMock);
+
+    // Execute Test.
+    stepExecution.run();
+
+    // Assert Test
+    verify(sshServiceMock, times(1)).remove(Arrays.asList("logs/*.log"), true);
+  }
 }
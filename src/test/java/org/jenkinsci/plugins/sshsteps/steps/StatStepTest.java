@@ -0,0 +1,60 @@
+package org.jenkinsci.plugins.sshsteps.steps;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit test cases for StatStep class.
+ *
+ * @author Naresh Rayapati
+ */
+class StatStepTest extends BaseTest {
+
+  StatStep.Execution stepExecution;
+
+  @Test
+  void testWithEmptyPathThrowsIllegalArgumentException() throws Exception {
+    final StatStep step = new StatStep("");
+    stepExecution = new StatStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessage("path is null or empty")
+        .withStackTraceContaining("IllegalArgumentException")
+        .withNoCause();
+  }
+
+  @Test
+  void testSuccessfulStat() throws Exception {
+    final StatStep step = new StatStep("/opt/app/app.jar");
+
+    // Since SSHService is a mock, it is not validating remote.
+    stepExecution = new StatStep.Execution(step, contextMock);
+
+    // Execute Test.
+    stepExecution.run();
+
+    // Assert Test
+    verify(sshServiceMock, times(1)).stat(Collections.singletonList("/opt/app/app.jar"), null, 0);
+  }
+
+  @Test
+  void testSuccessfulStatOfPathAndPaths() throws Exception {
+    final StatStep step = new StatStep("/opt/app/app.jar");
+    step.setPaths(Arrays.asList("/opt/app/lib/*.jar", "/opt/app/conf"));
+    stepExecution = new StatStep.Execution(step, contextMock);
+
+    // Execute Test.
+    stepExecution.run();
+
+    // Assert Test
+    verify(sshServiceMock, times(1)).stat(
+        Arrays.asList("/opt/app/app.jar", "/opt/app/lib/*.jar", "/opt/app/conf"), null, 0);
+  }
+}
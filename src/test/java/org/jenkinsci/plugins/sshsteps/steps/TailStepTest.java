@@ -0,0 +1,72 @@
+package org.jenkinsci.plugins.sshsteps.steps;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit test cases for TailStep class.
+ *
+ * @author Naresh Rayapati
+ */
+class TailStepTest extends BaseTest {
+
+  TailStep.Execution stepExecution;
+
+  @Test
+  void testWithEmptyPathThrowsIllegalArgumentException() throws Exception {
+    final TailStep step = new TailStep("");
+    stepExecution = new TailStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessage("path is null or empty")
+        .withStackTraceContaining("IllegalArgumentException")
+        .withNoCause();
+  }
+
+  @Test
+  void testWithInvalidUntilThrowsIllegalArgumentException() throws Exception {
+    final TailStep step = new TailStep("/var/log/app.log");
+    step.setUntil("Started (");
+    stepExecution = new TailStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessageStartingWith("until is not a valid regex");
+  }
+
+  @Test
+  void testWithNegativeOffsetThrowsIllegalArgumentException() throws Exception {
+    final TailStep step = new TailStep("/var/log/app.log");
+    step.setOffset(-1);
+    stepExecution = new TailStep.Execution(step, contextMock);
+
+    // Execute and assert Test.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> stepExecution.run())
+        .withMessage("offset must not be negative");
+  }
+
+  @Test
+  void testSuccessfulTail() throws Exception {
+    final TailStep step = new TailStep("/var/log/app.log");
+    step.setOffset(120);
+    step.setFollow(true);
+    step.setUntil("Started");
+    step.setTimeoutSec(60);
+
+    // Since SSHService is a mock, it is not validating remote.
+    stepExecution = new TailStep.Execution(step, contextMock);
+
+    // Execute Test.
+    stepExecution.run();
+
+    // Assert Test
+    verify(sshServiceMock, times(1)).tail("/var/log/app.log", 120, true, "Started", 60);
+  }
+}
@@ -0,0 +1,104 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test cases for ArchiveWriter class.
+ *
+ * @author Naresh Rayapati
+ */
+class ArchiveWriterTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void testZipEntries() throws Exception {
+    File file = dir.resolve("logs.zip").toFile();
+    try (ArchiveWriter writer = ArchiveWriter.create(file)) {
+      writer.addDirectory("web1/logs", 0);
+      try (OutputStream out = writer.addFile("web1/logs/app.log", 5, 0)) {
+        out.write("hello".getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    try (ZipInputStream zip = new ZipInputStream(new FileInputStream(file))) {
+      ZipEntry entry = zip.getNextEntry();
+      assertThat(entry.getName()).isEqualTo("web1/logs/");
+      entry = zip.getNextEntry();
+      assertThat(entry.getName()).isEqualTo("web1/logs/app.log");
+      assertThat(new String(zip.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("hello");
+    }
+  }
+
+  @Test
+  void testTarEntriesKeepDeclaredSize() throws Exception {
+    File file = dir.resolve("logs.tar.gz").toFile();
+    String longName = "web1/" + "a".repeat(120) + ".log";
+    try (ArchiveWriter writer = ArchiveWriter.create(file)) {
+      try (OutputStream out = writer.addFile("web1/grown.log", 3, 0)) {
+        out.write("abcdef".getBytes(StandardCharsets.UTF_8));
+      }
+      try (OutputStream out = writer.addFile(longName, 4, 0)) {
+        out.write("xy".getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    byte[] tar;
+    try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+      tar = in.readAllBytes();
+    }
+    assertThat(tar.length % 512).isZero();
+    assertThat(name(tar, 0)).isEqualTo("web1/grown.log");
+    assertThat(new String(tar, 512, 3, StandardCharsets.UTF_8)).isEqualTo("abc");
+    assertThat(tar[512 + 3]).isZero();
+    // GNU long name entry, its name block, then the real header.
+    assertThat(name(tar, 1024)).isEqualTo("././@LongLink");
+    assertThat((char) tar[1024 + 156]).isEqualTo('L');
+    assertThat(name(tar, 1536)).isEqualTo(longName);
+    assertThat(new String(tar, 2560, 4, StandardCharsets.UTF_8)).isEqualTo("xy\0\0");
+  }
+
+  @Test
+  void testTarSizeFieldFromEightGib() {
+    byte[] header = new byte[512];
+    ArchiveWriter.Tar.number(header, 124, 12, 077777777777L);
+    assertThat(new String(header, 124, 11, StandardCharsets.US_ASCII)).isEqualTo("77777777777");
+
+    long size = 8L * 1024 * 1024 * 1024 + 5;
+    ArchiveWriter.Tar.number(header, 124, 12, size);
+    assertThat(header[124]).isEqualTo((byte) 0x80);
+    long decoded = 0;
+    for (int i = 125; i < 136; i++) {
+      decoded = (decoded << 8) | (header[i] & 0xff);
+    }
+    assertThat(decoded).isEqualTo(size);
+  }
+
+  @Test
+  void testSupportedNames() {
+    assertThat(ArchiveWriter.isSupported("logs.TGZ")).isTrue();
+    assertThat(ArchiveWriter.isSupported("logs.tar.zst")).isFalse();
+  }
+
+  private static String name(byte[] tar, int offset) {
+    int end = offset;
+    while (tar[end] != 0) {
+      end++;
+    }
+    return new String(tar, offset, end - offset, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,92 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Unit test cases for BoundedPipe and FanOutOutputStream classes.
+ *
+ * @author Naresh Rayapati
+ */
+class BoundedPipeTest {
+
+  @Test
+  void testFanOutDeliversToAllPipes() throws Exception {
+    BoundedPipe first = new BoundedPipe(2);
+    BoundedPipe second = new BoundedPipe(2);
+    ByteArrayOutputStream firstOut = new ByteArrayOutputStream();
+    ByteArrayOutputStream secondOut = new ByteArrayOutputStream();
+    Thread firstReader = reader(first.getInputStream(), firstOut);
+    Thread secondReader = reader(second.getInputStream(), secondOut);
+
+    try (OutputStream out = new FanOutOutputStream(Arrays.asList(first, second))) {
+      for (int i = 0; i < 100; i++) {
+        out.write(("line " + i + "\n").getBytes());
+      }
+    }
+    firstReader.join(5000);
+    secondReader.join(5000);
+
+    assertThat(firstOut.toString()).startsWith("line 0\n").endsWith("line 99\n");
+    assertThat(secondOut.toByteArray()).isEqualTo(firstOut.toByteArray());
+  }
+
+  @Test
+  void testAbortedPipeIsDropped() throws Exception {
+    BoundedPipe failed = new BoundedPipe(1);
+    BoundedPipe healthy = new BoundedPipe(1);
+    ByteArrayOutputStream healthyOut = new ByteArrayOutputStream();
+    Thread reader = reader(healthy.getInputStream(), healthyOut);
+    failed.abort(new IOException("disk full"));
+
+    try (FanOutOutputStream out = new FanOutOutputStream(Arrays.asList(failed, healthy))) {
+      out.write("data".getBytes());
+      assertThat(out.isAllFailed()).isFalse();
+    }
+    reader.join(5000);
+
+    assertThat(healthyOut.toString()).isEqualTo("data");
+  }
+
+  @Test
+  void testAllPipesAbortedFails() {
+    BoundedPipe pipe = new BoundedPipe(1);
+    pipe.abort(new IOException("disk full"));
+    FanOutOutputStream out = new FanOutOutputStream(Arrays.asList(pipe));
+
+    assertThatExceptionOfType(IOException.class)
+        .isThrownBy(() -> out.write("data".getBytes()))
+        .withMessage("All destinations failed");
+    assertThat(out.isAllFailed()).isTrue();
+  }
+
+  @Test
+  void testReaderFailsWhenWriterAborts() {
+    BoundedPipe pipe = new BoundedPipe(1);
+    pipe.abort(new IOException("source gone"));
+
+    assertThatExceptionOfType(IOException.class)
+        .isThrownBy(() -> pipe.getInputStream().read())
+        .withMessageContaining("source gone");
+  }
+
+  private static Thread reader(InputStream in, ByteArrayOutputStream out) {
+    Thread thread = new Thread(() -> {
+      try {
+        in.transferTo(out);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+}
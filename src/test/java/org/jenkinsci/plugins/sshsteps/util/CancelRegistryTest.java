@@ -0,0 +1,147 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.jenkinsci.plugins.sshsteps.SSHService;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test cases for CancelRegistry class.
+ *
+ * @author Naresh Rayapati
+ */
+class CancelRegistryTest {
+
+  @Test
+  void testCancelWithNothingRunning() throws Exception {
+    assertThat(CancelRegistry.cancel("none", 100)).containsEntry("running", false);
+  }
+
+  @Test
+  void testCommandExitingOnTermIsReleasedWithinGracePeriod() throws Exception {
+    SSHService service = mock(SSHService.class);
+    CountDownLatch exited = new CountDownLatch(1);
+    when(service.terminate()).thenAnswer(invocation -> {
+      exited.countDown();
+      return 1;
+    });
+    Thread callable = run("graceful", service, () -> exited.await());
+
+    Map<String, Object> result = CancelRegistry.cancel("graceful", 10000);
+
+    assertThat(result).containsEntry("running", true).containsEntry("signalled", 1)
+        .containsEntry("forced", false).containsEntry("released", true);
+    assertThat((Long) result.get("releasedMillis")).isLessThan(10000L);
+    verify(service, never()).abort();
+    callable.join(1000);
+  }
+
+  @Test
+  void testCommandIgnoringTermIsAbortedAfterGracePeriod() throws Exception {
+    SSHService service = mock(SSHService.class);
+    CountDownLatch closed = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      closed.countDown();
+      return null;
+    }).when(service).abort();
+    Thread callable = run("forced", service, () -> closed.await());
+
+    Map<String, Object> result = CancelRegistry.cancel("forced", 100);
+
+    assertThat(result).containsEntry("running", true).containsEntry("forced", true)
+        .containsEntry("released", true);
+    assertThat((Long) result.get("releasedMillis")).isGreaterThanOrEqualTo(100L);
+    verify(service).abort();
+    callable.join(1000);
+  }
+
+  @Test
+  void testThreadOfCallableFinishedOnAbortIsNotInterrupted() throws Exception {
+    SSHService service = mock(SSHService.class);
+    CountDownLatch closed = new CountDownLatch(1);
+    CountDownLatch finished = new CountDownLatch(1);
+    CountDownLatch cancelled = new CountDownLatch(1);
+    boolean[] interrupted = new boolean[1];
+    doAnswer(invocation -> {
+      closed.countDown();
+      // The callable finishes before the cancel gets to interrupt its thread.
+      finished.await(5, TimeUnit.SECONDS);
+      return null;
+    }).when(service).abort();
+    CountDownLatch registered = new CountDownLatch(1);
+    Thread thread = new Thread(() -> {
+      CancelRegistry.start("reused");
+      CancelRegistry.add("reused", service);
+      registered.countDown();
+      try {
+        closed.await();
+      } catch (InterruptedException e) {
+        // Not expected.
+      } finally {
+        CancelRegistry.finish("reused");
+      }
+      finished.countDown();
+      // Next callable in the same pooled thread.
+      try {
+        cancelled.await();
+      } catch (InterruptedException e) {
+        interrupted[0] = true;
+      }
+      interrupted[0] |= Thread.interrupted();
+    });
+    thread.start();
+    assertThat(registered.await(5, TimeUnit.SECONDS)).isTrue();
+
+    Map<String, Object> result = CancelRegistry.cancel("reused", 100);
+    cancelled.countDown();
+    thread.join(1000);
+
+    assertThat(result).containsEntry("forced", true).containsEntry("released", true);
+    assertThat(interrupted[0]).isFalse();
+  }
+
+  @Test
+  void testFinishedCallableIsNotCancelled() throws Exception {
+    SSHService service = mock(SSHService.class);
+    run("finished", service, () -> { }).join(1000);
+
+    assertThat(CancelRegistry.cancel("finished", 100)).containsEntry("running", false);
+    verify(service, never()).terminate();
+  }
+
+  /**
+   * Runs the given work like a step callable would, returns once it is registered.
+   */
+  private static Thread run(String id, SSHService service, Work work) throws Exception {
+    CountDownLatch registered = new CountDownLatch(1);
+    Thread thread = new Thread(() -> {
+      CancelRegistry.start(id);
+      CancelRegistry.add(id, service);
+      registered.countDown();
+      try {
+        work.run();
+      } catch (InterruptedException e) {
+        // Cancelled.
+      } finally {
+        CancelRegistry.finish(id);
+      }
+    });
+    thread.start();
+    assertThat(registered.await(5, TimeUnit.SECONDS)).isTrue();
+    return thread;
+  }
+
+  @FunctionalInterface
+  private interface Work {
+
+    void run() throws InterruptedException;
+  }
+}
@@ -0,0 +1,42 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test cases for CappedOutputStream class.
+ *
+ * @author Naresh Rayapati
+ */
+class CappedOutputStreamTest {
+
+  final CappedOutputStream output = new CappedOutputStream(8);
+
+  @Test
+  void testOutputWithinLimitKeptAsIs() {
+    output.write("1234".getBytes(StandardCharsets.UTF_8), 0, 4);
+    output.write('5');
+
+    assertThat(output.size()).isEqualTo(5);
+    assertThat(output.isTruncated()).isFalse();
+    assertThat(output.toString("UTF-8")).isEqualTo("12345");
+    assertThat(output.toByteArray("UTF-8")).isEqualTo("12345".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testOutputOverLimitTruncatedWithMarker() {
+    output.write("123456".getBytes(StandardCharsets.UTF_8), 0, 6);
+    output.write("7890".getBytes(StandardCharsets.UTF_8), 0, 4);
+    output.write('!');
+
+    String marker = System.lineSeparator() + "[output truncated, first 8 of 11 bytes kept]"
+        + System.lineSeparator();
+    assertThat(output.size()).isEqualTo(11);
+    assertThat(output.isTruncated()).isTrue();
+    assertThat(output.toString("UTF-8")).isEqualTo("12345678" + marker);
+    assertThat(new String(output.toByteArray("UTF-8"), StandardCharsets.UTF_8))
+        .isEqualTo("12345678" + marker);
+  }
+}
@@ -0,0 +1,123 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.jcraft.jsch.ChannelExec;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test cases for ChannelCommand class.
+ *
+ * @author Naresh Rayapati
+ */
+class ChannelCommandTest {
+
+  final List<String> log = new CopyOnWriteArrayList<>();
+  final ChannelCommand command = new ChannelCommand("UTF-8", log::add);
+  final ChannelExec channel = mock(ChannelExec.class);
+
+  @Test
+  void testOutputPushedBySessionThread() throws Exception {
+    AtomicBoolean closed = new AtomicBoolean();
+    when(channel.isClosed()).thenAnswer(invocation -> closed.get());
+    when(channel.getExitStatus()).thenReturn(0);
+    Thread session = new Thread(() -> {
+      write(command.getStdout(), "line 1\nline ");
+      write(command.getStderr(), "warning\n");
+      write(command.getStdout(), "2");
+      close(command.getStdout());
+      close(command.getStderr());
+      closed.set(true);
+    });
+    session.start();
+
+    assertThat(command.await(channel)).isZero();
+    assertThat(command.getOutput()).isEqualTo("line 1" + System.lineSeparator() + "line 2");
+    assertThat(log).containsExactlyInAnyOrder("line 1", "warning", "line 2");
+    session.join();
+  }
+
+  @Test
+  void testExitStatusArrivingAfterOutput() throws Exception {
+    when(channel.isClosed()).thenReturn(false, false, true);
+    when(channel.getExitStatus()).thenReturn(3);
+    close(command.getStdout());
+    close(command.getStderr());
+
+    assertThat(command.await(channel)).isEqualTo(3);
+  }
+
+  @Test
+  void testChannelClosedWithoutClosingStreams() throws Exception {
+    when(channel.isClosed()).thenReturn(true);
+    when(channel.getExitStatus()).thenReturn(-1);
+    write(command.getStdout(), "partial");
+
+    assertThat(command.await(channel)).isEqualTo(-1);
+    assertThat(command.getOutput()).isEqualTo("partial");
+  }
+
+  @Test
+  void testLogCalledOnAwaitingThread() throws Exception {
+    List<Thread> threads = new CopyOnWriteArrayList<>();
+    ChannelCommand command = new ChannelCommand("UTF-8", line -> threads.add(Thread.currentThread()));
+    when(channel.isClosed()).thenReturn(true);
+    when(channel.getExitStatus()).thenReturn(0);
+    Thread session = new Thread(() -> write(command.getStdout(), "line 1\nline 2\n"));
+    session.start();
+    session.join();
+
+    assertThat(threads).isEmpty();
+    command.await(channel);
+    assertThat(threads).containsExactly(Thread.currentThread(), Thread.currentThread());
+  }
+
+  @Test
+  void testSessionThreadWaitsForLogOnlyWhenQueueFull() throws Exception {
+    AtomicBoolean closed = new AtomicBoolean();
+    when(channel.isClosed()).thenAnswer(invocation -> closed.get());
+    when(channel.getExitStatus()).thenReturn(0);
+    CountDownLatch queued = new CountDownLatch(1);
+    Thread session = new Thread(() -> {
+      write(command.getStdout(), "line\n".repeat(ChannelCommand.QUEUE_LINES));
+      queued.countDown();
+      write(command.getStdout(), "last\n");
+      close(command.getStdout());
+      close(command.getStderr());
+      closed.set(true);
+    });
+    session.start();
+
+    assertThat(queued.await(10, TimeUnit.SECONDS)).isTrue();
+    session.join(200);
+    assertThat(session.isAlive()).isTrue();
+    assertThat(command.await(channel)).isZero();
+    session.join();
+    assertThat(log).hasSize(ChannelCommand.QUEUE_LINES + 1).endsWith("last");
+  }
+
+  private static void write(OutputStream stream, String text) {
+    try {
+      stream.write(text.getBytes(StandardCharsets.UTF_8));
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void close(OutputStream stream) {
+    try {
+      stream.close();
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.jenkinsci.plugins.sshsteps.SSHService;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+/**
+ * Unit test cases for CircuitBreaker class and the retry backoff.
+ *
+ * @author Naresh Rayapati
+ */
+class CircuitBreakerTest {
+
+  @Test
+  void testOpensAfterThresholdAndFailsFast() {
+    CircuitBreaker breaker = new CircuitBreaker();
+
+    assertThat(breaker.tryAcquire(1000, 0)).isTrue();
+    assertThat(breaker.onFailure(2, 0)).isFalse();
+    assertThat(breaker.onFailure(2, 10)).isTrue();
+
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThat(breaker.tryAcquire(1000, 500)).isFalse();
+    assertThat(breaker.remainingOpenMillis(1000, 500)).isEqualTo(510);
+  }
+
+  @Test
+  void testHalfOpenLetsOneProbeThrough() {
+    CircuitBreaker breaker = new CircuitBreaker();
+    breaker.onFailure(1, 0);
+
+    assertThat(breaker.tryAcquire(1000, 1000)).isTrue();
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    assertThat(breaker.tryAcquire(1000, 1001)).isFalse();
+
+    assertThat(breaker.onSuccess()).isTrue();
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    assertThat(breaker.getFailures()).isZero();
+  }
+
+  @Test
+  void testFailedProbeOpensAgain() {
+    CircuitBreaker breaker = new CircuitBreaker();
+    breaker.onFailure(1, 0);
+    breaker.tryAcquire(1000, 1000);
+
+    assertThat(breaker.onFailure(5, 1000)).isTrue();
+    assertThat(breaker.tryAcquire(1000, 1500)).isFalse();
+    assertThat(breaker.tryAcquire(1000, 2000)).isTrue();
+  }
+
+  @Test
+  void testBackoffGrowsWithJitterUpToMax() {
+    Random random = new Random(42);
+
+    for (int attempt = 0; attempt < 10; attempt++) {
+      long base = Math.min(8000, 1000L << attempt);
+      assertThat(Common.backoffMillis(1000, 8000, attempt, random))
+          .isBetween(base / 2, base);
+    }
+    assertThat(Common.backoffMillis(0, 8000, 3, random)).isZero();
+  }
+
+  @Test
+  void testProbeFailingWithOtherErrorOpensAgain() {
+    Map<String, Object> remote = new HashMap<>();
+    remote.put("name", "probe");
+    remote.put("host", "probe.example.com");
+    remote.put("port", 2201);
+    remote.put("user", "root");
+    remote.put("password", "secret");
+    remote.put("allowAnyHosts", true);
+    remote.put("retryCount", 3);
+    remote.put("circuitBreakerThreshold", 1);
+    CircuitBreaker breaker = CircuitBreaker.forHost("probe.example.com:2201");
+    breaker.onFailure(1, 0);
+
+    try (MockedStatic<SSHConnection> connection = Mockito.mockStatic(SSHConnection.class)) {
+      connection.when(() -> SSHConnection.open(any(), any(), any()))
+          .thenThrow(new IllegalStateException("proxy refused"));
+      SSHService service = SSHService.create(remote, true, false,
+          new PrintStream(new ByteArrayOutputStream()));
+
+      assertThatExceptionOfType(IllegalStateException.class)
+          .isThrownBy(service::connect)
+          .withMessage("proxy refused");
+      connection.verify(() -> SSHConnection.open(any(), any(), any()), Mockito.times(1));
+    }
+
+    // The failed probe opened the circuit again rather than leaving it half open for good.
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThat(breaker.tryAcquire(0, System.currentTimeMillis())).isTrue();
+  }
+}
@@ -0,0 +1,41 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test cases for Common class.
+ *
+ * @author Naresh Rayapati
+ */
+class CommonTest {
+
+  @Test
+  void testParseChecksums() {
+    Map<String, String> checksums = Common.parseChecksums(
+        "9f86d081884c7d65  /opt/app/app.jar\n"
+            + "60303ae22b998861 */opt/app/with space.jar\n"
+            + "\\e3b0c44298fc1c14  /opt/app/new\\nline\\\\n.jar\n"
+            + "garbage\n");
+
+    assertThat(checksums).containsExactly(
+        Map.entry("/opt/app/app.jar", "9f86d081884c7d65"),
+        Map.entry("/opt/app/with space.jar", "60303ae22b998861"),
+        Map.entry("/opt/app/new\nline\\n.jar", "e3b0c44298fc1c14"));
+  }
+
+  @Test
+  void testParseChecksumsOfNoOutput() {
+    assertThat(Common.parseChecksums(null)).isEmpty();
+    assertThat(Common.parseChecksums("")).isEmpty();
+  }
+
+  @Test
+  void testIsGlob() {
+    assertThat(Common.isGlob("/opt/app/*.jar")).isTrue();
+    assertThat(Common.isGlob("/opt/app/app-?.jar")).isTrue();
+    assertThat(Common.isGlob("/opt/*/app.jar")).isFalse();
+  }
+}
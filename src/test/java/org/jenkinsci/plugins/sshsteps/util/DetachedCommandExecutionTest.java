@@ -0,0 +1,209 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jenkinsci.plugins.sshsteps.SSHService;
+import org.jenkinsci.plugins.sshsteps.steps.CommandStep;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * Unit test cases for DetachedCommandExecution class.
+ *
+ * @author Naresh Rayapati
+ */
+class DetachedCommandExecutionTest {
+
+  @Mock
+  TaskListener taskListenerMock;
+  @Mock
+  PrintStream printStreamMock;
+  @Mock
+  SSHService sshServiceMock;
+  @Mock
+  StepContext contextMock;
+  @Mock
+  Launcher launcherMock;
+
+  private AutoCloseable closeable;
+  private MockedStatic<SSHService> sshService;
+  private TestExecution execution;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    closeable = MockitoAnnotations.openMocks(this);
+    when(taskListenerMock.getLogger()).thenReturn(printStreamMock);
+    when(launcherMock.getChannel()).thenReturn(new TestVirtualChannel());
+    when(contextMock.get(TaskListener.class)).thenReturn(taskListenerMock);
+    when(contextMock.get(Launcher.class)).thenReturn(launcherMock);
+    sshService = Mockito.mockStatic(SSHService.class);
+    sshService.when(() -> SSHService.create(any(), anyBoolean(), anyBoolean(), any()))
+        .thenReturn(sshServiceMock);
+    when(sshServiceMock.startJob(anyString(), anyString())).thenReturn(true);
+
+    CommandStep step = new CommandStep("./build.sh");
+    execution = new TestExecution(step, contextMock);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    sshService.close();
+    closeable.close();
+  }
+
+  private static Map<String, Object> poll(Integer exitStatus, long offset, boolean more) {
+    Map<String, Object> result = new HashMap<>();
+    result.put("exitStatus", exitStatus);
+    result.put("offset", offset);
+    result.put("more", more);
+    return result;
+  }
+
+  @Test
+  void testStartsThenTailsUntilExit() {
+    when(sshServiceMock.pollJob(anyString(), anyLong(), anyInt()))
+        .thenReturn(poll(null, 100, false), poll(null, 100, false), poll(0, 150, false));
+
+    execution.start();
+    execution.poll();
+    execution.poll();
+    execution.poll();
+    execution.poll();
+
+    ArgumentCaptor<String> dir = ArgumentCaptor.forClass(String.class);
+    verify(sshServiceMock).startJob(eq("./build.sh"), dir.capture());
+    assertThat(dir.getValue()).startsWith(".ssh-steps/jobs/");
+    verify(sshServiceMock).pollJob(dir.getValue(), 0, DetachedCommandExecution.MAX_CHUNK);
+    verify(sshServiceMock, times(2)).pollJob(dir.getValue(), 100, DetachedCommandExecution.MAX_CHUNK);
+    verify(sshServiceMock).removeJob(dir.getValue(), false);
+    // New output polls again soon, no output backs off.
+    assertThat(execution.delays).containsExactly(0L, DetachedCommandExecution.MIN_POLL_MS,
+        DetachedCommandExecution.MIN_POLL_MS, 2 * DetachedCommandExecution.MIN_POLL_MS);
+
+    ArgumentCaptor<Object> result = ArgumentCaptor.forClass(Object.class);
+    verify(contextMock).onSuccess(result.capture());
+    assertThat((Map<String, Object>) result.getValue()).containsEntry("exitStatus", 0)
+        .containsEntry("jobId", dir.getValue().substring(dir.getValue().lastIndexOf('/') + 1));
+  }
+
+  @Test
+  void testFetchesRemainingOutputBeforeFinishing() {
+    when(sshServiceMock.pollJob(anyString(), anyLong(), anyInt()))
+        .thenReturn(poll(0, DetachedCommandExecution.MAX_CHUNK, true),
+            poll(0, DetachedCommandExecution.MAX_CHUNK + 10, false));
+
+    execution.start();
+    execution.poll();
+    execution.poll();
+
+    verify(contextMock, never()).onSuccess(any());
+    assertThat(execution.delays).endsWith(0L);
+    execution.poll();
+    verify(contextMock).onSuccess(any());
+  }
+
+  @Test
+  void testFailsOnNonZeroExitStatus() {
+    when(sshServiceMock.pollJob(anyString(), anyLong(), anyInt())).thenReturn(poll(3, 0, false));
+
+    execution.start();
+    execution.poll();
+    execution.poll();
+
+    ArgumentCaptor<Throwable> failure = ArgumentCaptor.forClass(Throwable.class);
+    verify(contextMock).onFailure(failure.capture());
+    assertThat(failure.getValue()).isInstanceOf(IllegalStateException.class)
+        .hasMessageEndingWith("Detached command exited with status 3");
+    verify(sshServiceMock).removeJob(anyString(), eq(false));
+  }
+
+  @Test
+  void testRetriesFailedPolls() {
+    when(sshServiceMock.pollJob(anyString(), anyLong(), anyInt()))
+        .thenThrow(new IllegalStateException("Connection refused"))
+        .thenReturn(poll(0, 0, false));
+
+    execution.start();
+    execution.poll();
+    execution.poll();
+    execution.poll();
+
+    verify(printStreamMock).println(Common.getPrefix() + "Failed to poll detached command (1 of "
+        + DetachedCommandExecution.MAX_FAILURES
+        + " failed polls before the step gives up), retrying: Connection refused");
+    verify(contextMock, never()).onFailure(any());
+    verify(contextMock).onSuccess(any());
+  }
+
+  @Test
+  void testStopKillsJob() throws Exception {
+    execution.start();
+    execution.poll();
+    IllegalStateException cause = new IllegalStateException("aborted");
+    execution.stop(cause);
+    execution.poll();
+
+    verify(sshServiceMock).removeJob(anyString(), eq(true));
+    verify(sshServiceMock, never()).pollJob(anyString(), anyLong(), anyInt());
+    verify(contextMock).onFailure(cause);
+  }
+
+  @Test
+  void testStopAfterCompletionDoesNotCompleteAgain() throws Exception {
+    when(sshServiceMock.pollJob(anyString(), anyLong(), anyInt())).thenReturn(poll(0, 0, false));
+
+    execution.start();
+    execution.poll();
+    execution.poll();
+    execution.stop(new IllegalStateException("aborted"));
+
+    verify(contextMock).onSuccess(any());
+    verify(contextMock, never()).onFailure(any());
+    verify(sshServiceMock, never()).removeJob(anyString(), eq(true));
+  }
+
+  @Test
+  void testResumePollsAgain() {
+    execution.onResume();
+
+    assertThat(execution.delays).containsExactly(0L);
+  }
+
+  private static class TestExecution extends DetachedCommandExecution {
+
+    private final List<Long> delays = new ArrayList<>();
+
+    TestExecution(CommandStep step, StepContext context) {
+      super(step, step.getCommand(), context);
+    }
+
+    @Override
+    void schedule(long delayMillis) {
+      delays.add(delayMillis);
+    }
+  }
+}
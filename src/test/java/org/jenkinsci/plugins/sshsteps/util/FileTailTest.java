@@ -0,0 +1,190 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test cases for FileTail class.
+ *
+ * @author Naresh Rayapati
+ */
+class FileTailTest {
+
+  final List<String> lines = new ArrayList<>();
+  final FakeFile file = new FakeFile();
+
+  @Test
+  void testReadsOnlyAppendedBytes() throws Exception {
+    FileTail tail = new FileTail(file, 0, null, "UTF-8", lines::add);
+    file.append("one\ntw");
+
+    assertThat(tail.poll()).isFalse();
+    assertThat(lines).containsExactly("one");
+    assertThat(tail.getOffset()).isEqualTo(6);
+
+    file.append("o\nthree\n");
+    tail.poll();
+
+    assertThat(lines).containsExactly("one", "two", "three");
+    // Only the bytes before the offset are read again, to tell the file from another one.
+    assertThat(file.openedAt).containsExactly(0L, 0L);
+    file.append("x".repeat(FileTail.FINGERPRINT) + "\n");
+    tail.poll();
+    file.append("four\n");
+    tail.poll();
+    assertThat(file.openedAt).containsExactly(0L, 0L, 0L, 79L - FileTail.FINGERPRINT);
+    // Nothing appended, nothing fetched.
+    tail.poll();
+    assertThat(file.openedAt).hasSize(4);
+    assertThat(tail.getTruncations()).isZero();
+  }
+
+  @Test
+  void testStartsFromGivenOffset() throws Exception {
+    file.append("old\nnew\n");
+    FileTail tail = new FileTail(file, 4, null, "UTF-8", lines::add);
+
+    tail.poll();
+
+    assertThat(lines).containsExactly("new");
+    assertThat(tail.getOffset()).isEqualTo(8);
+  }
+
+  @Test
+  void testTruncatedFileIsReadFromStart() throws Exception {
+    FileTail tail = new FileTail(file, 0, null, "UTF-8", lines::add);
+    file.append("first line\npartial");
+    tail.poll();
+
+    file.truncate();
+    file.append("rotated\n");
+    tail.poll();
+
+    assertThat(tail.getTruncations()).isEqualTo(1);
+    assertThat(lines).containsExactly("first line", "partial", "rotated");
+    assertThat(tail.getOffset()).isEqualTo(8);
+  }
+
+  @Test
+  void testRecreatedFileIsReadFromStart() throws Exception {
+    FileTail tail = new FileTail(file, 0, null, "UTF-8", lines::add);
+    file.append("a\n");
+    tail.poll();
+
+    file.delete();
+    tail.poll();
+    assertThat(tail.isMissing()).isTrue();
+
+    // Grew beyond the previous offset before the next poll.
+    file.append("bbb\nccc\n");
+    tail.poll();
+
+    assertThat(tail.isMissing()).isFalse();
+    assertThat(tail.getTruncations()).isEqualTo(1);
+    assertThat(lines).containsExactly("a", "bbb", "ccc");
+  }
+
+  @Test
+  void testReplacedFileGrownPastOffsetIsReadFromStart() throws Exception {
+    FileTail tail = new FileTail(file, 0, null, "UTF-8", lines::add);
+    file.append("old 1\nold 2\n");
+    tail.poll();
+
+    // Rotated and refilled past the offset between two polls.
+    file.truncate();
+    file.append("new 1\nnew 2\nnew 3\n");
+    tail.poll();
+
+    assertThat(tail.getTruncations()).isEqualTo(1);
+    assertThat(lines).containsExactly("old 1", "old 2", "new 1", "new 2", "new 3");
+    assertThat(tail.getOffset()).isEqualTo(18);
+  }
+
+  @Test
+  void testFileModifiedBeforePreviousPollIsReadFromStart() throws Exception {
+    FileTail tail = new FileTail(file, 0, null, "UTF-8", lines::add);
+    file.modified = 200;
+    file.append("a\n");
+    tail.poll();
+
+    // Replaced by an older file of the same size, e.g. restored from a backup.
+    file.truncate();
+    file.append("b\n");
+    file.modified = 100;
+    tail.poll();
+
+    assertThat(tail.getTruncations()).isEqualTo(1);
+    assertThat(lines).containsExactly("a", "b");
+  }
+
+  @Test
+  void testStopsAtMatch() throws Exception {
+    FileTail tail = new FileTail(file, 0, Pattern.compile("Started .* in \\d+s"), "UTF-8",
+        lines::add);
+    file.append("Starting\n");
+    tail.poll();
+    assertThat(tail.isMatched()).isFalse();
+
+    file.append("Started app in 3s\n");
+    assertThat(tail.poll()).isFalse();
+
+    assertThat(tail.isMatched()).isTrue();
+    assertThat(tail.getMatchedLine()).isEqualTo("Started app in 3s");
+  }
+
+  @Test
+  void testLargeBacklogIsReadInChunks() throws Exception {
+    FileTail tail = new FileTail(file, 0, null, "UTF-8", lines::add);
+    file.append(("x".repeat(99) + "\n").repeat(FileTail.MAX_CHUNK / 100 * 3));
+
+    assertThat(tail.poll()).isTrue();
+    assertThat(tail.getOffset()).isEqualTo(FileTail.MAX_CHUNK);
+    while (tail.poll()) {
+      // Drain.
+    }
+
+    assertThat(lines).hasSize(FileTail.MAX_CHUNK / 100 * 3);
+  }
+
+  private static class FakeFile implements FileTail.Source {
+
+    private ByteArrayOutputStream content = new ByteArrayOutputStream();
+    private final List<Long> openedAt = new ArrayList<>();
+    private long modified;
+
+    void append(String text) {
+      if (content == null) {
+        content = new ByteArrayOutputStream();
+      }
+      content.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void truncate() {
+      content.reset();
+    }
+
+    void delete() {
+      content = null;
+    }
+
+    @Override
+    public FileTail.Stat stat() {
+      return content == null ? null : new FileTail.Stat(content.size(), modified);
+    }
+
+    @Override
+    public InputStream open(long offset) {
+      openedAt.add(offset);
+      byte[] bytes = content.toByteArray();
+      return new ByteArrayInputStream(bytes, (int) offset, bytes.length - (int) offset);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test cases for LatencyHistogram class.
+ *
+ * @author Naresh Rayapati
+ */
+class LatencyHistogramTest {
+
+  @Test
+  void testEveryValueFallsInItsBucket() {
+    for (long value : new long[] {0, 1, 7, 8, 9, 15, 16, 100, 1000, 123456789L, Long.MAX_VALUE}) {
+      int index = LatencyHistogram.index(value);
+      assertThat(LatencyHistogram.upperBound(index)).isGreaterThanOrEqualTo(value);
+      if (index > 0) {
+        assertThat(LatencyHistogram.upperBound(index - 1)).isLessThan(value);
+      }
+    }
+  }
+
+  @Test
+  void testEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    assertThat(histogram.getCount()).isZero();
+    assertThat(histogram.getValue(0.99)).isZero();
+    assertThat(histogram.getMean()).isZero();
+  }
+
+  @Test
+  void testPercentilesWithinPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 10000; value++) {
+      histogram.record(value);
+    }
+
+    assertThat(histogram.getCount()).isEqualTo(10000);
+    assertThat(histogram.getMax()).isEqualTo(10000);
+    assertThat(histogram.getMean()).isEqualTo(5000.5);
+    assertThat((double) histogram.getValue(0.5)).isCloseTo(5000, within(5000 / 8.0));
+    assertThat((double) histogram.getValue(0.99)).isCloseTo(9900, within(9900 / 8.0));
+    assertThat(histogram.getValue(1)).isEqualTo(10000);
+    assertThat(histogram.getStdDev()).isCloseTo(2886.9, within(2886.9 / 8.0));
+  }
+
+  @Test
+  void testTailIsNotHiddenByAverage() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    Random random = new Random(42);
+    for (int i = 0; i < 990; i++) {
+      histogram.record(10 + random.nextInt(5));
+    }
+    for (int i = 0; i < 10; i++) {
+      histogram.record(5000);
+    }
+
+    assertThat(histogram.getValue(0.5)).isLessThan(16);
+    assertThat(histogram.getValue(0.995)).isEqualTo(5000);
+  }
+}
@@ -0,0 +1,49 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test cases for MappedFile class.
+ *
+ * @author Naresh Rayapati
+ */
+class MappedFileTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void testStreamsAreIndependentAcrossSegments() throws Exception {
+    byte[] content = new byte[10_000];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+    File file = Files.write(dir.resolve("artifact.bin"), content).toFile();
+
+    MappedFile mapped = MappedFile.map(file, 4096);
+    try (InputStream first = mapped.newInputStream();
+        InputStream second = mapped.newInputStream()) {
+      assertThat(first.read()).isEqualTo(0);
+      assertThat(first.readAllBytes()).hasSize(content.length - 1);
+      assertThat(second.readAllBytes()).isEqualTo(content);
+      assertThat(first.read()).isEqualTo(-1);
+    }
+    assertThat(mapped.getLength()).isEqualTo(content.length);
+  }
+
+  @Test
+  void testEmptyFile() throws Exception {
+    File file = Files.createFile(dir.resolve("empty")).toFile();
+
+    try (InputStream in = MappedFile.map(file).newInputStream()) {
+      assertThat(in.read()).isEqualTo(-1);
+    }
+  }
+}
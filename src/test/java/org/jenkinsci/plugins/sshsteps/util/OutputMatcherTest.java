@@ -0,0 +1,71 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test cases for OutputMatcher class.
+ *
+ * @author Naresh Rayapati
+ */
+class OutputMatcherTest {
+
+  final List<String> lines = new ArrayList<>();
+  final CompletableFuture<String> matched = new CompletableFuture<>();
+  final OutputMatcher matcher = new OutputMatcher(Pattern.compile("Started .* in \\d+s"), "UTF-8",
+      lines::add, matched);
+
+  @Test
+  void testMatchAcrossWrites() {
+    write("Starting app\r\nStarted Ap");
+    assertThat(matched).isNotDone();
+
+    write("plication in 12s\nmore\n");
+
+    assertThat(matched).isCompletedWithValue("Started Application in 12s");
+    assertThat(lines).containsExactly("Starting app", "Started Application in 12s", "more");
+  }
+
+  @Test
+  void testLastLineWithoutLineBreak() {
+    write("Started app in 3s");
+    assertThat(lines).isEmpty();
+
+    matcher.finish();
+
+    assertThat(lines).containsExactly("Started app in 3s");
+    assertThat(matched).isCompletedWithValue("Started app in 3s");
+  }
+
+  @Test
+  void testLongLinesAreSplit() {
+    write("x".repeat(OutputMatcher.MAX_LINE + 10) + "\n");
+
+    assertThat(lines).hasSize(2);
+    assertThat(lines.get(0)).hasSize(OutputMatcher.MAX_LINE);
+    assertThat(lines.get(1)).hasSize(10);
+  }
+
+  @Test
+  void testWithoutPatternOnlySplitsLines() {
+    List<String> split = new ArrayList<>();
+    OutputMatcher splitter = new OutputMatcher("UTF-8", split::add);
+    byte[] bytes = "one\ntwo".getBytes(StandardCharsets.UTF_8);
+
+    splitter.write(bytes, 0, bytes.length);
+    splitter.finish();
+
+    assertThat(split).containsExactly("one", "two");
+  }
+
+  private void write(String text) {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    matcher.write(bytes, 0, bytes.length);
+  }
+}
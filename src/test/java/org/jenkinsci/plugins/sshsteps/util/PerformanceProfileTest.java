@@ -0,0 +1,44 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test cases for PerformanceProfile class.
+ *
+ * @author Naresh Rayapati
+ */
+class PerformanceProfileTest {
+
+  @Test
+  void testPreferredAlgorithmsComeFirstFollowedByDefaults() {
+    assertThat(PerformanceProfile.prefer("b,a", "a,c,b")).isEqualTo("b,a,c");
+  }
+
+  @Test
+  void testCalibratedCipherIsPreferredForThroughput() {
+    Map<String, String> config = PerformanceProfile.of("throughput").jschConfig("aes256-ctr");
+
+    assertThat(config.get("cipher.c2s")).startsWith("aes256-ctr,aes128-gcm@openssh.com,");
+    assertThat(config.get("compression.s2c")).isEqualTo("none");
+  }
+
+  @Test
+  void testWanCompressedEnablesCompression() {
+    Map<String, String> config = PerformanceProfile.of("wan-compressed").jschConfig("aes256-ctr");
+
+    assertThat(config.get("cipher.c2s")).startsWith("aes128-gcm@openssh.com,");
+    assertThat(config.get("compression.c2s")).isEqualTo("zlib@openssh.com,zlib,none");
+    assertThat(config).containsEntry("compression_level", "6");
+  }
+
+  @Test
+  void testUnknownProfileThrowsIllegalArgumentException() {
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> PerformanceProfile.of("fast"))
+        .withMessage("Unknown performanceProfile fast, supported: throughput, low-cpu, wan-compressed");
+  }
+}
@@ -0,0 +1,78 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test cases for PreConnectRegistry class.
+ *
+ * @author Naresh Rayapati
+ */
+class PreConnectRegistryTest {
+
+  @Test
+  void testTakeReturnsCompletedConnection() throws Exception {
+    SSHConnection connection = mock(SSHConnection.class);
+
+    PreConnectRegistry.complete("take", connection);
+
+    assertThat(PreConnectRegistry.take("take", 1000)).isSameAs(connection);
+    verify(connection, never()).close();
+  }
+
+  @Test
+  void testTakeReturnsNullWhenPreConnectFailed() throws Exception {
+    PreConnectRegistry.complete("failed", null);
+
+    assertThat(PreConnectRegistry.take("failed", 1000)).isNull();
+  }
+
+  @Test
+  void testDiscardBeforeCompleteClosesConnection() {
+    SSHConnection connection = mock(SSHConnection.class);
+
+    PreConnectRegistry.discard("discard");
+    PreConnectRegistry.complete("discard", connection);
+
+    verify(connection, times(1)).close();
+  }
+
+  @Test
+  void testDiscardAfterCompleteClosesConnection() {
+    SSHConnection connection = mock(SSHConnection.class);
+
+    PreConnectRegistry.complete("discard-after", connection);
+    PreConnectRegistry.discard("discard-after");
+
+    verify(connection, times(1)).close();
+  }
+
+  @Test
+  void testTakeGivesUpWhenPreConnectNeverCompletes() throws Exception {
+    SSHConnection connection = mock(SSHConnection.class);
+
+    assertThat(PreConnectRegistry.take("lost", 50)).isNull();
+    // Late pre-connect closes its connection.
+    PreConnectRegistry.complete("lost", connection);
+
+    verify(connection, times(1)).close();
+  }
+
+  @Test
+  void testPreConnectTimeoutFollowsRemote() {
+    Map<String, Object> remote = new HashMap<>();
+    assertThat(SSHMasterToSlaveCallable.preConnectTimeoutMillis(remote))
+        .isEqualTo(PreConnectRegistry.EXPIRY_MS);
+
+    remote.put("timeoutSec", 10);
+    remote.put("retryCount", 2);
+    assertThat(SSHMasterToSlaveCallable.preConnectTimeoutMillis(remote)).isEqualTo(30000);
+  }
+}
@@ -0,0 +1,123 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.hidetake.groovy.ssh.connection.AllowAnyHosts;
+import org.hidetake.groovy.ssh.core.ProxyType;
+import org.hidetake.groovy.ssh.core.Remote;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test cases for RemoteSettings class.
+ *
+ * @author Naresh Rayapati
+ */
+class RemoteSettingsTest {
+
+  @AfterEach
+  void tearDown() {
+    RemoteSettings.clear();
+  }
+
+  private static Map<String, Object> remote() {
+    Map<String, Object> remote = new HashMap<>();
+    remote.put("name", "target");
+    remote.put("host", "target.example.com");
+    remote.put("port", 2222);
+    remote.put("user", "jenkins");
+    remote.put("identityFile", "/keys/id_rsa");
+    remote.put("knownHosts", "/keys/known_hosts");
+    return remote;
+  }
+
+  @Test
+  void testSameRemoteIsValidatedOnce() {
+    RemoteSettings settings = RemoteSettings.of(remote(), null);
+
+    assertThat(RemoteSettings.of(remote(), null)).isSameAs(settings);
+    assertThat(RemoteSettings.of(remote(), null).getConnectionKey())
+        .isEqualTo(settings.getConnectionKey());
+  }
+
+  @Test
+  void testRemoteOfStepIsLeftAsIs() {
+    Map<String, Object> remote = remote();
+
+    Remote target = RemoteSettings.of(remote, null).toRemote(false, false, null);
+
+    assertThat(remote).containsEntry("identityFile", "/keys/id_rsa")
+        .containsEntry("knownHosts", "/keys/known_hosts").doesNotContainKey("identity");
+    assertThat(target.getIdentity()).isEqualTo(new File("/keys/id_rsa"));
+    assertThat(target.getKnownHosts()).isEqualTo(new File("/keys/known_hosts"));
+    assertThat(target.getPort()).isEqualTo(2222);
+  }
+
+  @Test
+  void testRemoteWithGatewayAndProxy() {
+    Map<String, Object> gateway = new HashMap<>();
+    gateway.put("name", "bastion");
+    gateway.put("host", "bastion.example.com");
+    gateway.put("user", "jump");
+    gateway.put("allowAnyHosts", true);
+    Map<String, Object> proxy = new HashMap<>();
+    proxy.put("name", "corporate");
+    proxy.put("host", "proxy.example.com");
+    proxy.put("port", 3128);
+    proxy.put("type", "HTTP");
+    Map<String, Object> remote = remote();
+    remote.put("gateway", gateway);
+    remote.put("proxy", proxy);
+
+    Remote target = RemoteSettings.of(remote, null).toRemote(true, true, null);
+
+    assertThat(target.getDryRun()).isTrue();
+    assertThat(target.getIgnoreError()).isTrue();
+    assertThat(target.getRetryCount()).isZero();
+    assertThat(target.getGateway().getName()).isEqualTo("bastion");
+    assertThat(target.getGateway().getKnownHosts()).isSameAs(AllowAnyHosts.getInstance());
+    assertThat(target.getGateway().getDryRun()).isTrue();
+    assertThat(target.getProxy().getType()).isEqualTo(ProxyType.HTTP);
+    assertThat(target.getProxy().getPort()).isEqualTo(3128);
+  }
+
+  @Test
+  void testWarningsArePrintedForEveryStep() {
+    Map<String, Object> proxy = new HashMap<>();
+    proxy.put("name", "corporate");
+    proxy.put("host", "proxy.example.com");
+    proxy.put("type", "SOCKS");
+    proxy.put("password", "secret");
+    Map<String, Object> remote = remote();
+    remote.put("proxy", proxy);
+    ByteArrayOutputStream first = new ByteArrayOutputStream();
+    ByteArrayOutputStream second = new ByteArrayOutputStream();
+
+    RemoteSettings.of(remote, new PrintStream(first, true, StandardCharsets.UTF_8));
+    RemoteSettings.of(remote, new PrintStream(second, true, StandardCharsets.UTF_8));
+
+    assertThat(first.toString(StandardCharsets.UTF_8))
+        .contains("proxy.password is set but proxy.user is null");
+    assertThat(second.toString(StandardCharsets.UTF_8))
+        .isEqualTo(first.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testInvalidRemoteIsValidatedEveryTime() {
+    Map<String, Object> remote = remote();
+    remote.remove("user");
+
+    for (int i = 0; i < 2; i++) {
+      assertThatExceptionOfType(AssertionError.class)
+          .isThrownBy(() -> RemoteSettings.of(remote, null))
+          .withMessageStartingWith("SSH Steps: user must be given (target)");
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test cases for SSHConnectionPool class.
+ *
+ * @author Naresh Rayapati
+ */
+class SSHConnectionPoolTest {
+
+  private final AtomicInteger opened = new AtomicInteger();
+
+  private SSHConnection open() {
+    opened.incrementAndGet();
+    SSHConnection connection = mock(SSHConnection.class);
+    when(connection.isConnected()).thenReturn(true);
+    return connection;
+  }
+
+  @Test
+  void testSessionsShareOneConnection() throws Exception {
+    SSHConnectionPool.Lease first = SSHConnectionPool.lease("share", 2, 2, 60000, this::open);
+    SSHConnectionPool.Lease second = SSHConnectionPool.lease("share", 2, 2, 60000, this::open);
+
+    assertThat(second.getConnection()).isSameAs(first.getConnection());
+    assertThat(opened).hasValue(1);
+
+    first.close();
+    second.close();
+    verify(first.getConnection(), never()).close();
+  }
+
+  @Test
+  void testOverflowConnectionWhenSessionsExhausted() throws Exception {
+    SSHConnectionPool.Lease first = SSHConnectionPool.lease("overflow", 1, 2, 60000, this::open);
+    SSHConnectionPool.Lease second = SSHConnectionPool.lease("overflow", 1, 2, 60000, this::open);
+
+    assertThat(second.getConnection()).isNotSameAs(first.getConnection());
+    assertThat(opened).hasValue(2);
+
+    first.close();
+    second.close();
+  }
+
+  @Test
+  void testLeasesCountTheirChannels() throws Exception {
+    SSHConnectionPool.Lease parallel = SSHConnectionPool.lease("channels", 4, 5, 2, 60000, this::open);
+    SSHConnectionPool.Lease single = SSHConnectionPool.lease("channels", 5, 2, 60000, this::open);
+    SSHConnectionPool.Lease overflow = SSHConnectionPool.lease("channels", 2, 5, 2, 60000, this::open);
+
+    assertThat(single.getConnection()).isSameAs(parallel.getConnection());
+    assertThat(overflow.getConnection()).isNotSameAs(parallel.getConnection());
+    assertThat(opened).hasValue(2);
+
+    parallel.close();
+    single.close();
+    overflow.close();
+  }
+
+  @Test
+  void testLeaseLargerThanMaxSessionsIsRejected() {
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> SSHConnectionPool.lease("too-many", 6, 5, 2, 60000, this::open))
+        .withMessage("channels must be between 1 and maxSessions (5): 6");
+  }
+
+  @Test
+  void testQueuesWhenConnectionsExhausted() throws Exception {
+    SSHConnectionPool.Lease first = SSHConnectionPool.lease("queue", 1, 1, 60000, this::open);
+    CompletableFuture<SSHConnectionPool.Lease> second = CompletableFuture.supplyAsync(() -> {
+      try {
+        return SSHConnectionPool.lease("queue", 1, 1, 60000, this::open);
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    Thread.sleep(200);
+    assertThat(second).isNotDone();
+
+    first.close();
+    assertThat(second.get(5, TimeUnit.SECONDS).getConnection()).isSameAs(first.getConnection());
+    assertThat(opened).hasValue(1);
+    second.get().close();
+  }
+
+  @Test
+  void testReplacesDisconnectedConnection() throws Exception {
+    SSHConnectionPool.Lease first = SSHConnectionPool.lease("dead", 2, 1, 60000, this::open);
+    first.close();
+    when(first.getConnection().isConnected()).thenReturn(false);
+
+    SSHConnectionPool.Lease second = SSHConnectionPool.lease("dead", 2, 1, 60000, this::open);
+
+    assertThat(second.getConnection()).isNotSameAs(first.getConnection());
+    verify(first.getConnection(), times(1)).close();
+    second.close();
+  }
+}
@@ -0,0 +1,88 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.hidetake.groovy.ssh.connection.AllowAnyHosts;
+import org.hidetake.groovy.ssh.connection.ConnectionManager;
+import org.hidetake.groovy.ssh.core.Remote;
+import org.hidetake.groovy.ssh.core.settings.GlobalSettings;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test cases for SSHConnection class.
+ *
+ * @author Naresh Rayapati
+ */
+class SSHConnectionTest {
+
+  @Test
+  void testTunedManagerAppliesJschConfigAndSocketFactory() throws Exception {
+    try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      CompletableFuture<String> kex = CompletableFuture.supplyAsync(() -> clientKex(server));
+      TransferSocketFactory socketFactory = spy(new TransferSocketFactory(5000));
+      Map<String, Object> settings = new HashMap<>();
+      settings.put("name", "target");
+      settings.put("host", "127.0.0.1");
+      settings.put("port", server.getLocalPort());
+      settings.put("user", "dummy");
+      settings.put("password", "dummy");
+      settings.put("knownHosts", AllowAnyHosts.getInstance());
+      settings.put("timeoutSec", 5);
+      Map<String, Map<String, String>> jschConfig = new HashMap<>();
+      jschConfig.put("target", Map.of("kex", "diffie-hellman-group14-sha256"));
+
+      ConnectionManager manager = SSHConnection.tunedManager(new GlobalSettings(), jschConfig,
+          "target", socketFactory);
+      try {
+        // The fake server hangs up after the key exchange init.
+        assertThatThrownBy(() -> manager.connect(new Remote(settings)));
+      } finally {
+        manager.close();
+      }
+
+      assertThat(kex.get(5, TimeUnit.SECONDS)).startsWith("diffie-hellman-group14-sha256");
+      verify(socketFactory).createSocket("127.0.0.1", server.getLocalPort());
+    }
+  }
+
+  /**
+   * Accepts one client, exchanges versions and returns the kex algorithms of its (unencrypted)
+   * key exchange init.
+   */
+  private static String clientKex(ServerSocket server) {
+    try (Socket socket = server.accept()) {
+      OutputStream out = socket.getOutputStream();
+      out.write("SSH-2.0-Test\r\n".getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+      DataInputStream in = new DataInputStream(socket.getInputStream());
+      ByteArrayOutputStream version = new ByteArrayOutputStream();
+      for (int b = in.read(); b != '\n'; b = in.read()) {
+        version.write(b);
+      }
+      in.readInt();
+      in.readByte();
+      assertThat(in.readByte()).isEqualTo((byte) 20);
+      in.skipBytes(16);
+      byte[] kex = new byte[in.readInt()];
+      in.readFully(kex);
+      return new String(kex, StandardCharsets.US_ASCII);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.log4j.MDC;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test cases for SSHEvents class.
+ *
+ * @author Naresh Rayapati
+ */
+class SSHEventsTest {
+
+  @AfterEach
+  void tearDown() {
+    MDC.remove("execution.id");
+  }
+
+  private static List<RecordedEvent> record(Runnable emit) throws Exception {
+    Path file = Files.createTempFile("ssh-steps", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("org.jenkinsci.plugins.sshsteps.*");
+      recording.start();
+      emit.run();
+      recording.stop();
+      recording.dump(file);
+      return RecordingFile.readAllEvents(file).stream()
+          .filter(e -> e.getEventType().getName().startsWith("org.jenkinsci.plugins.sshsteps."))
+          .collect(Collectors.toList());
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  void testCommandCarriesHostAndExecutionIdOfThread() throws Exception {
+    List<RecordedEvent> events = record(() -> {
+      MDC.put("execution.id", "exec-1");
+      SSHEvents.Command event = new SSHEvents.Command("sshCommand");
+      event.setExitStatus(2);
+      event.finish("host:22");
+    });
+
+    assertThat(events).hasSize(1);
+    RecordedEvent event = events.get(0);
+    assertThat(event.getEventType().getName()).isEqualTo("org.jenkinsci.plugins.sshsteps.Command");
+    assertThat(event.getString("host")).isEqualTo("host:22");
+    assertThat(event.getString("executionId")).isEqualTo("exec-1");
+    assertThat(event.getString("operation")).isEqualTo("sshCommand");
+    assertThat(event.getInt("exitStatus")).isEqualTo(2);
+  }
+
+  @Test
+  void testTransferRecordsBytes() throws Exception {
+    List<RecordedEvent> events = record(() -> {
+      TransferProgress progress = new TransferProgress("sshPut test[host]", "host:22", true);
+      progress.setTotals(3000, 2);
+      progress.start(new PrintStream(new ByteArrayOutputStream()), 0);
+      progress.add(3000);
+      progress.finish();
+    });
+
+    assertThat(events).hasSize(1);
+    assertThat(events.get(0).getLong("bytes")).isEqualTo(3000);
+    assertThat(events.get(0).getLong("files")).isEqualTo(2);
+    assertThat(events.get(0).getBoolean("upload")).isTrue();
+    assertThat(events.get(0).getString("host")).isEqualTo("host:22");
+  }
+
+  @Test
+  void testLogFlushRecordsLines() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    List<RecordedEvent> events = record(() -> {
+      CustomLogHandler handler = new CustomLogHandler(
+          new PrintStream(out, true, StandardCharsets.UTF_8), null, 10, 60000, 0);
+      handler.setHost("host:22");
+      handler.publish(new LogRecord(Level.INFO, "one"));
+      handler.publish(new LogRecord(Level.INFO, "two"));
+      handler.flush();
+    });
+
+    assertThat(events).hasSize(1);
+    assertThat(events.get(0).getInt("lines")).isEqualTo(2);
+    assertThat(out.toString(StandardCharsets.UTF_8)).contains("one", "two");
+  }
+
+  @Test
+  void testNothingRecordedWhenDisabled() throws Exception {
+    Path file = Files.createTempFile("ssh-steps", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.disable("org.jenkinsci.plugins.sshsteps.Connect");
+      recording.start();
+      new SSHEvents.Connect(1, 1).finish("host:22");
+      recording.stop();
+      recording.dump(file);
+      assertThat(RecordingFile.readAllEvents(file))
+          .noneMatch(e -> e.getEventType().getName().startsWith("org.jenkinsci.plugins.sshsteps."));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
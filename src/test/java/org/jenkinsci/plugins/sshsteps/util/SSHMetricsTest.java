@@ -0,0 +1,101 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.IOException;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test cases for SSHMetrics class.
+ *
+ * @author Naresh Rayapati
+ */
+class SSHMetricsTest {
+
+  @AfterEach
+  void tearDown() {
+    SSHMetrics.clear();
+    SSHMetrics.stopSamples();
+  }
+
+  @Test
+  void testStepDurationAndErrorsPerHostAndOperation() {
+    Map<String, Object> remote = Map.of("host", "build.example.com");
+
+    SSHMetrics.stepFinished(remote, "command", 120, false);
+    SSHMetrics.stepFinished(remote, "command", 80, true);
+
+    LatencyHistogram duration =
+        SSHMetrics.getHistograms().get("ssh-steps.build_example_com.command.duration");
+    assertThat(duration.getCount()).isEqualTo(2);
+    assertThat(duration.getMax()).isEqualTo(120);
+    assertThat(SSHMetrics.getCounters().get("ssh-steps.build_example_com.command.errors").get())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void testThroughputOfTransfer() {
+    SSHMetrics.transferred(Map.of("host", "h"), "put",
+        Map.of("bytes", 10L * 1024 * 1024, "durationMillis", 2000L));
+
+    assertThat(SSHMetrics.getHistograms().get("ssh-steps.h.put.throughputKBps").getMax())
+        .isEqualTo(5120);
+  }
+
+  @Test
+  void testSamplesOfAgentAreRecordedOnController() {
+    SSHMetrics.Samples samples = SSHMetrics.startSamples();
+    SSHMetrics.connected(250, 2);
+    SSHMetrics.stopSamples();
+    SSHMetrics.connected(999, 5);
+
+    SSHMetrics.received(Map.of("host", "h"), "get", samples);
+
+    assertThat(SSHMetrics.getHistograms().get("ssh-steps.h.get.connect").getMax())
+        .isEqualTo(250);
+    assertThat(SSHMetrics.getCounters().get("ssh-steps.h.get.retries").get()).isEqualTo(2);
+  }
+
+  @Test
+  void testFailedConnectIsRecordedThroughFailure() {
+    SSHMetrics.Samples samples = SSHMetrics.startSamples();
+    SSHMetrics.connectFailed(3);
+    SSHMetrics.stopSamples();
+    SSHMetrics.Failure failure =
+        new SSHMetrics.Failure(new IOException("Connection refused"), samples);
+
+    SSHMetrics.received(Map.of("host", "h"), "command", failure.getSamples());
+
+    assertThat(failure.unwrap()).hasMessage("Connection refused");
+    assertThat(SSHMetrics.getCounters().get("ssh-steps.h.command.retries").get()).isEqualTo(3);
+    assertThat(SSHMetrics.getCounters().get("ssh-steps.h.command.connectErrors").get())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void testFailureRethrowsRuntimeExceptionOfAgent() {
+    SSHMetrics.Failure failure = new SSHMetrics.Failure(
+        new IllegalStateException("circuit breaker is OPEN"), new SSHMetrics.Samples());
+
+    assertThatExceptionOfType(IllegalStateException.class)
+        .isThrownBy(failure::unwrap)
+        .withMessage("circuit breaker is OPEN");
+  }
+
+  @Test
+  void testHostsBeyondLimitAreCountedAsOther() {
+    for (int i = 0; i < SSHMetrics.MAX_HOSTS; i++) {
+      SSHMetrics.stepFinished(Map.of("host", "host" + i), "command", 1, false);
+    }
+    SSHMetrics.stepFinished(Map.of("host", "one-too-many"), "command", 1, false);
+    SSHMetrics.stepFinished(Map.of("host", "host0"), "command", 1, false);
+
+    assertThat(SSHMetrics.getHistograms()).hasSize(SSHMetrics.MAX_HOSTS + 1)
+        .containsKey("ssh-steps.other.command.duration");
+    assertThat(SSHMetrics.getHistograms().get("ssh-steps.host0.command.duration").getCount())
+        .isEqualTo(2);
+  }
+}
@@ -0,0 +1,55 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test cases for TokenBucket class.
+ *
+ * @author Naresh Rayapati
+ */
+class TokenBucketTest {
+
+  @Test
+  void testAcquireIsLimitedToRate() throws Exception {
+    TokenBucket bucket = new TokenBucket(400 * 1024);
+
+    long started = System.nanoTime();
+    // 40 KB burst, the remaining 160 KB at 400 KB/s.
+    bucket.acquire(200 * 1024, TokenBucket.NORMAL);
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+    assertThat(elapsedMs).isBetween(300L, 1500L);
+  }
+
+  @Test
+  void testHigherPriorityGoesFirst() throws Exception {
+    TokenBucket bucket = new TokenBucket(200 * 1024);
+    bucket.acquire(32 * 1024, TokenBucket.NORMAL);
+    List<String> finished = new CopyOnWriteArrayList<>();
+
+    Thread bulk = new Thread(() -> acquire(bucket, 200 * 1024, TokenBucket.LOW, "bulk", finished));
+    bulk.start();
+    Thread.sleep(50);
+    Thread small = new Thread(() -> acquire(bucket, 20 * 1024, TokenBucket.HIGH, "small", finished));
+    small.start();
+    small.join(5000);
+    bulk.join(5000);
+
+    assertThat(finished).containsExactly("small", "bulk");
+  }
+
+  private static void acquire(TokenBucket bucket, long bytes, int priority, String name,
+      List<String> finished) {
+    try {
+      bucket.acquire(bytes, priority);
+      finished.add(name);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
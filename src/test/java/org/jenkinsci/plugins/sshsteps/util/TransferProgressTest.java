@@ -0,0 +1,77 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test cases for TransferProgress class.
+ *
+ * @author Naresh Rayapati
+ */
+class TransferProgressTest {
+
+  @Test
+  void testDescribeWithTotals() {
+    TransferProgress progress = new TransferProgress("sshGet test[host]", false);
+    progress.setTotals(4L * 1024 * 1024, 2);
+    progress.start(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8), 0);
+    progress.add(1024 * 1024);
+
+    String line = progress.describe(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+
+    assertThat(line).startsWith("SSH Steps: sshGet test[host]: 1.0 MB of 4.0 MB (25%), 2 files, ")
+        .contains(" MB/s, ETA 0:0");
+  }
+
+  @Test
+  void testDescribeWithoutTotals() {
+    TransferProgress progress = new TransferProgress("sshGet test[host]", false);
+    progress.start(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8), 0);
+    progress.add(512);
+
+    assertThat(progress.describe(System.nanoTime())).startsWith("SSH Steps: sshGet test[host]: 512 B, ")
+        .doesNotContain("ETA").doesNotContain("files");
+  }
+
+  @Test
+  void testFinishReturnsStatsAndPrintsProgress() throws Exception {
+    ByteArrayOutputStream log = new ByteArrayOutputStream();
+    TransferProgress progress = new TransferProgress("sshPut test[host]", true);
+    progress.setTotals(2048, 1);
+    progress.start(new PrintStream(log, true, StandardCharsets.UTF_8), 20);
+    progress.add(2048);
+    Thread.sleep(100);
+
+    Map<String, Object> stats = progress.finish();
+
+    assertThat(stats).containsEntry("bytes", 2048L).containsEntry("files", 1L)
+        .containsKeys("durationMillis", "mbPerSec");
+    assertThat(log.toString(StandardCharsets.UTF_8))
+        .contains("SSH Steps: sshPut test[host]: 2.0 KB of 2.0 KB (100%), 1 file, ");
+  }
+
+  @Test
+  void testCountsBytesOfStreams() throws Exception {
+    TransferProgress progress = new TransferProgress("sshPut test[host]", true);
+    progress.start(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8), 0);
+    ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+    try (InputStream in = progress.count(new ByteArrayInputStream(new byte[3000]));
+        OutputStream out = progress.count(target)) {
+      in.transferTo(out);
+      out.write(1);
+    }
+
+    assertThat(target.size()).isEqualTo(3001);
+    assertThat(progress.finish()).containsEntry("bytes", 6001L);
+  }
+}
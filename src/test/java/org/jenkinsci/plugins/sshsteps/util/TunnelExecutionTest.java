@@ -0,0 +1,211 @@
+package org.jenkinsci.plugins.sshsteps.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import hudson.EnvVars;
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import org.jenkinsci.plugins.sshsteps.SSHService;
+import org.jenkinsci.plugins.sshsteps.steps.TunnelStep;
+import org.jenkinsci.plugins.workflow.steps.BodyExecution;
+import org.jenkinsci.plugins.workflow.steps.BodyExecutionCallback;
+import org.jenkinsci.plugins.workflow.steps.BodyInvoker;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * Unit test cases for TunnelExecution class.
+ *
+ * @author Naresh Rayapati
+ */
+class TunnelExecutionTest {
+
+  @Mock
+  TaskListener taskListenerMock;
+  @Mock
+  PrintStream printStreamMock;
+  @Mock
+  SSHService sshServiceMock;
+  @Mock
+  StepContext contextMock;
+  @Mock
+  Launcher launcherMock;
+  @Mock
+  BodyInvoker bodyInvokerMock;
+  @Mock
+  BodyExecution bodyExecutionMock;
+  @Mock
+  Closeable connectionMock;
+
+  private AutoCloseable closeable;
+  private MockedStatic<SSHService> sshService;
+  private TunnelStep step;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    closeable = MockitoAnnotations.openMocks(this);
+    when(taskListenerMock.getLogger()).thenReturn(printStreamMock);
+    when(launcherMock.getChannel()).thenReturn(new TestVirtualChannel());
+    when(contextMock.get(TaskListener.class)).thenReturn(taskListenerMock);
+    when(contextMock.get(Launcher.class)).thenReturn(launcherMock);
+    when(contextMock.newBodyInvoker()).thenReturn(bodyInvokerMock);
+    when(bodyInvokerMock.withContexts(any())).thenReturn(bodyInvokerMock);
+    when(bodyInvokerMock.withCallback(any())).thenReturn(bodyInvokerMock);
+    when(bodyInvokerMock.start()).thenReturn(bodyExecutionMock);
+    sshService = Mockito.mockStatic(SSHService.class);
+    sshService.when(() -> SSHService.create(any(), anyBoolean(), anyBoolean(), any()))
+        .thenReturn(sshServiceMock);
+
+    Map<String, Object> remote = new HashMap<>();
+    remote.put("name", "bastion");
+    remote.put("host", "bastion.example.com");
+    step = new TunnelStep("db.internal", 5432);
+    step.setRemote(remote);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    sshService.close();
+    closeable.close();
+  }
+
+  private void opens(int localPort) {
+    Map<String, Object> result = new HashMap<>();
+    result.put("connection", connectionMock);
+    result.put("localPort", localPort);
+    when(sshServiceMock.openTunnel("127.0.0.1", 0, "db.internal", 5432)).thenReturn(result);
+  }
+
+  @Test
+  void testRunsBodyWithPortAndClosesTunnelWhenDone() throws Exception {
+    opens(40123);
+    TunnelExecution execution = new TunnelExecution(step, contextMock);
+
+    execution.open();
+
+    ArgumentCaptor<Object> contexts = ArgumentCaptor.forClass(Object.class);
+    verify(bodyInvokerMock).withContexts(contexts.capture());
+    EnvVars env = new EnvVars();
+    ((TunnelExecution.TunnelEnvironment) contexts.getValue()).expand(env);
+    assertThat(env).containsEntry(TunnelExecution.PORT_VARIABLE, "40123");
+    assertThat(execution.getStatus()).isEqualTo("forwarding port 40123 to db.internal:5432");
+
+    ArgumentCaptor<BodyExecutionCallback> callback =
+        ArgumentCaptor.forClass(BodyExecutionCallback.class);
+    verify(bodyInvokerMock).withCallback(callback.capture());
+    verify(connectionMock, never()).close();
+
+    callback.getValue().onSuccess(contextMock, "result");
+
+    verify(connectionMock).close();
+    verify(contextMock).onSuccess("result");
+  }
+
+  @Test
+  void testClosesTunnelWhenBodyFails() throws Exception {
+    opens(40124);
+    new TunnelExecution(step, contextMock).open();
+    ArgumentCaptor<BodyExecutionCallback> callback =
+        ArgumentCaptor.forClass(BodyExecutionCallback.class);
+    verify(bodyInvokerMock).withCallback(callback.capture());
+
+    IllegalStateException failure = new IllegalStateException("tests failed");
+    callback.getValue().onFailure(contextMock, failure);
+
+    verify(connectionMock).close();
+    verify(contextMock).onFailure(failure);
+  }
+
+  @Test
+  void testFailsWithoutBodyWhenTunnelCannotBeOpened() {
+    when(sshServiceMock.openTunnel("127.0.0.1", 0, "db.internal", 5432))
+        .thenThrow(new IllegalStateException("Connection refused"));
+
+    new TunnelExecution(step, contextMock).open();
+
+    verify(contextMock).onFailure(any(IllegalStateException.class));
+    verify(contextMock, never()).newBodyInvoker();
+  }
+
+  @Test
+  void testStopCancelsBody() throws Exception {
+    opens(40125);
+    TunnelExecution execution = new TunnelExecution(step, contextMock);
+    execution.open();
+
+    Exception cause = new InterruptedException();
+    execution.stop(cause);
+
+    verify(bodyExecutionMock).cancel(cause);
+    verify(contextMock, never()).onFailure(any());
+  }
+
+  @Test
+  void testStopWhileOpeningClosesTunnelWithoutBody() throws Exception {
+    opens(40126);
+    TunnelExecution execution = new TunnelExecution(step, contextMock);
+
+    // Stopped while the agent is still connecting.
+    Exception cause = new InterruptedException();
+    execution.stop(cause);
+    execution.open();
+
+    verify(contextMock).onFailure(cause);
+    verify(contextMock, never()).newBodyInvoker();
+    verify(connectionMock).close();
+  }
+
+  @Test
+  void testResumeWhileOpeningFails() {
+    new TunnelExecution(step, contextMock).onResume();
+
+    verify(contextMock).onFailure(any(Exception.class));
+  }
+
+  @Test
+  void testResumeWithBodyRunningDoesNothing() {
+    opens(40127);
+    TunnelExecution execution = new TunnelExecution(step, contextMock);
+    execution.open();
+
+    execution.onResume();
+
+    verify(contextMock, never()).onFailure(any());
+  }
+
+  @Test
+  void testStepValidatesPorts() {
+    TunnelStep invalid = new TunnelStep("db.internal", 0);
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> invalid.start(contextMock))
+        .withMessage("remotePort must be between 1 and 65535");
+
+    TunnelStep noHost = new TunnelStep("", 5432);
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> noHost.start(contextMock))
+        .withMessage("remoteHost is null or empty");
+
+    step.setLocalPort(70000);
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> step.start(contextMock))
+        .withMessage("localPort must be between 0 and 65535");
+  }
+}